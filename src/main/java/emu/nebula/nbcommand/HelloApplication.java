@@ -1,5 +1,6 @@
 package emu.nebula.nbcommand;
 
+import emu.nebula.nbcommand.controller.MainController;
 import emu.nebula.nbcommand.service.I18nManager;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
@@ -9,6 +10,8 @@ import javafx.stage.Stage;
 import java.io.IOException;
 
 public class HelloApplication extends Application {
+    private MainController controller;
+
     @Override
     public void start(Stage stage) throws IOException {
         // 初始化默认语言
@@ -18,6 +21,17 @@ public class HelloApplication extends Application {
         Scene scene = new Scene(fxmlLoader.load(), 1000, 625);
         stage.setTitle(i18n.getString("label.name"));
         stage.setScene(scene);
+        // 窗口显示之后再在后台解析手册数据，不占用启动时间
+        controller = fxmlLoader.getController();
+        stage.setOnShown(event -> controller.onWindowShown());
         stage.show();
     }
+
+    @Override
+    public void stop() {
+        // 先停止并写入暂存队列，再写入还在队列中的命令历史并关闭数据库
+        if (controller != null) {
+            controller.shutdown();
+        }
+    }
 }
\ No newline at end of file
@@ -1,12 +1,86 @@
 package emu.nebula.nbcommand;
 
+import emu.nebula.nbcommand.service.mock.MockNebulaServer;
+import emu.nebula.nbcommand.service.mock.MockServerConfig;
 import javafx.application.Application;
 
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
 public class Launcher {
     public static String version = "v1.4.3";
+
+    private static final String MOCK_SERVER_USAGE = "Usage: --mock-server [--port=N] [--distribution=fixed|uniform|normal|exponential]"
+            + " [--latency=ms] [--jitter=ms] [--error-rate=0~1] [--throttle-rate=0~1] [--slow-rate=0~1] [--slow-ms=ms]";
+
     public static void main(String[] args) {
+        Map<String, String> options = parseOptions(args);
+        if (options.containsKey("mock-server")) {
+            runMockServer(options);
+            return;
+        }
 
         System.setProperty("javafx.platform", "desktop");
         Application.launch(HelloApplication.class, args);
     }
-}
\ No newline at end of file
+
+    /**
+     * 以无界面模式运行模拟服务器，直到进程被终止
+     * 例如: --mock-server --port=18080 --distribution=normal --latency=30 --jitter=10 --error-rate=0.05
+     */
+    private static void runMockServer(Map<String, String> options) {
+        MockServerConfig config;
+        try {
+            config = MockServerConfig.fromOptions(options);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(MOCK_SERVER_USAGE);
+            System.exit(2);
+            return;
+        }
+        MockNebulaServer server = new MockNebulaServer(config);
+        try {
+            server.start();
+        } catch (IOException e) {
+            System.err.println("Failed to start mock server: " + e.getMessage());
+            System.exit(1);
+        }
+        System.out.println("Mock Nebula server listening on " + server.getAddress() + " " + server.getConfig());
+
+        CountDownLatch stopped = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            System.out.println("Mock server stopped: " + server.getStats());
+            stopped.countDown();
+        }));
+        try {
+            stopped.await();
+        } catch (InterruptedException ignored) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 解析 --key=value 和 --key value 形式的参数，不带值的参数值为空字符串
+     */
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--")) {
+                continue;
+            }
+            String option = args[i].substring(2);
+            int eq = option.indexOf('=');
+            if (eq >= 0) {
+                options.put(option.substring(0, eq), option.substring(eq + 1));
+            } else if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                options.put(option, args[++i]);
+            } else {
+                options.put(option, "");
+            }
+        }
+        return options;
+    }
+}
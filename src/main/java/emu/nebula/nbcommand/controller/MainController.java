@@ -3,9 +3,21 @@ package emu.nebula.nbcommand.controller;
 import emu.nebula.nbcommand.Launcher;
 import emu.nebula.nbcommand.service.I18nManager;
 import emu.nebula.nbcommand.model.Command;
+import emu.nebula.nbcommand.model.HistoryEntry;
+import emu.nebula.nbcommand.repository.ConfigRepository;
+import emu.nebula.nbcommand.ui.HistoryEntryCell;
+import emu.nebula.nbcommand.ui.HistorySearchDialog;
+import emu.nebula.nbcommand.ui.MockServerDialog;
+import emu.nebula.nbcommand.ui.StressTestDialog;
+import emu.nebula.nbcommand.ui.ServerGroupDialog;
+import emu.nebula.nbcommand.ui.SettingsDialog;
 import emu.nebula.nbcommand.ui.UIController;
+import emu.nebula.nbcommand.ui.UiUpdateScheduler;
 import emu.nebula.nbcommand.viewmodel.MainViewModel;
-import javafx.beans.value.ChangeListener;
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
@@ -13,12 +25,16 @@ import javafx.fxml.Initializable;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
+import javafx.scene.input.Clipboard;
+import javafx.scene.input.ClipboardContent;
 import javafx.scene.layout.VBox;
+import javafx.stage.FileChooser;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
 import java.net.URL;
 import java.util.*;
 
@@ -36,6 +52,20 @@ public class MainController implements Initializable {
     @FXML
     private Menu optionsMenu;
     @FXML
+    private MenuItem settingsMenuItem;
+    @FXML
+    private MenuItem serverGroupsMenuItem;
+    @FXML
+    private MenuItem mockServerMenuItem;
+    @FXML
+    private MenuItem stressTestMenuItem;
+    @FXML
+    private MenuItem historySearchMenuItem;
+    @FXML
+    private MenuItem openResponseMenuItem;
+    @FXML
+    private MenuItem clearSpoolMenuItem;
+    @FXML
     private MenuItem checkUpdateMenuItem;
     @FXML
     private MenuItem aboutMenuItem;
@@ -70,7 +100,9 @@ public class MainController implements Initializable {
     @FXML
     private Label historyLabel;
     @FXML
-    private TextArea historyArea;
+    private ListView<HistoryEntry> historyList;
+    private final MenuItem copyHistoryMenuItem = new MenuItem();
+    private final MenuItem openPagedHistoryMenuItem = new MenuItem();
 
     // Middle Panel
     @FXML
@@ -106,19 +138,31 @@ public class MainController implements Initializable {
     @FXML
     private TextField uidField;
     @FXML
+    private Label targetLabel;
+    @FXML
+    private ComboBox<String> targetComboBox;
+    @FXML
     private Button executeButton;
     @FXML
+    private Button cancelButton;
+    @FXML
     private Label customLabel;
     @FXML
     private TextArea customCommandArea;
     @FXML
     private Button sendCustomButton;
+    @FXML
+    private Button scriptFileButton;
+    @FXML
+    private ProgressBar scriptProgressBar;
 
     // Bottom
     @FXML
     private Label developerLabel;
     @FXML
     private Label versionLabel;
+    @FXML
+    private Label executionStatusLabel;
 
     private final Map<String, ObservableList<Command>> commandsByCategory = new LinkedHashMap<>();
 
@@ -154,10 +198,16 @@ public class MainController implements Initializable {
         savedAuthTokenLabel.textProperty().bind(viewModel.maskedAuthTokenProperty());
         // uid
         uidField.textProperty().bindBidirectional(viewModel.uidProperty());
+        // 执行目标: 第一项为当前服务器，其余为服务器组
+        targetComboBox.getSelectionModel().selectedIndexProperty().addListener((observable, oldValue, newValue) ->
+                viewModel.targetGroupProperty().set(newValue.intValue() > 0 ? targetComboBox.getItems().get(newValue.intValue()) : null));
 
 
         // 设置历史记录监听器，自动滚动到底部
-        setupHistoryAutoScroll();
+        setupHistoryList();
+
+        // 执行状态栏与取消按钮
+        setupExecutionStatus();
 
         // 初始化命令分类列表
         categoryList.setItems(getCategoryList());
@@ -191,6 +241,7 @@ public class MainController implements Initializable {
 
         updateUIText();
         updateCategories();
+        updateTargetOptions();
 
         // 添加到历史记录
         viewModel.addToHistory(i18n.getString("message.app_started"));
@@ -201,20 +252,182 @@ public class MainController implements Initializable {
     }
 
     /**
-     * 设置历史记录自动滚动到底部
+     * 主窗口显示后调用，在后台预加载所有语言的手册数据和命令，并启动暂存命令的后台发送
      */
-    private void setupHistoryAutoScroll() {
-        // 稍后执行滚动操作，确保文本已经更新
-        ChangeListener<String> historyChangeListener = (observable, oldValue, newValue) -> {
-            // 稍后执行滚动操作，确保文本已经更新
-            javafx.application.Platform.runLater(() -> {
-                historyArea.positionCaret(historyArea.getText().length());
-            });
-        };
+    public void onWindowShown() {
+        viewModel.prefetchLocaleData();
+        viewModel.startSpool();
+    }
 
-        // 绑定属性并添加监听器
-        historyArea.textProperty().bind(viewModel.historyProperty());
-        viewModel.historyProperty().addListener(historyChangeListener);
+    /**
+     * 应用退出时调用，按顺序关闭暂存队列和数据库
+     */
+    public void shutdown() {
+        viewModel.shutdown();
+    }
+
+    /**
+     * 设置历史记录列表，新记录加入时自动滚动到底部
+     */
+    private void setupHistoryList() {
+        historyList.setItems(viewModel.getHistoryEntries());
+        historyList.setCellFactory(list -> new HistoryEntryCell());
+        historyList.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
+
+        // 历史记录每帧最多更新一次，滚动在下一帧执行，确保列表已经更新
+        viewModel.getHistoryEntries().addListener((ListChangeListener<HistoryEntry>) change ->
+                UiUpdateScheduler.getInstance().schedule(historyList,
+                        () -> historyList.scrollTo(historyList.getItems().size() - 1)));
+
+        copyHistoryMenuItem.setOnAction(event -> copySelectedHistory());
+        openPagedHistoryMenuItem.setOnAction(event -> viewModel.openPagedOutHistory());
+        openPagedHistoryMenuItem.disableProperty().bind(viewModel.pagedOutHistoryCountProperty().isEqualTo(0));
+        viewModel.pagedOutHistoryCountProperty().addListener((observable, oldValue, newValue) ->
+                openPagedHistoryMenuItem.setText(i18n.getString("history.open_paged", newValue)));
+        historyList.setContextMenu(new ContextMenu(copyHistoryMenuItem, openPagedHistoryMenuItem));
+    }
+
+    /**
+     * 复制选中的历史记录到剪贴板
+     */
+    private void copySelectedHistory() {
+        StringBuilder text = new StringBuilder();
+        for (HistoryEntry entry : historyList.getSelectionModel().getSelectedItems()) {
+            if (!text.isEmpty()) {
+                text.append('\n');
+            }
+            text.append(entry.toDisplayText());
+        }
+        ClipboardContent content = new ClipboardContent();
+        content.putString(text.toString());
+        Clipboard.getSystemClipboard().setContent(content);
+    }
+
+    /**
+     * 设置执行状态显示
+     * 异步命令在后台执行，定时刷新状态栏以反映正在执行的命令
+     */
+    private void setupExecutionStatus() {
+        executionStatusLabel.textProperty().bind(viewModel.executionStatusProperty());
+        cancelButton.disableProperty().bind(viewModel.inFlightCountProperty().isEqualTo(0));
+        scriptProgressBar.progressProperty().bind(viewModel.scriptProgressProperty());
+        scriptProgressBar.visibleProperty().bind(viewModel.scriptRunningProperty());
+        scriptProgressBar.managedProperty().bind(viewModel.scriptRunningProperty());
+        openResponseMenuItem.disableProperty().bind(viewModel.lastResponseFileProperty().isNull());
+
+        Timeline statusRefresh = new Timeline(new KeyFrame(javafx.util.Duration.millis(500), event -> viewModel.refreshExecutionStatus()));
+        statusRefresh.setCycleCount(Animation.INDEFINITE);
+        statusRefresh.play();
+    }
+
+    /**
+     * 显示执行设置对话框
+     */
+    @FXML
+    private void openSettings() {
+        SettingsDialog dialog = new SettingsDialog(viewModel.getConfigRepository(), historyList.getScene().getWindow())
+                .addIntSetting("settings.fan_out_concurrency", ConfigRepository.SETTING_FAN_OUT_CONCURRENCY,
+                        1, 1024, ConfigRepository.DEFAULT_FAN_OUT_CONCURRENCY)
+                .addIntSetting("settings.broadcast_timeout", ConfigRepository.SETTING_BROADCAST_TIMEOUT_SECONDS,
+                        1, 300, ConfigRepository.DEFAULT_BROADCAST_TIMEOUT_SECONDS)
+                .addIntSetting("settings.adaptive_max_concurrency", ConfigRepository.SETTING_ADAPTIVE_MAX_CONCURRENCY,
+                        1, 1024, ConfigRepository.DEFAULT_ADAPTIVE_MAX_CONCURRENCY)
+                .addIntSetting("settings.rate_limit_per_second", ConfigRepository.SETTING_RATE_LIMIT_PER_SECOND,
+                        0, 10000, ConfigRepository.DEFAULT_RATE_LIMIT_PER_SECOND)
+                .addIntSetting("settings.rate_limit_burst", ConfigRepository.SETTING_RATE_LIMIT_BURST,
+                        1, 10000, ConfigRepository.DEFAULT_RATE_LIMIT_BURST)
+                .addBooleanSetting("settings.spool_enabled", ConfigRepository.SETTING_SPOOL_ENABLED,
+                        ConfigRepository.DEFAULT_SPOOL_ENABLED)
+                .addIntSetting("settings.retry_max_attempts", ConfigRepository.SETTING_RETRY_MAX_ATTEMPTS,
+                        1, 10, ConfigRepository.DEFAULT_RETRY_MAX_ATTEMPTS)
+                .addIntSetting("settings.script_concurrency", ConfigRepository.SETTING_SCRIPT_CONCURRENCY,
+                        1, 256, ConfigRepository.DEFAULT_SCRIPT_CONCURRENCY)
+                .addBooleanSetting("settings.script_strict_order", ConfigRepository.SETTING_SCRIPT_STRICT_ORDER,
+                        ConfigRepository.DEFAULT_SCRIPT_STRICT_ORDER)
+                .addIntSetting("settings.history_max_entries", ConfigRepository.SETTING_HISTORY_MAX_ENTRIES,
+                        100, 100000, ConfigRepository.DEFAULT_HISTORY_MAX_ENTRIES)
+                .addIntSetting("settings.response_memory_kb", ConfigRepository.SETTING_RESPONSE_MEMORY_KB,
+                        16, 65536, ConfigRepository.DEFAULT_RESPONSE_MEMORY_KB);
+
+        if (dialog.showAndSave()) {
+            viewModel.applyExecutionSettings();
+        }
+    }
+
+    /**
+     * 显示本地模拟服务器对话框
+     */
+    @FXML
+    private void openMockServer() {
+        new MockServerDialog(viewModel, historyList.getScene().getWindow()).showAndWait();
+    }
+
+    /**
+     * 用系统默认程序打开最近一条被截断的完整响应
+     */
+    @FXML
+    private void openLastResponse() {
+        viewModel.openLastResponseFile();
+    }
+
+    /**
+     * 显示压测对话框
+     */
+    @FXML
+    private void openStressTest() {
+        new StressTestDialog(viewModel, historyList.getScene().getWindow()).showAndWait();
+    }
+
+    /**
+     * 显示命令历史搜索对话框
+     */
+    @FXML
+    private void openHistorySearch() {
+        if (viewModel.getHistoryArchive().isEmpty()) {
+            viewModel.addToHistory(i18n.getString("message.history_search_unavailable"));
+            return;
+        }
+        new HistorySearchDialog(viewModel, historyList.getScene().getWindow()).show();
+    }
+
+    /**
+     * 确认后丢弃所有尚未送达的暂存命令
+     */
+    @FXML
+    private void clearSpooledCommands() {
+        Alert alert = new Alert(Alert.AlertType.CONFIRMATION, i18n.getString("dialog.clear_spool_confirm"),
+                ButtonType.OK, ButtonType.CANCEL);
+        alert.initOwner(historyList.getScene().getWindow());
+        alert.setHeaderText(null);
+        alert.showAndWait()
+                .filter(buttonType -> buttonType == ButtonType.OK)
+                .ifPresent(buttonType -> viewModel.clearSpooledCommands());
+    }
+
+    /**
+     * 显示服务器组管理对话框
+     */
+    @FXML
+    private void openServerGroups() {
+        ServerGroupDialog dialog = new ServerGroupDialog(viewModel.getConfigRepository(), historyList.getScene().getWindow());
+        if (dialog.showAndWait()) {
+            updateTargetOptions();
+        }
+    }
+
+    /**
+     * 更新执行目标列表，尽量保留当前选择
+     */
+    private void updateTargetOptions() {
+        String selectedGroup = viewModel.targetGroupProperty().get();
+
+        List<String> options = new ArrayList<>();
+        options.add(i18n.getString("target.current_server"));
+        options.addAll(viewModel.getServerGroupNames());
+        targetComboBox.setItems(javafx.collections.FXCollections.observableArrayList(options));
+
+        int index = selectedGroup != null ? options.indexOf(selectedGroup) : 0;
+        targetComboBox.getSelectionModel().select(Math.max(index, 0));
     }
 
     /**
@@ -229,7 +442,7 @@ public class MainController implements Initializable {
             Stage dialogStage = new Stage();
             dialogStage.setTitle(i18n.getString("menu.about"));
             dialogStage.initModality(Modality.WINDOW_MODAL);
-            dialogStage.initOwner(historyArea.getScene().getWindow());
+            dialogStage.initOwner(historyList.getScene().getWindow());
 
             Scene scene = new Scene(root);
             dialogStage.setScene(scene);
@@ -285,6 +498,27 @@ public class MainController implements Initializable {
         viewModel.executeCustomCommand(customCommandArea.getText());
     }
 
+    /**
+     * 选择并执行脚本文件，每行一条命令
+     */
+    @FXML
+    private void handleRunScriptFile() {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle(i18n.getString("panel.script_file"));
+        fileChooser.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter(i18n.getString("script.file_filter"), "*.txt", "*.nbs"),
+                new FileChooser.ExtensionFilter("*", "*.*"));
+        File file = fileChooser.showOpenDialog(historyList.getScene().getWindow());
+        if (file != null) {
+            viewModel.executeScriptFile(file.toPath());
+        }
+    }
+
+    @FXML
+    private void handleCancelCommands() {
+        viewModel.cancelRunningCommands();
+    }
+
     /**
      * 切换到中文界面
      */
@@ -328,16 +562,17 @@ public class MainController implements Initializable {
 
         i18n.setLocale(locale);
         updateUIText();
+        updateTargetOptions();
         
-        // 重新加载命令数据
+        // 切换到新语言的命令数据
         commandsByCategory.clear();
         viewModel.loadCommandsByCategory(commandsByCategory);
 
         // 更新分类列表
         updateCategories();
 
-        // 重新加载类型化数据并更新UI控件
-        viewModel.getTypedDataManager().reloadData();
+        // 切换到新语言的类型化数据并更新UI控件，数据已在后台预加载
+        viewModel.getTypedDataManager().loadItemDataBasedOnLanguage();
         uiController.updateTypedDataControls();
     }
 
@@ -360,6 +595,13 @@ public class MainController implements Initializable {
     private void updateUIText() {
         // 菜单
         optionsMenu.setText(i18n.getString("menu.options"));
+        settingsMenuItem.setText(i18n.getString("menu.settings"));
+        serverGroupsMenuItem.setText(i18n.getString("menu.server_groups"));
+        mockServerMenuItem.setText(i18n.getString("menu.mock_server"));
+        stressTestMenuItem.setText(i18n.getString("menu.stress_test"));
+        historySearchMenuItem.setText(i18n.getString("menu.history_search"));
+        openResponseMenuItem.setText(i18n.getString("menu.open_response"));
+        clearSpoolMenuItem.setText(i18n.getString("menu.clear_spool"));
         checkUpdateMenuItem.setText(i18n.getString("menu.check_update"));
         aboutMenuItem.setText(i18n.getString("menu.about"));
         languageMenu.setText(i18n.getString("menu.language"));
@@ -375,6 +617,9 @@ public class MainController implements Initializable {
         // 左侧面板
         categoriesLabel.setText(i18n.getString("panel.categories"));
         historyLabel.setText(i18n.getString("panel.history"));
+        copyHistoryMenuItem.setText(i18n.getString("history.copy"));
+        openPagedHistoryMenuItem.setText(i18n.getString("history.open_paged",
+                viewModel.pagedOutHistoryCountProperty().get()));
 
         // 中侧面板
         commandsLabel.setText(i18n.getString("panel.commands"));
@@ -388,9 +633,12 @@ public class MainController implements Initializable {
         parametersLabel.setText(i18n.getString("panel.parameters"));
         previewLabel.setText(i18n.getString("panel.preview"));
         uidLabel.setText(i18n.getString("panel.uid"));
+        targetLabel.setText(i18n.getString("panel.target"));
         executeButton.setText(i18n.getString("panel.run"));
+        cancelButton.setText(i18n.getString("panel.cancel"));
         customLabel.setText(i18n.getString("panel.custom"));
         sendCustomButton.setText(i18n.getString("panel.send_custom"));
+        scriptFileButton.setText(i18n.getString("panel.script_file"));
         customCommandArea.setPromptText(i18n.getString("panel.custom_prompt"));
 
         // 底部
@@ -0,0 +1,46 @@
+package emu.nebula.nbcommand.model;
+
+import java.nio.file.Path;
+
+/**
+ * 单条命令的执行结果
+ *
+ * @param commandText 实际发送的命令文本(含@uid)
+ * @param statusCode HTTP状态码，没有收到响应时为0
+ * @param message 服务端返回的消息
+ * @param latencyMillis 往返耗时（毫秒）
+ * @param error 发送过程中出现的异常，没有异常时为null
+ * @param spooled 命令未能送达，已暂存等待服务器恢复后发送
+ * @param responseFile 响应过大时保存完整响应的临时文件，message中只有开头部分；没有时为null
+ */
+public record CommandResult(
+        String commandText,
+        int statusCode,
+        String message,
+        long latencyMillis,
+        Exception error,
+        boolean spooled,
+        Path responseFile
+) {
+    public CommandResult(String commandText, int statusCode, String message, long latencyMillis, Exception error) {
+        this(commandText, statusCode, message, latencyMillis, error, false, null);
+    }
+
+    public CommandResult(String commandText, int statusCode, String message, long latencyMillis, Exception error, boolean spooled) {
+        this(commandText, statusCode, message, latencyMillis, error, spooled, null);
+    }
+
+    /**
+     * 标记为已暂存的结果
+     */
+    public CommandResult asSpooled() {
+        return new CommandResult(commandText, statusCode, message, latencyMillis, error, true, responseFile);
+    }
+
+    /**
+     * 命令是否执行成功
+     */
+    public boolean isSuccess() {
+        return error == null && statusCode == 200;
+    }
+}
@@ -0,0 +1,57 @@
+package emu.nebula.nbcommand.model;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 同一条命令发往多个目标（UID或服务器）的汇总结果
+ *
+ * @param commandText 不含@uid的命令文本
+ * @param resultsByTarget 每个目标的执行结果，按输入顺序排列
+ * @param elapsedMillis 整体耗时（毫秒）
+ */
+public record FanOutResult(
+        String commandText,
+        Map<String, CommandResult> resultsByTarget,
+        long elapsedMillis
+) {
+    public int total() {
+        return resultsByTarget.size();
+    }
+
+    public long succeeded() {
+        return resultsByTarget.values().stream().filter(CommandResult::isSuccess).count();
+    }
+
+    public long failed() {
+        return total() - succeeded();
+    }
+
+    public long averageLatencyMillis() {
+        return (long) resultsByTarget.values().stream()
+                .mapToLong(CommandResult::latencyMillis)
+                .average()
+                .orElse(0);
+    }
+
+    /**
+     * 耗时最长的目标
+     * @param limit 最多返回的数量
+     */
+    public List<Map.Entry<String, CommandResult>> slowest(int limit) {
+        return resultsByTarget.entrySet().stream()
+                .sorted(Comparator.comparingLong((Map.Entry<String, CommandResult> e) -> e.getValue().latencyMillis()).reversed())
+                .limit(limit)
+                .toList();
+    }
+
+    /**
+     * 执行失败的目标
+     */
+    public List<Map.Entry<String, CommandResult>> failures() {
+        return resultsByTarget.entrySet().stream()
+                .filter(e -> !e.getValue().isSuccess())
+                .toList();
+    }
+}
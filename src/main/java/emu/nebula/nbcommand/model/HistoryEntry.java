@@ -0,0 +1,67 @@
+package emu.nebula.nbcommand.model;
+
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * 历史记录中的一条记录
+ *
+ * @param timestamp 记录时间
+ * @param command 执行的命令文本(含@uid)，提示信息和批量汇总为null
+ * @param status 记录类型
+ * @param statusCode HTTP状态码，没有响应时为0
+ * @param latencyMillis 往返耗时（毫秒），没有时为0
+ * @param message 显示的消息
+ */
+public record HistoryEntry(
+        Instant timestamp,
+        String command,
+        Status status,
+        int statusCode,
+        long latencyMillis,
+        String message
+) {
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss");
+
+    /**
+     * 记录类型
+     */
+    public enum Status {
+        INFO,    // 提示信息、批量执行汇总
+        SUCCESS, // 命令执行成功
+        FAILURE, // 命令执行失败或发送异常
+        SPOOLED  // 服务器不可达，命令已暂存
+    }
+
+    /**
+     * 创建提示信息记录
+     */
+    public static HistoryEntry info(String message) {
+        return new HistoryEntry(Instant.now(), null, Status.INFO, 0, 0, message);
+    }
+
+    /**
+     * 根据单条命令的执行结果创建记录
+     * @param result 执行结果
+     * @param message 结果的描述
+     */
+    public static HistoryEntry of(CommandResult result, String message) {
+        Status status = result.spooled() ? Status.SPOOLED : result.isSuccess() ? Status.SUCCESS : Status.FAILURE;
+        return new HistoryEntry(Instant.now(), result.commandText(), status,
+                result.statusCode(), result.latencyMillis(), message);
+    }
+
+    /**
+     * 显示和导出用的文本，命令记录第一行为命令、状态码和耗时
+     */
+    public String toDisplayText() {
+        String time = "[" + LocalTime.ofInstant(timestamp, ZoneId.systemDefault()).format(TIME_FORMAT) + "] ";
+        if (command == null) {
+            return time + message;
+        }
+        String outcome = statusCode > 0 ? statusCode + ", " + latencyMillis + "ms" : latencyMillis + "ms";
+        return time + "> " + command + " (" + outcome + ")\n" + message;
+    }
+}
@@ -0,0 +1,41 @@
+package emu.nebula.nbcommand.model;
+
+import java.time.Instant;
+
+/**
+ * 持久化在数据库中的一条命令执行记录
+ *
+ * @param id 记录序号，越大越新，写入前为0
+ * @param executedAt 执行时间
+ * @param serverAddress 目标服务器地址
+ * @param uid 目标UID，可为空
+ * @param commandText 不含@uid的命令文本
+ * @param statusCode HTTP状态码，没有收到响应时为0
+ * @param latencyMillis 往返耗时（毫秒）
+ * @param response 服务端返回的消息或发送异常
+ */
+public record HistoryRecord(
+        long id,
+        Instant executedAt,
+        String serverAddress,
+        String uid,
+        String commandText,
+        int statusCode,
+        long latencyMillis,
+        String response
+) {
+    /**
+     * 根据执行结果创建待写入的记录
+     */
+    public static HistoryRecord of(ServerEndpoint endpoint, String uid, String commandText, CommandResult result) {
+        return new HistoryRecord(0, Instant.now(), endpoint.serverAddress(), uid == null || uid.isEmpty() ? null : uid,
+                commandText, result.statusCode(), result.latencyMillis(), result.message());
+    }
+
+    /**
+     * 命令是否执行成功
+     */
+    public boolean isSuccess() {
+        return statusCode == 200;
+    }
+}
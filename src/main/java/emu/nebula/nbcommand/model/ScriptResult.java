@@ -0,0 +1,31 @@
+package emu.nebula.nbcommand.model;
+
+import java.util.List;
+
+/**
+ * 批量脚本的执行汇总
+ * 脚本可能有上万行，这里只保留计数和少量失败样本，不保存每一行的结果
+ *
+ * @param totalLines 脚本总行数
+ * @param succeeded 执行成功的命令数
+ * @param failed 执行失败的命令数
+ * @param skipped 跳过的空行和注释行数
+ * @param elapsedMillis 整体耗时（毫秒）
+ * @param failureSamples 前若干条失败的描述，格式为"行号: 命令 - 原因"
+ */
+public record ScriptResult(
+        long totalLines,
+        long succeeded,
+        long failed,
+        long skipped,
+        long elapsedMillis,
+        List<String> failureSamples
+) {
+    /**
+     * 每秒执行的命令数
+     */
+    public long commandsPerSecond() {
+        long executed = succeeded + failed;
+        return elapsedMillis == 0 ? executed : executed * 1000 / elapsedMillis;
+    }
+}
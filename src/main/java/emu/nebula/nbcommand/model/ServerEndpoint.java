@@ -0,0 +1,10 @@
+package emu.nebula.nbcommand.model;
+
+/**
+ * 一个Nebula服务器实例的连接信息
+ *
+ * @param serverAddress 服务器地址，如"http://localhost:80"
+ * @param authToken 认证Token
+ */
+public record ServerEndpoint(String serverAddress, String authToken) {
+}
@@ -0,0 +1,12 @@
+package emu.nebula.nbcommand.model;
+
+import java.util.List;
+
+/**
+ * 服务器组，广播命令时会发往组内所有服务器
+ *
+ * @param name 组名
+ * @param servers 组内服务器
+ */
+public record ServerGroup(String name, List<ServerEndpoint> servers) {
+}
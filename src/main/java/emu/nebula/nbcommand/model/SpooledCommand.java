@@ -0,0 +1,29 @@
+package emu.nebula.nbcommand.model;
+
+/**
+ * 暂存在本地、等待服务器恢复后发送的命令
+ *
+ * @param id 暂存队列中的序号，越小越早
+ * @param endpoint 目标服务器
+ * @param uid 目标UID，可为空
+ * @param commandText 不含@uid的命令文本
+ * @param attempts 已尝试发送的次数
+ */
+public record SpooledCommand(
+        long id,
+        ServerEndpoint endpoint,
+        String uid,
+        String commandText,
+        int attempts
+) {
+    /**
+     * 顺序键，同一服务器上同一UID的命令必须按入队顺序发送
+     */
+    public String orderingKey() {
+        return orderingKey(endpoint, uid);
+    }
+
+    public static String orderingKey(ServerEndpoint endpoint, String uid) {
+        return endpoint.serverAddress() + "|" + endpoint.authToken() + "|" + (uid == null ? "" : uid);
+    }
+}
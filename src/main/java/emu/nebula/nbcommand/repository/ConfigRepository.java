@@ -1,9 +1,13 @@
 package emu.nebula.nbcommand.repository;
 
+import emu.nebula.nbcommand.model.ServerGroup;
 import emu.nebula.nbcommand.service.DatabaseManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.List;
+import java.util.Optional;
+
 /**
  * Repository for configuration data.
  * Handles loading and saving of application configuration.
@@ -11,6 +15,30 @@ import org.slf4j.LoggerFactory;
 public class ConfigRepository {
     private static final Logger logger = LoggerFactory.getLogger(ConfigRepository.class);
 
+    // Setting keys and their defaults
+    public static final String SETTING_FAN_OUT_CONCURRENCY = "fan_out_concurrency";
+    public static final int DEFAULT_FAN_OUT_CONCURRENCY = 64;
+    public static final String SETTING_BROADCAST_TIMEOUT_SECONDS = "broadcast_timeout_seconds";
+    public static final int DEFAULT_BROADCAST_TIMEOUT_SECONDS = 10;
+    public static final String SETTING_SCRIPT_CONCURRENCY = "script_concurrency";
+    public static final int DEFAULT_SCRIPT_CONCURRENCY = 8;
+    public static final String SETTING_SCRIPT_STRICT_ORDER = "script_strict_order";
+    public static final boolean DEFAULT_SCRIPT_STRICT_ORDER = false;
+    public static final String SETTING_RETRY_MAX_ATTEMPTS = "retry_max_attempts";
+    public static final int DEFAULT_RETRY_MAX_ATTEMPTS = 3;
+    public static final String SETTING_RATE_LIMIT_PER_SECOND = "rate_limit_per_second";
+    public static final int DEFAULT_RATE_LIMIT_PER_SECOND = 50;
+    public static final String SETTING_RATE_LIMIT_BURST = "rate_limit_burst";
+    public static final int DEFAULT_RATE_LIMIT_BURST = 50;
+    public static final String SETTING_ADAPTIVE_MAX_CONCURRENCY = "adaptive_max_concurrency";
+    public static final int DEFAULT_ADAPTIVE_MAX_CONCURRENCY = 64;
+    public static final String SETTING_SPOOL_ENABLED = "spool_enabled";
+    public static final boolean DEFAULT_SPOOL_ENABLED = true;
+    public static final String SETTING_RESPONSE_MEMORY_KB = "response_memory_kb";
+    public static final int DEFAULT_RESPONSE_MEMORY_KB = 256;
+    public static final String SETTING_HISTORY_MAX_ENTRIES = "history_max_entries";
+    public static final int DEFAULT_HISTORY_MAX_ENTRIES = 1000;
+
     private DatabaseManager databaseManager;
     private String serverAddress;
     private String authToken;
@@ -87,6 +115,101 @@ public class ConfigRepository {
         }
     }
 
+    /**
+     * 读取整数设置
+     * @param key 设置键
+     * @param defaultValue 未设置或无法解析时的默认值
+     */
+    public int getIntSetting(String key, int defaultValue) {
+        if (databaseManager == null) {
+            return defaultValue;
+        }
+
+        String value = databaseManager.loadSetting(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            logger.warn("设置值无法解析为整数: {}={}", key, value);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * 读取布尔设置
+     * @param key 设置键
+     * @param defaultValue 未设置时的默认值
+     */
+    public boolean getBooleanSetting(String key, boolean defaultValue) {
+        if (databaseManager == null) {
+            return defaultValue;
+        }
+
+        String value = databaseManager.loadSetting(key);
+        return value == null ? defaultValue : Boolean.parseBoolean(value.trim());
+    }
+
+    /**
+     * 保存设置
+     */
+    public boolean saveSetting(String key, Object value) {
+        if (databaseManager == null) {
+            logger.warn("数据库不可用，设置未保存: {}", key);
+            return false;
+        }
+        return databaseManager.saveSetting(key, String.valueOf(value));
+    }
+
+    /**
+     * 获取所有服务器组
+     */
+    public List<ServerGroup> getServerGroups() {
+        if (databaseManager == null) {
+            return List.of();
+        }
+        return databaseManager.loadServerGroups();
+    }
+
+    /**
+     * 按名称查找服务器组
+     */
+    public Optional<ServerGroup> findServerGroup(String name) {
+        return getServerGroups().stream()
+                .filter(group -> group.name().equals(name))
+                .findFirst();
+    }
+
+    /**
+     * 保存服务器组
+     */
+    public boolean saveServerGroup(ServerGroup group) {
+        if (databaseManager == null) {
+            logger.warn("数据库不可用，服务器组未保存: {}", group.name());
+            return false;
+        }
+        return databaseManager.saveServerGroup(group);
+    }
+
+    /**
+     * 删除服务器组
+     */
+    public boolean deleteServerGroup(String name) {
+        if (databaseManager == null) {
+            return false;
+        }
+        return databaseManager.deleteServerGroup(name);
+    }
+
+    /**
+     * 获取数据库管理器
+     * @return 数据库管理器，数据库不可用时为空
+     */
+    public Optional<DatabaseManager> getDatabaseManager() {
+        return Optional.ofNullable(databaseManager);
+    }
+
     // Getters
     public String getServerAddress() {
         return serverAddress;
@@ -1,10 +1,21 @@
 package emu.nebula.nbcommand.service;
 
+import emu.nebula.nbcommand.model.HistoryRecord;
+import emu.nebula.nbcommand.model.ServerEndpoint;
+import emu.nebula.nbcommand.model.ServerGroup;
+import emu.nebula.nbcommand.model.SpooledCommand;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.sql.*;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
 
 /**
  * SQLite数据库管理类
@@ -15,8 +26,17 @@ public class DatabaseManager {
     private static final String DB_FILE = "config.db";
     private static final String DB_URL = "jdbc:sqlite:" + DB_FILE;
     
+    // 每个事务最多写入的历史记录数
+    private static final int HISTORY_BATCH_SIZE = 500;
+    // 等待写入的历史记录上限，超出时丢弃新记录
+    private static final int HISTORY_QUEUE_CAPACITY = 50_000;
+
     private static DatabaseManager instance;
     private Connection connection;
+    private final BlockingQueue<HistoryRecord> historyQueue = new LinkedBlockingQueue<>(HISTORY_QUEUE_CAPACITY);
+    private Thread historyWriter;
+    // 关闭后不再接受新的命令历史，也不会再启动写入线程
+    private boolean closed;
     
     private DatabaseManager() {
         initDatabase();
@@ -47,6 +67,14 @@ public class DatabaseManager {
             
             // 创建配置表
             createConfigTable();
+            // 创建设置表
+            createSettingsTable();
+            // 创建服务器组表
+            createServerGroupTables();
+            // 创建命令暂存表
+            createCommandSpoolTable();
+            // 创建命令历史表和全文索引
+            createCommandHistoryTables();
         } catch (SQLException e) {
             logger.error("初始化数据库时出错", e);
         }
@@ -71,10 +99,118 @@ public class DatabaseManager {
         }
     }
 
+    /**
+     * 创建设置表
+     * 以键值对形式保存执行相关的可调参数
+     */
+    private void createSettingsTable() {
+        String sql = "CREATE TABLE IF NOT EXISTS settings (" +
+                "key TEXT PRIMARY KEY," +
+                "value TEXT NOT NULL" +
+                ")";
+
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute(sql);
+            logger.info("设置表已创建或已存在");
+        } catch (SQLException e) {
+            logger.error("创建设置表时出错", e);
+        }
+    }
+
+    /**
+     * 创建服务器组表
+     */
+    private void createServerGroupTables() {
+        String groupSql = "CREATE TABLE IF NOT EXISTS server_group (" +
+                "id INTEGER PRIMARY KEY AUTOINCREMENT," +
+                "name TEXT NOT NULL UNIQUE," +
+                "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP" +
+                ")";
+        String memberSql = "CREATE TABLE IF NOT EXISTS server_group_member (" +
+                "id INTEGER PRIMARY KEY AUTOINCREMENT," +
+                "group_id INTEGER NOT NULL," +
+                "server_address TEXT NOT NULL," +
+                "auth_token TEXT NOT NULL" +
+                ")";
+
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute(groupSql);
+            stmt.execute(memberSql);
+            logger.info("服务器组表已创建或已存在");
+        } catch (SQLException e) {
+            logger.error("创建服务器组表时出错", e);
+        }
+    }
+
+    /**
+     * 创建命令暂存表
+     * 服务器不可达时命令先写入此表，服务器恢复后按id顺序发送，发送成功后才删除
+     */
+    private void createCommandSpoolTable() {
+        String sql = "CREATE TABLE IF NOT EXISTS command_spool (" +
+                "id INTEGER PRIMARY KEY AUTOINCREMENT," +
+                "server_address TEXT NOT NULL," +
+                "auth_token TEXT NOT NULL," +
+                "uid TEXT," +
+                "command_text TEXT NOT NULL," +
+                "attempts INTEGER NOT NULL DEFAULT 0," +
+                "last_error TEXT," +
+                "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP" +
+                ")";
+        // 按服务器加载、按UID分组取前几条时使用
+        String endpointIndexSql = "CREATE INDEX IF NOT EXISTS idx_command_spool_endpoint " +
+                "ON command_spool(server_address, auth_token, uid, id)";
+
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute(sql);
+            stmt.execute(endpointIndexSql);
+            logger.info("命令暂存表已创建或已存在");
+        } catch (SQLException e) {
+            logger.error("创建命令暂存表时出错", e);
+        }
+    }
+
+    /**
+     * 创建命令历史表
+     * 全文索引使用FTS5外部内容表，不重复保存文本，由触发器与历史表保持同步
+     */
+    private void createCommandHistoryTables() {
+        String historySql = "CREATE TABLE IF NOT EXISTS command_history (" +
+                "id INTEGER PRIMARY KEY AUTOINCREMENT," +
+                "executed_at INTEGER NOT NULL," +
+                "server_address TEXT NOT NULL," +
+                "uid TEXT," +
+                "command_text TEXT NOT NULL," +
+                "status_code INTEGER NOT NULL," +
+                "latency_ms INTEGER NOT NULL," +
+                "response TEXT" +
+                ")";
+        String timeIndexSql = "CREATE INDEX IF NOT EXISTS idx_command_history_executed_at ON command_history(executed_at)";
+        String ftsSql = "CREATE VIRTUAL TABLE IF NOT EXISTS command_history_fts USING fts5(" +
+                "command_text, uid, response, content='command_history', content_rowid='id')";
+        String insertTriggerSql = "CREATE TRIGGER IF NOT EXISTS command_history_ai AFTER INSERT ON command_history BEGIN " +
+                "INSERT INTO command_history_fts(rowid, command_text, uid, response) " +
+                "VALUES (new.id, new.command_text, new.uid, new.response); END";
+        String deleteTriggerSql = "CREATE TRIGGER IF NOT EXISTS command_history_ad AFTER DELETE ON command_history BEGIN " +
+                "INSERT INTO command_history_fts(command_history_fts, rowid, command_text, uid, response) " +
+                "VALUES ('delete', old.id, old.command_text, old.uid, old.response); END";
+
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute(historySql);
+            stmt.execute(timeIndexSql);
+            stmt.execute(ftsSql);
+            stmt.execute(insertTriggerSql);
+            stmt.execute(deleteTriggerSql);
+            logger.info("命令历史表已创建或已存在");
+        } catch (SQLException e) {
+            logger.error("创建命令历史表时出错", e);
+        }
+    }
+
     /**
      * 保存配置
      */
-    public boolean saveConfig(String serverAddress, String authToken) {
+    public synchronized boolean saveConfig(String serverAddress, String authToken) {
         String sql = "REPLACE INTO config(id, server_address, auth_token) VALUES(1, ?, ?)";
 
         try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
@@ -93,7 +229,7 @@ public class DatabaseManager {
     /**
      * 删除所有配置
      */
-    private void deleteAllConfig() {
+    private synchronized void deleteAllConfig() {
         String sql = "DELETE FROM config";
         
         try (Statement stmt = connection.createStatement()) {
@@ -106,7 +242,7 @@ public class DatabaseManager {
     /**
      * 加载配置
      */
-    public Config loadConfig() {
+    public synchronized Config loadConfig() {
         String sql = "SELECT server_address, auth_token FROM config ORDER BY created_at DESC LIMIT 1";
         
         try (Statement stmt = connection.createStatement();
@@ -126,10 +262,455 @@ public class DatabaseManager {
         return new Config("http://localhost:80", "");
     }
     
+    /**
+     * 加载单项设置
+     * @param key 设置键
+     * @return 设置值，不存在时返回null
+     */
+    public synchronized String loadSetting(String key) {
+        String sql = "SELECT value FROM settings WHERE key = ?";
+
+        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setString(1, key);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return rs.getString("value");
+                }
+            }
+        } catch (SQLException e) {
+            logger.error("加载设置时出错: {}", key, e);
+        }
+        return null;
+    }
+
+    /**
+     * 保存单项设置
+     * @param key 设置键
+     * @param value 设置值
+     */
+    public synchronized boolean saveSetting(String key, String value) {
+        String sql = "REPLACE INTO settings(key, value) VALUES(?, ?)";
+
+        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setString(1, key);
+            pstmt.setString(2, value);
+            pstmt.executeUpdate();
+            logger.info("设置已保存到数据库, {}={}", key, value);
+            return true;
+        } catch (SQLException e) {
+            logger.error("保存设置时出错: {}", key, e);
+            return false;
+        }
+    }
+
+    /**
+     * 加载所有服务器组
+     * @return 按名称排序的服务器组列表
+     */
+    public synchronized List<ServerGroup> loadServerGroups() {
+        String sql = "SELECT g.name, m.server_address, m.auth_token FROM server_group g " +
+                "LEFT JOIN server_group_member m ON m.group_id = g.id ORDER BY g.name, m.id";
+
+        Map<String, List<ServerEndpoint>> groups = new LinkedHashMap<>();
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                List<ServerEndpoint> servers = groups.computeIfAbsent(rs.getString("name"), k -> new ArrayList<>());
+                String serverAddress = rs.getString("server_address");
+                if (serverAddress != null) {
+                    servers.add(new ServerEndpoint(serverAddress, rs.getString("auth_token")));
+                }
+            }
+        } catch (SQLException e) {
+            logger.error("加载服务器组时出错", e);
+        }
+
+        List<ServerGroup> result = new ArrayList<>();
+        groups.forEach((name, servers) -> result.add(new ServerGroup(name, servers)));
+        return result;
+    }
+
+    /**
+     * 保存服务器组，已存在的同名组会被整体替换
+     */
+    public synchronized boolean saveServerGroup(ServerGroup group) {
+        try {
+            connection.setAutoCommit(false);
+            long groupId;
+            try (PreparedStatement pstmt = connection.prepareStatement("INSERT OR IGNORE INTO server_group(name) VALUES(?)")) {
+                pstmt.setString(1, group.name());
+                pstmt.executeUpdate();
+            }
+            try (PreparedStatement pstmt = connection.prepareStatement("SELECT id FROM server_group WHERE name = ?")) {
+                pstmt.setString(1, group.name());
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    rs.next();
+                    groupId = rs.getLong("id");
+                }
+            }
+            try (PreparedStatement pstmt = connection.prepareStatement("DELETE FROM server_group_member WHERE group_id = ?")) {
+                pstmt.setLong(1, groupId);
+                pstmt.executeUpdate();
+            }
+            try (PreparedStatement pstmt = connection.prepareStatement(
+                    "INSERT INTO server_group_member(group_id, server_address, auth_token) VALUES(?, ?, ?)")) {
+                for (ServerEndpoint server : group.servers()) {
+                    pstmt.setLong(1, groupId);
+                    pstmt.setString(2, server.serverAddress());
+                    pstmt.setString(3, server.authToken());
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+            }
+            connection.commit();
+            logger.info("服务器组已保存: {}, 共 {} 台服务器", group.name(), group.servers().size());
+            return true;
+        } catch (SQLException e) {
+            logger.error("保存服务器组时出错: {}", group.name(), e);
+            rollbackQuietly();
+            return false;
+        } finally {
+            restoreAutoCommit();
+        }
+    }
+
+    /**
+     * 删除服务器组及其成员
+     */
+    public synchronized boolean deleteServerGroup(String name) {
+        try {
+            connection.setAutoCommit(false);
+            try (PreparedStatement pstmt = connection.prepareStatement(
+                    "DELETE FROM server_group_member WHERE group_id IN (SELECT id FROM server_group WHERE name = ?)")) {
+                pstmt.setString(1, name);
+                pstmt.executeUpdate();
+            }
+            try (PreparedStatement pstmt = connection.prepareStatement("DELETE FROM server_group WHERE name = ?")) {
+                pstmt.setString(1, name);
+                pstmt.executeUpdate();
+            }
+            connection.commit();
+            logger.info("服务器组已删除: {}", name);
+            return true;
+        } catch (SQLException e) {
+            logger.error("删除服务器组时出错: {}", name, e);
+            rollbackQuietly();
+            return false;
+        } finally {
+            restoreAutoCommit();
+        }
+    }
+
+    /**
+     * 批量写入暂存命令，在同一个事务中完成
+     * @param commands 待写入的命令，id会被忽略
+     */
+    public synchronized boolean spoolCommands(List<SpooledCommand> commands) {
+        String sql = "INSERT INTO command_spool(server_address, auth_token, uid, command_text) VALUES(?, ?, ?, ?)";
+
+        try {
+            connection.setAutoCommit(false);
+            try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+                for (SpooledCommand command : commands) {
+                    pstmt.setString(1, command.endpoint().serverAddress());
+                    pstmt.setString(2, command.endpoint().authToken());
+                    pstmt.setString(3, command.uid());
+                    pstmt.setString(4, command.commandText());
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+            }
+            connection.commit();
+            return true;
+        } catch (SQLException e) {
+            logger.error("写入暂存命令时出错, 共 {} 条", commands.size(), e);
+            rollbackQuietly();
+            return false;
+        } finally {
+            restoreAutoCommit();
+        }
+    }
+
+    /**
+     * 有暂存命令的服务器
+     */
+    public synchronized List<ServerEndpoint> loadSpooledEndpoints() {
+        String sql = "SELECT DISTINCT server_address, auth_token FROM command_spool";
+
+        List<ServerEndpoint> endpoints = new ArrayList<>();
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                endpoints.add(new ServerEndpoint(rs.getString("server_address"), rs.getString("auth_token")));
+            }
+        } catch (SQLException e) {
+            logger.error("加载暂存命令的服务器时出错", e);
+        }
+        return endpoints;
+    }
+
+    /**
+     * 按入队顺序加载一个服务器的暂存命令，每个UID最多加载limit条
+     * @param endpoint 目标服务器
+     * @param limit 每个UID最多加载的数量
+     */
+    public synchronized List<SpooledCommand> loadSpooledCommands(ServerEndpoint endpoint, int limit) {
+        String sql = "SELECT id, server_address, auth_token, uid, command_text, attempts FROM (" +
+                "SELECT *, ROW_NUMBER() OVER (PARTITION BY uid ORDER BY id) AS position FROM command_spool " +
+                "WHERE server_address = ? AND auth_token = ?" +
+                ") WHERE position <= ? ORDER BY id";
+
+        List<SpooledCommand> commands = new ArrayList<>();
+        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setString(1, endpoint.serverAddress());
+            pstmt.setString(2, endpoint.authToken());
+            pstmt.setInt(3, limit);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    commands.add(new SpooledCommand(rs.getLong("id"),
+                            new ServerEndpoint(rs.getString("server_address"), rs.getString("auth_token")),
+                            rs.getString("uid"), rs.getString("command_text"), rs.getInt("attempts")));
+                }
+            }
+        } catch (SQLException e) {
+            logger.error("加载暂存命令时出错", e);
+        }
+        return commands;
+    }
+
+    /**
+     * 统计每个顺序键下的暂存命令数量
+     * @return 顺序键 -> 数量
+     */
+    public synchronized Map<String, Integer> countSpooledCommands() {
+        String sql = "SELECT server_address, auth_token, uid, COUNT(*) AS total FROM command_spool " +
+                "GROUP BY server_address, auth_token, uid";
+
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                ServerEndpoint endpoint = new ServerEndpoint(rs.getString("server_address"), rs.getString("auth_token"));
+                counts.put(SpooledCommand.orderingKey(endpoint, rs.getString("uid")), rs.getInt("total"));
+            }
+        } catch (SQLException e) {
+            logger.error("统计暂存命令时出错", e);
+        }
+        return counts;
+    }
+
+    /**
+     * 删除已经发送的暂存命令
+     * @return 是否删除了记录，记录已被清空或出错时返回false
+     */
+    public synchronized boolean deleteSpooledCommand(long id) {
+        try (PreparedStatement pstmt = connection.prepareStatement("DELETE FROM command_spool WHERE id = ?")) {
+            pstmt.setLong(1, id);
+            return pstmt.executeUpdate() > 0;
+        } catch (SQLException e) {
+            logger.error("删除暂存命令时出错: {}", id, e);
+            return false;
+        }
+    }
+
+    /**
+     * 记录一次失败的发送尝试
+     */
+    public synchronized void markSpoolAttempt(long id, String error) {
+        try (PreparedStatement pstmt = connection.prepareStatement(
+                "UPDATE command_spool SET attempts = attempts + 1, last_error = ? WHERE id = ?")) {
+            pstmt.setString(1, error);
+            pstmt.setLong(2, id);
+            pstmt.executeUpdate();
+        } catch (SQLException e) {
+            logger.error("更新暂存命令时出错: {}", id, e);
+        }
+    }
+
+    /**
+     * 清空暂存命令
+     * @return 删除的数量
+     */
+    public synchronized int clearSpooledCommands() {
+        try (Statement stmt = connection.createStatement()) {
+            int deleted = stmt.executeUpdate("DELETE FROM command_spool");
+            logger.info("暂存命令已清空, 共 {} 条", deleted);
+            return deleted;
+        } catch (SQLException e) {
+            logger.error("清空暂存命令时出错", e);
+            return 0;
+        }
+    }
+
+    /**
+     * 异步写入一条命令历史，不阻塞调用线程
+     * 记录由后台线程攒批后在一个事务中写入，队列已满或数据库已关闭时丢弃
+     */
+    public void appendHistory(HistoryRecord record) {
+        synchronized (historyQueue) {
+            if (closed) {
+                logger.warn("数据库已关闭, 丢弃命令历史: {}", record.commandText());
+                return;
+            }
+            if (!historyQueue.offer(record)) {
+                logger.warn("命令历史写入队列已满, 丢弃记录: {}", record.commandText());
+                return;
+            }
+            if (historyWriter == null) {
+                historyWriter = Thread.ofVirtual().name("history-writer").start(this::runHistoryWriter);
+            }
+        }
+    }
+
+    private void runHistoryWriter() {
+        List<HistoryRecord> batch = new ArrayList<>(HISTORY_BATCH_SIZE);
+        try {
+            while (true) {
+                batch.add(historyQueue.take());
+                historyQueue.drainTo(batch, HISTORY_BATCH_SIZE - 1);
+                insertHistory(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            // 关闭时退出，剩余的记录由close写入
+        }
+    }
+
+    /**
+     * 在一个事务中写入一批命令历史
+     */
+    private synchronized void insertHistory(List<HistoryRecord> records) {
+        String sql = "INSERT INTO command_history(executed_at, server_address, uid, command_text, status_code, latency_ms, response) " +
+                "VALUES(?, ?, ?, ?, ?, ?, ?)";
+
+        try {
+            connection.setAutoCommit(false);
+            try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+                for (HistoryRecord record : records) {
+                    pstmt.setLong(1, record.executedAt().toEpochMilli());
+                    pstmt.setString(2, record.serverAddress());
+                    pstmt.setString(3, record.uid());
+                    pstmt.setString(4, record.commandText());
+                    pstmt.setInt(5, record.statusCode());
+                    pstmt.setLong(6, record.latencyMillis());
+                    pstmt.setString(7, record.response());
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            logger.error("写入命令历史时出错, 共 {} 条", records.size(), e);
+            rollbackQuietly();
+        } finally {
+            restoreAutoCommit();
+        }
+    }
+
+    /**
+     * 按从新到旧的顺序分页查询命令历史
+     * @param matchQuery FTS5查询表达式，为null时不按内容过滤
+     * @param since 只查询此时间之后的记录，为null时不限制
+     * @param beforeId 只查询序号小于此值的记录，用于翻页，第一页传Long.MAX_VALUE
+     * @param limit 每页数量
+     */
+    public synchronized List<HistoryRecord> searchHistory(String matchQuery, Instant since, long beforeId, int limit) {
+        // 时间条件先通过索引换算为序号下限，全文索引按序号倒序扫描，取满一页即停止
+        long minId = 0;
+        if (since != null) {
+            try (PreparedStatement pstmt = connection.prepareStatement(
+                    "SELECT MIN(id) AS min_id FROM command_history WHERE executed_at >= ?")) {
+                pstmt.setLong(1, since.toEpochMilli());
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    rs.next();
+                    minId = rs.getLong("min_id");
+                    if (rs.wasNull()) {
+                        return List.of();
+                    }
+                }
+            } catch (SQLException e) {
+                logger.error("查询命令历史时出错", e);
+                return List.of();
+            }
+        }
+
+        String columns = "h.id, h.executed_at, h.server_address, h.uid, h.command_text, h.status_code, h.latency_ms, h.response";
+        String sql = matchQuery == null
+                ? "SELECT " + columns + " FROM command_history h WHERE h.id < ? AND h.id >= ? ORDER BY h.id DESC LIMIT ?"
+                : "SELECT " + columns + " FROM command_history_fts f JOIN command_history h ON h.id = f.rowid " +
+                "WHERE command_history_fts MATCH ? AND f.rowid < ? AND f.rowid >= ? ORDER BY f.rowid DESC LIMIT ?";
+
+        List<HistoryRecord> records = new ArrayList<>();
+        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            int index = 1;
+            if (matchQuery != null) {
+                pstmt.setString(index++, matchQuery);
+            }
+            pstmt.setLong(index++, beforeId);
+            pstmt.setLong(index++, minId);
+            pstmt.setInt(index, limit);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    records.add(new HistoryRecord(rs.getLong("id"), Instant.ofEpochMilli(rs.getLong("executed_at")),
+                            rs.getString("server_address"), rs.getString("uid"), rs.getString("command_text"),
+                            rs.getInt("status_code"), rs.getLong("latency_ms"), rs.getString("response")));
+                }
+            }
+        } catch (SQLException e) {
+            logger.error("查询命令历史时出错: {}", matchQuery, e);
+        }
+        return records;
+    }
+
+    private void rollbackQuietly() {
+        try {
+            connection.rollback();
+        } catch (SQLException e) {
+            logger.error("回滚事务时出错", e);
+        }
+    }
+
+    private void restoreAutoCommit() {
+        try {
+            connection.setAutoCommit(true);
+        } catch (SQLException e) {
+            logger.error("恢复自动提交时出错", e);
+        }
+    }
+
     /**
      * 关闭数据库连接
+     * 关闭前写入所有还在队列中的命令历史，之后追加的命令历史会被丢弃；
+     * 暂存队列等仍会写入数据库的组件需要先关闭，可重复调用
      */
     public void close() {
+        synchronized (historyQueue) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (historyWriter != null) {
+                historyWriter.interrupt();
+                try {
+                    historyWriter.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                historyWriter = null;
+            }
+        }
+        List<HistoryRecord> remaining = new ArrayList<>();
+        historyQueue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            insertHistory(remaining);
+        }
+        closeConnection();
+    }
+
+    /**
+     * 与其他数据库操作互斥，不会在其他线程的事务进行到一半时关闭连接
+     */
+    private synchronized void closeConnection() {
         try {
             if (connection != null && !connection.isClosed()) {
                 connection.close();
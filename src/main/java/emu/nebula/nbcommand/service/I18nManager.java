@@ -1,13 +1,21 @@
 package emu.nebula.nbcommand.service;
 
 import java.text.MessageFormat;
+import java.util.List;
 import java.util.Locale;
 import java.util.ResourceBundle;
+import java.util.function.Supplier;
 
 public class I18nManager {
+    // 提供了界面文本和手册数据的语言
+    public static final List<Locale> SUPPORTED_LOCALES = List.of(
+            Locale.of("en", "US"), Locale.of("zh", "CN"), Locale.of("ja", "JP"), Locale.of("ko", "KR"));
+
     private static I18nManager instance;
-    private ResourceBundle bundle;
-    private Locale currentLocale;
+    private volatile ResourceBundle bundle;
+    private volatile Locale currentLocale;
+    // 后台线程为其他语言预先构建数据时临时使用的语言包，不影响界面当前语言
+    private final ThreadLocal<ResourceBundle> threadBundle = new ThreadLocal<>();
 
     private I18nManager() {
         setLocale(Locale.getDefault());
@@ -21,18 +29,45 @@ public class I18nManager {
     }
 
     public void setLocale(Locale locale) {
+        this.bundle = loadBundle(locale);
         this.currentLocale = locale;
+    }
+
+    private static ResourceBundle loadBundle(Locale locale) {
         // 尝试加载特定语言包，如果不存在则使用默认的
         try {
-            this.bundle = ResourceBundle.getBundle("lang/messages", locale);
+            return ResourceBundle.getBundle("lang/messages", locale);
         } catch (Exception e) {
-            this.bundle = ResourceBundle.getBundle("lang/messages", Locale.ENGLISH);
+            return ResourceBundle.getBundle("lang/messages", Locale.ENGLISH);
+        }
+    }
+
+    /**
+     * 在当前线程上以指定语言执行操作，期间getString返回该语言的文本
+     * 用于在后台构建其他语言的数据，界面当前语言不变
+     */
+    public <T> T callWithLocale(Locale locale, Supplier<T> action) {
+        ResourceBundle previous = threadBundle.get();
+        threadBundle.set(loadBundle(locale));
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                threadBundle.remove();
+            } else {
+                threadBundle.set(previous);
+            }
         }
     }
 
+    private ResourceBundle activeBundle() {
+        ResourceBundle override = threadBundle.get();
+        return override != null ? override : bundle;
+    }
+
     public String getString(String key) {
         try {
-            return bundle.getString(key);
+            return activeBundle().getString(key);
         } catch (Exception e) {
             return "[" + key + "]";
         }
@@ -40,7 +75,7 @@ public class I18nManager {
 
     public String getString(String key, Object... args) {
         try {
-            String pattern = bundle.getString(key);
+            String pattern = activeBundle().getString(key);
             return MessageFormat.format(pattern, args);
         } catch (Exception e) {
             return "[" + key + "]";
@@ -72,15 +107,19 @@ public class I18nManager {
      * @return 语言代码，例如 "zh_CN" 或 "en_US"
      */
     public static String getLanguageCode() {
-        I18nManager i18n = I18nManager.getInstance();
-        if (i18n.isChinese()) {
-            return "zh_CN";
-        } else if (i18n.isJapanese()) {
-            return "ja_JP";
-        } else if (i18n.isKorean()) {
-            return "ko_KR";
-        } else {
-            return "en_US";
-        }
+        return getLanguageCode(I18nManager.getInstance().getCurrentLocale());
+    }
+
+    /**
+     * 获取指定语言对应的语言代码，不支持的语言使用英文
+     * @return 语言代码，例如 "zh_CN" 或 "en_US"
+     */
+    public static String getLanguageCode(Locale locale) {
+        return switch (locale.getLanguage()) {
+            case "zh" -> "zh_CN";
+            case "ja" -> "ja_JP";
+            case "ko" -> "ko_KR";
+            default -> "en_US";
+        };
     }
 }
\ No newline at end of file
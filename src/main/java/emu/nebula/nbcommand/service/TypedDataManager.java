@@ -1,34 +1,49 @@
 package emu.nebula.nbcommand.service;
 
-import emu.nebula.nbcommand.model.TypedData;
+import emu.nebula.nbcommand.service.handbook.HandbookCodec;
+import emu.nebula.nbcommand.service.handbook.HandbookDataset;
+import emu.nebula.nbcommand.service.handbook.HandbookIndex;
+import emu.nebula.nbcommand.service.handbook.HandbookStore;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.io.InputStream;
-import java.util.HashMap;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
-
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * 类型化数据管理器
  * 用于管理和过滤带类型的数据，如物品、角色等
+ * 各语言的数据集分别缓存，在第一次访问时才解析，也可以在窗口显示后通过prefetchAsync在后台预加载所有语言
  */
 public class TypedDataManager {
     private static final Logger logger = LoggerFactory.getLogger(TypedDataManager.class);
-    
-    // 存储所有类型化数据的映射
-    // 键为数据标识符(如"item id")，值为按类型分组的数据列表
-    private final Map<String, Map<String, ObservableList<TypedData>>> typedDataMaps = new HashMap<>();
-    
-    // 记录上次加载的语言
-    private Locale lastLoadedLocale = null;
-    
+
+    /**
+     * 某一语言下已加载的数据集，各语言分别缓存，切换语言时只替换当前使用的快照
+     */
+    private record LocaleData(String languageCode, Map<String, HandbookStore> stores) {
+    }
+
+    // 语言代码 -> 该语言的数据
+    private final Map<String, LocaleData> localeCache = new ConcurrentHashMap<>();
+    // 数据标识符 -> 覆盖所有语言的搜索索引，用任一语言的名称都能搜到条目
+    private final Map<String, HandbookIndex> searchIndexes = new ConcurrentHashMap<>();
+    // 当前语言的数据，为null时表示尚未选择语言
+    private volatile LocaleData localeData;
+
     /**
      * 加载物品数据
      */
@@ -37,138 +52,177 @@ public class TypedDataManager {
     }
 
     /**
-     * 根据当前语言加载物品数据
+     * 根据当前语言切换物品数据
+     * 只切换到该语言的缓存，数据集在第一次访问或预加载时才解析
      */
     public void loadItemDataBasedOnLanguage() {
-        // 获取当前语言
-        Locale currentLocale = I18nManager.getInstance().getCurrentLocale();
-        
-        // 如果语言未改变，则不重新加载
-        if (lastLoadedLocale != null && lastLoadedLocale.equals(currentLocale)) {
-            return;
-        }
-        
-        // 清除现有数据
-        typedDataMaps.clear();
-
-        try {
-            String languageCode = I18nManager.getLanguageCode();
-            
-            // 加载物品数据
-            loadTypedDataFromJson("/handbook/" + languageCode + "/Items.json", "items", "items", "title", "type");
-            // 加载角色数据
-            loadTypedDataFromJson("/handbook/" + languageCode + "/Characters.json", "characters", "characters", "name", "element");
-            // 加载秘纹数据
-            loadTypedDataFromJson("/handbook/" + languageCode + "/Discs.json", "discs", "discs", "name", "element");
-            // 加载秘纹音符数据
-            loadTypedDataFromJson("/handbook/" + languageCode + "/SubNoteSkills.json", "subNoteSkills", "subNoteSkills", "name", "element");
-            // 加载角色潜能数据
-            loadTypedDataFromJson("/handbook/" + languageCode + "/Potentials.json", "potentials", "potentials", "name", "element");
-
-            // 更新最后加载的语言
-            lastLoadedLocale = currentLocale;
-            
-            logger.info("已加载 {} 语言的数据", languageCode);
-        } catch (Exception e) {
-            logger.error("加载手册数据时出错", e);
-        }
+        localeData = localeData(I18nManager.getLanguageCode());
     }
-    
+
     /**
      * 强制重新加载当前语言的数据
      */
     public void reloadData() {
-        // 清除语言标记，强制重新加载
-        lastLoadedLocale = null;
+        // 丢弃当前语言的缓存，强制重新解析；索引引用了旧的存储，一并重建
+        localeCache.remove(I18nManager.getLanguageCode());
+        searchIndexes.clear();
         loadItemDataBasedOnLanguage();
     }
-    
 
-    
     /**
-     * 从JSON文件加载类型化数据的通用方法
-     * 
-     * @param resourcePath JSON资源路径
-     * @param arrayFieldName JSON数组字段名
-     * @param dataIdentifier 数据标识符 - 与命令执行框显示的参数一致
-     * @param nameFieldName 名称字段名 - 字符(多种语言 对应游戏显示内容)
-     * @param typeFieldName 类型字段名 - 过滤器用
+     * 在后台并行解析指定语言下所有尚未加载的数据集，再构建跨语言的搜索索引，之后切换到这些语言无需再解析
+     * 应在窗口显示之后调用，避免占用启动时间
+     * @param locales 需要预加载的语言，排在前面的先提交
      */
-    private void loadTypedDataFromJson(String resourcePath, String arrayFieldName,
-                                       String dataIdentifier, String nameFieldName, String typeFieldName) {
-        try {
-            ObjectMapper mapper = new ObjectMapper();
-            
-            try (InputStream stream = getClass().getResourceAsStream(resourcePath)) {
-                if (stream != null) {
-                    JsonNode root = mapper.readTree(stream);
-                    JsonNode dataArray = root.get(arrayFieldName);
-                    
-                    // 创建不同类型的列表
-                    Map<String, ObservableList<TypedData>> typedLists = new HashMap<>();
-                    typedLists.put("all", FXCollections.observableArrayList());
-                    
-                    if (dataArray != null && dataArray.isArray()) {
-                        for (JsonNode node : dataArray) {
-                            String id = String.valueOf(node.get("id").asInt());
-                            String name = node.get(nameFieldName).asText();
-                            String type = node.has(typeFieldName) ? node.get(typeFieldName).asText() : "Unknown";
-                            
-                            TypedData data = new TypedData(id, name, type);
-                            
-                            // 添加到主列表
-                            typedLists.get("all").add(data);
-                            
-                            // 添加到类型列表
-                            if (!typedLists.containsKey(type)) {
-                                typedLists.put(type, FXCollections.observableArrayList());
-                            }
-                            typedLists.get(type).add(data);
-                        }
+    public void prefetchAsync(Collection<Locale> locales) {
+        Thread.ofVirtual().name("handbook-prefetch").start(() -> {
+            long start = System.nanoTime();
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (Locale locale : locales) {
+                    LocaleData data = localeData(I18nManager.getLanguageCode(locale));
+                    for (HandbookDataset source : HandbookDataset.values()) {
+                        executor.submit(() -> store(data, source));
                     }
-                    
-                    typedDataMaps.put(dataIdentifier, typedLists);
                 }
             }
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (HandbookDataset source : HandbookDataset.values()) {
+                    executor.submit(() -> searchIndex(source));
+                }
+            }
+            logger.info("已预加载 {} 种语言的手册数据，耗时 {}ms", locales.size(), (System.nanoTime() - start) / 1_000_000);
+        });
+    }
+
+    private LocaleData localeData(String languageCode) {
+        return localeCache.computeIfAbsent(languageCode, code -> new LocaleData(code, new ConcurrentHashMap<>()));
+    }
+
+    private LocaleData currentLocaleData() {
+        LocaleData data = localeData;
+        if (data == null) {
+            loadItemDataBasedOnLanguage();
+            data = localeData;
+        }
+        return data;
+    }
+
+    /**
+     * 获取当前语言下的数据集，尚未加载时在调用线程上解析
+     * 同一数据集同时只会解析一次，其他线程等待解析完成
+     * @return 数据集的存储，数据标识符不是手册数据时返回null
+     */
+    private HandbookStore store(String dataIdentifier) {
+        HandbookDataset source = HandbookDataset.fromIdentifier(dataIdentifier);
+        return source == null ? null : store(currentLocaleData(), source);
+    }
+
+    private HandbookStore store(LocaleData data, HandbookDataset source) {
+        return data.stores().computeIfAbsent(source.getDataIdentifier(), identifier -> loadStore(data.languageCode(), source));
+    }
+
+    /**
+     * 获取数据集覆盖所有语言的搜索索引，尚未构建时加载所有语言的数据集并在调用线程上构建
+     */
+    private HandbookIndex searchIndex(HandbookDataset source) {
+        return searchIndexes.computeIfAbsent(source.getDataIdentifier(), identifier -> {
+            List<HandbookStore> stores = new ArrayList<>();
+            for (Locale locale : I18nManager.SUPPORTED_LOCALES) {
+                stores.add(store(localeData(I18nManager.getLanguageCode(locale)), source));
+            }
+            return HandbookIndex.build(stores);
+        });
+    }
+
+    /**
+     * 加载一个数据集
+     * 优先读取构建时编译的二进制文件，缺失或损坏时回退到解析JSON；都失败时返回空数据集，避免每次访问都重复解析
+     */
+    private HandbookStore loadStore(String languageCode, HandbookDataset source) {
+        HandbookStore store = loadTypedDataFromBinary(source.binaryResource(languageCode));
+        if (store == null) {
+            store = loadTypedDataFromJson(source.jsonResource(languageCode), source);
+        }
+        return store;
+    }
+
+    /**
+     * 读取构建时编译的二进制手册数据
+     * @return 条目存储，文件不存在或无法读取时返回null
+     */
+    private HandbookStore loadTypedDataFromBinary(String resourcePath) {
+        try (InputStream stream = getClass().getResourceAsStream(resourcePath)) {
+            if (stream == null) {
+                return null;
+            }
+            HandbookStore store = HandbookCodec.read(ByteBuffer.wrap(stream.readAllBytes()));
+            logger.debug("已加载数据: resourcePath={}, count={}", resourcePath, store.size());
+            return store;
+        } catch (IOException e) {
+            logger.warn("读取二进制手册数据失败，改为解析JSON: resourcePath={}", resourcePath, e);
+            return null;
+        }
+    }
+
+    /**
+     * 从JSON文件加载类型化数据
+     *
+     * @param resourcePath JSON资源路径
+     * @param source 数据来源
+     * @return 条目存储，文件缺失或解析失败时为空
+     */
+    private HandbookStore loadTypedDataFromJson(String resourcePath, HandbookDataset source) {
+        try (InputStream stream = getClass().getResourceAsStream(resourcePath)) {
+            if (stream != null) {
+                HandbookStore store = HandbookCodec.readJson(stream, source);
+                logger.debug("已加载数据: resourcePath={}, count={}", resourcePath, store.size());
+                return store;
+            }
         } catch (Exception e) {
-            logger.error("加载数据时出错: resourcePath={}, arrayFieldName={}, dataIdentifier={}", 
-                         resourcePath, arrayFieldName, dataIdentifier, e);
+            logger.error("加载数据时出错: resourcePath={}, arrayFieldName={}, dataIdentifier={}",
+                         resourcePath, source.getArrayFieldName(), source.getDataIdentifier(), e);
         }
+        return HandbookStore.empty();
     }
-    
+
     /**
      * 获取指定数据标识符的所有类型
      * @param dataIdentifier 数据标识符，如"item id"
-     * @return 类型集合
+     * @return 类型集合，"all"在最前
      */
     public Set<String> getTypes(String dataIdentifier) {
-        if (typedDataMaps.containsKey(dataIdentifier)) {
-            return typedDataMaps.get(dataIdentifier).keySet();
-        }
-        return Set.of();
+        HandbookStore store = store(dataIdentifier);
+        return store == null ? Set.of() : store.getTypes();
     }
     
     /**
      * 获取指定数据标识符和类型的数据显示列表
      * @param dataIdentifier 数据标识符，如"item id"
      * @param type 类型，如"Res"，"all"表示所有类型
-     * @return 数据显示列表
+     * @return 数据显示列表，只读且在同一数据集和类型的调用之间共用
      */
     public ObservableList<String> getDataList(String dataIdentifier, String type) {
-        ObservableList<String> result = FXCollections.observableArrayList();
-        
-        if (typedDataMaps.containsKey(dataIdentifier)) {
-            Map<String, ObservableList<TypedData>> typeMap = typedDataMaps.get(dataIdentifier);
-            if (typeMap.containsKey(type)) {
-                for (TypedData data : typeMap.get(type)) {
-                    result.add(data.toString());
-                }
-            }
-        }
-        
-        return result;
+        HandbookStore store = store(dataIdentifier);
+        return store == null ? FXCollections.emptyObservableList() : store.getDisplayList(type);
     }
     
+    /**
+     * 在指定数据中模糊搜索条目，支持ID、任一语言的名称、拼音首字母、罗马音和韩文初声，结果以当前语言显示
+     * 索引尚未构建时会加载所有语言的数据集，不要在JavaFX应用线程上调用
+     * @param dataIdentifier 数据标识符，如"item id"
+     * @param type 类型，"all"表示所有类型
+     * @param query 查询内容
+     * @param limit 最多返回的数量
+     * @return 匹配条目的显示字符串，按匹配程度从高到低排序
+     */
+    public List<String> search(String dataIdentifier, String type, String query, int limit) {
+        HandbookDataset source = HandbookDataset.fromIdentifier(dataIdentifier);
+        if (source == null) {
+            return List.of();
+        }
+        return searchIndex(source).search(store(currentLocaleData(), source), query, type, limit);
+    }
+
     /**
      * 根据显示字符串获取原始ID
      * @param displayString 显示字符串，如"10001 - 物品名称"
@@ -183,9 +237,14 @@ public class TypedDataManager {
     
     /**
      * 获取所有数据
-     * @return 类型化数据映射
+     * 会加载当前语言下所有尚未加载的数据集
+     * @return 数据标识符 -> 条目存储，存储不可修改，可以在任意线程读取
      */
-    public Map<String, Map<String, ObservableList<TypedData>>> getAllData() {
-        return typedDataMaps;
+    public Map<String, HandbookStore> getAllData() {
+        Map<String, HandbookStore> allData = new LinkedHashMap<>();
+        for (HandbookDataset source : HandbookDataset.values()) {
+            allData.put(source.getDataIdentifier(), store(currentLocaleData(), source));
+        }
+        return allData;
     }
 }
\ No newline at end of file
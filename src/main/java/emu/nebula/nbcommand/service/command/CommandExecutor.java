@@ -1,9 +1,20 @@
 package emu.nebula.nbcommand.service.command;
 
 import emu.nebula.nbcommand.model.Command;
-import emu.nebula.nbcommand.model.ServerRspData;
-import emu.nebula.nbcommand.model.command.Syntax;
+import emu.nebula.nbcommand.model.CommandResult;
+import emu.nebula.nbcommand.model.FanOutResult;
+import emu.nebula.nbcommand.model.ScriptResult;
+import emu.nebula.nbcommand.model.ServerEndpoint;
+import emu.nebula.nbcommand.model.ServerGroup;
 import emu.nebula.nbcommand.service.command.MultiSelectDataHelper;
+import emu.nebula.nbcommand.service.command.transport.AdaptiveConcurrencyLimiter;
+import emu.nebula.nbcommand.service.command.transport.CircuitOpenException;
+import emu.nebula.nbcommand.service.command.transport.CommandCodec;
+import emu.nebula.nbcommand.service.command.transport.CommandTransport;
+import emu.nebula.nbcommand.service.command.transport.RateLimiter;
+import emu.nebula.nbcommand.service.command.transport.ResilientSender;
+import emu.nebula.nbcommand.service.command.transport.ResponseBody;
+import emu.nebula.nbcommand.service.history.HistoryArchive;
 import emu.nebula.nbcommand.ui.MultiSelectContainerManager;
 import emu.nebula.nbcommand.ui.MultiSelectWithCountContainerManager;
 import javafx.scene.control.ComboBox;
@@ -12,36 +23,160 @@ import javafx.scene.control.TextField;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.ConnectException;
 import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
+import java.net.http.HttpConnectTimeoutException;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Duration;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.function.Consumer;
+import java.util.stream.Stream;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 
 public class CommandExecutor {
     private static final Logger logger = LoggerFactory.getLogger(CommandExecutor.class);
+    // 写入历史记录的单条消息最多保留的字符数，更长的响应只能从临时文件查看
+    private static final int MAX_MESSAGE_CHARS = 16 * 1024;
 
-    private String serverAddress;
-    private String authToken;
+    private volatile String serverAddress;
+    private volatile String authToken;
     private Map<String, MultiSelectContainerManager> multiSelectManagers;
     private Map<String, MultiSelectWithCountContainerManager> multiSelectWithCountManagers;
+    // 长期存活的传输层，只在配置更新时重建
+    private volatile CommandTransport transport;
+    private volatile int responseMemoryLimit = CommandTransport.DEFAULT_RESPONSE_MEMORY_LIMIT;
+    // 按服务器和Token限流，超出速率的请求排队等待
+    private final RateLimiter rateLimiter = new RateLimiter(50, 50);
+    // 根据往返耗时自动调整每台服务器的并发上限
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter = new AdaptiveConcurrencyLimiter(64);
+    // 重试与熔断，熔断器状态跨传输层重建保留
+    private final ResilientSender resilientSender = new ResilientSender(rateLimiter, concurrencyLimiter);
+    // 异步命令执行器，每条命令一个虚拟线程
+    private final ExecutorService asyncExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    // 正在执行的异步命令
+    private final Set<CompletableFuture<?>> inFlightCommands = ConcurrentHashMap.newKeySet();
+    // 批量执行时同时提交的最大命令数，实际发往服务器的并发数由自适应并发限制器决定
+    private volatile int fanOutConcurrency = 64;
+    // 广播时每台服务器的超时时间
+    private volatile Duration broadcastTimeout = Duration.ofSeconds(10);
+    // 脚本执行的并发数和顺序保证
+    private volatile int scriptConcurrency = 8;
+    private volatile ScriptRunner.Ordering scriptOrdering = ScriptRunner.Ordering.PER_UID;
+    // 离线暂存队列，为null时不暂存
+    private volatile CommandSpool spool;
+    // 持久化的命令历史，为null时不记录
+    private volatile HistoryArchive historyArchive;
 
     public CommandExecutor(String serverAddress, String authToken) {
         this.serverAddress = serverAddress;
         this.authToken = authToken;
+        this.transport = new CommandTransport();
     }
 
     /**
      * 更新配置
+     * 同时重建传输层，新请求使用新的传输层；旧传输层等正在进行的请求（含重试）全部结束后才关闭
      */
     public void updateConfiguration(String serverAddress, String authToken) {
         this.serverAddress = serverAddress;
         this.authToken = authToken;
+
+        CommandTransport oldTransport = this.transport;
+        CommandTransport newTransport = new CommandTransport();
+        newTransport.setResponseMemoryLimit(responseMemoryLimit);
+        this.transport = newTransport;
+        oldTransport.retire();
+    }
+
+    /**
+     * 租用当前的传输层，用完必须调用release
+     * 读取到的传输层恰好被退役时改用新的
+     */
+    private CommandTransport acquireTransport() {
+        while (true) {
+            CommandTransport current = transport;
+            if (current.tryRetain()) {
+                return current;
+            }
+        }
+    }
+
+    /**
+     * 获取传输层连接池统计
+     */
+    public CommandTransport.Stats getTransportStats() {
+        return transport.getStats();
+    }
+
+    /**
+     * 获取重试与熔断统计
+     */
+    public ResilientSender.Stats getResilienceStats() {
+        return resilientSender.getStats();
+    }
+
+    /**
+     * 获取限流排队统计
+     */
+    public RateLimiter.Stats getRateLimiterStats() {
+        return rateLimiter.getStats();
+    }
+
+    /**
+     * 获取各服务器当前的自适应并发上限
+     */
+    public List<AdaptiveConcurrencyLimiter.Stats> getConcurrencyStats() {
+        return concurrencyLimiter.getStats();
+    }
+
+    /**
+     * 设置每台服务器自适应并发上限的最大值
+     */
+    public void setMaxConcurrency(int maxConcurrency) {
+        concurrencyLimiter.setMaxLimit(maxConcurrency);
+    }
+
+    /**
+     * 设置每台服务器每个Token的限流速率
+     * @param commandsPerSecond 每秒命令数，为0时不限流
+     * @param burst 允许的突发命令数
+     */
+    public void setRateLimit(int commandsPerSecond, int burst) {
+        rateLimiter.setRate(commandsPerSecond, burst);
+    }
+
+    /**
+     * 设置单个响应在内存中最多保留的字节数，超出部分写入临时文件
+     */
+    public void setResponseMemoryLimit(int responseMemoryLimit) {
+        this.responseMemoryLimit = responseMemoryLimit;
+        transport.setResponseMemoryLimit(responseMemoryLimit);
+    }
+
+    /**
+     * 设置最大尝试次数（含首次请求）
+     */
+    public void setMaxAttempts(int maxAttempts) {
+        resilientSender.setRetryPolicy(resilientSender.getRetryPolicy().withMaxAttempts(maxAttempts));
     }
 
     /**
@@ -62,185 +197,532 @@ public class CommandExecutor {
      * 构建要发送的命令文本
      */
     public String buildCommandText(Command command, Map<String, Control> parameterControls) {
-        StringBuilder commandText = new StringBuilder();
-        
-        // 遍历语法定义中的字段
-        for (Syntax.Field field : command.syntax().getFields()) {
-            String originalName = field.getOriginalName();
-            
-            // 第一个字段作为命令名称
-            if (commandText.isEmpty()) {
-                commandText.append(originalName);
-                continue;
-            }
-            
-            // 特殊处理多选容器字段
-            if (field.getFieldMode() == Syntax.FieldMode.MULTI_SELECT_CONTAINER && multiSelectManagers != null) {
-                List<String> selectedItems = MultiSelectDataHelper.getSelectedItems(multiSelectManagers, originalName);
-                if (selectedItems != null && !selectedItems.isEmpty()) {
-                    commandText.append(" ");
-                    for (int i = 0; i < selectedItems.size(); i++) {
-                        String item = selectedItems.get(i);
-
-                        // 对于包含" - "的值（如"10001 - 物品名"），只取ID部分
-                        if (item.contains(" - ")) {
-                            String idPart = item.substring(0, item.indexOf(" - "));
-                            commandText.append(idPart);
-                        } else {
-                            commandText.append(item);
-                        }
+        return CommandTemplate.of(command.syntax()).render(slotSource(parameterControls));
+    }
 
-                        // 如果不是最后一个元素，添加分隔符
-                        if (i != selectedItems.size() - 1) {
-                            String delimiter = field.getSpecialPrefix();
-                            if (delimiter != null && !delimiter.isEmpty())
-                                commandText.append(delimiter);
-                            else
-                                commandText.append(",");
-                        }
-                    }
+    /**
+     * 从参数控件和多选容器中读取模板槽位的取值
+     * @param parameterControls 参数控件，键为字段的原始名称
+     */
+    public CommandTemplate.SlotSource slotSource(Map<String, Control> parameterControls) {
+        return new CommandTemplate.SlotSource() {
+            @Override
+            public String value(String key) {
+                Control control = parameterControls.get(key);
+                if (control instanceof TextField textField) {
+                    return textField.getText();
+                } else if (control instanceof ComboBox<?>) {
+                    return MultiSelectDataHelper.getValueFromControl(control);
                 }
-                continue;
-            }
-            
-            // 特殊处理带数量的多选容器字段
-            if (field.getFieldMode() == Syntax.FieldMode.MULTI_SELECT_CONTAINER_WITH_COUNT && multiSelectWithCountManagers != null) {
-                Map<String, Integer> selectedItemsWithCount = MultiSelectDataHelper.getSelectedItemsWithCount(multiSelectWithCountManagers, originalName);
-                if (selectedItemsWithCount != null && !selectedItemsWithCount.isEmpty()) {
-                    int index = 0;
-
-                    commandText.append(" ");
-                    for (Map.Entry<String, Integer> entry : selectedItemsWithCount.entrySet()) {
-                        String item = entry.getKey();
-                        Integer count = entry.getValue();
-
-                        // 对于包含" - "的值（如"10001 - 物品名"），只取ID部分
-                        if (item.contains(" - ")) {
-                            String idPart = item.substring(0, item.indexOf(" - "));
-                            commandText.append(idPart);
-                        } else {
-                            commandText.append(item);
-                        }
-                        
-                        // 添加数量前缀
-                        commandText.append(":").append(count);
-
-                        // 如果不是最后一个元素，添加分隔符
-                        if (index != selectedItemsWithCount.size() - 1) {
-                            String delimiter = field.getSpecialPrefix();
-                            if (delimiter != null && !delimiter.isEmpty())
-                                commandText.append(delimiter);
-                            else
-                                commandText.append(",");
+                return null;
+            }
+
+            @Override
+            public List<String> items(String key) {
+                return multiSelectManagers != null ? MultiSelectDataHelper.getSelectedItems(multiSelectManagers, key) : null;
+            }
+
+            @Override
+            public Map<String, Integer> itemsWithCount(String key) {
+                return multiSelectWithCountManagers != null
+                        ? MultiSelectDataHelper.getSelectedItemsWithCount(multiSelectWithCountManagers, key) : null;
+            }
+        };
+    }
+
+    /**
+     * 发送命令到服务器的通用方法
+     */
+    public HttpResponse<ResponseBody> sendCommandToServer(String commandText) {
+        return sendCommandToServer(currentEndpoint(), commandText, null);
+    }
+
+    /**
+     * 发送命令到指定服务器
+     * 暂时性错误会自动重试，服务器熔断期间直接失败
+     * @param endpoint 目标服务器
+     * @param commandText 命令文本
+     * @param timeout 请求超时时间，为null时使用默认超时
+     */
+    public HttpResponse<ResponseBody> sendCommandToServer(ServerEndpoint endpoint, String commandText, Duration timeout) {
+        // 发送POST请求到服务器
+        try {
+            byte[] jsonBody = CommandCodec.encodeRequest(endpoint.authToken(), commandText);
+            URI uri = URI.create(endpoint.serverAddress() + "/api/command");
+            CommandTransport current = acquireTransport();
+            try {
+                return resilientSender.send(current, endpoint, uri, jsonBody, timeout);
+            } finally {
+                current.release();
+            }
+        } catch (CircuitOpenException e) {
+            logger.warn(e.getMessage());
+            throw new RuntimeException(e);
+        } catch (Exception e) {
+            logger.error("发送命令时发生异常", e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * 执行命令
+     */
+    public void executeCommand(String uid, String commandText, Consumer<String> historyConsumer) {
+        publishResult(execute(uid, commandText), historyConsumer);
+    }
+
+    /**
+     * 在虚拟线程上异步执行命令
+     * 结果通过historyConsumer回调，回调发生在后台线程上，调用方需要自行切换到UI线程
+     *
+     * @return 可取消的执行结果，取消会中断正在等待响应的请求
+     */
+    public CompletableFuture<CommandResult> executeCommandAsync(String uid, String commandText, Consumer<String> historyConsumer) {
+        return submitAsync(commandText,
+                () -> execute(uid, commandText),
+                result -> publishResult(result, historyConsumer));
+    }
+
+    /**
+     * 在虚拟线程上异步执行命令，结果只写入日志，由调用方处理返回的结果
+     *
+     * @return 可取消的执行结果，取消会中断正在等待响应的请求
+     */
+    public CompletableFuture<CommandResult> executeCommandAsync(String uid, String commandText) {
+        return submitAsync(commandText, () -> execute(uid, commandText), CommandExecutor::logResult);
+    }
+
+    /**
+     * 将同一条命令异步发往多个UID
+     * 并发数受fanOutConcurrency限制，所有UID完成后才会完成返回的Future
+     *
+     * @param uids 目标UID列表
+     * @param commandText 不含@uid的命令文本
+     * @return 可取消的汇总结果，取消会中断所有尚未完成的请求
+     */
+    public CompletableFuture<FanOutResult> executeFanOutAsync(List<String> uids, String commandText) {
+        return submitAsync(commandText + " @" + uids.size() + " uids",
+                () -> fanOut(uids, commandText),
+                result -> logger.info("批量命令执行完成: {}; 成功 {} 失败 {} 耗时 {}ms",
+                        commandText, result.succeeded(), result.failed(), result.elapsedMillis()));
+    }
+
+    /**
+     * 同步地将命令发往多个UID，并发数受fanOutConcurrency限制
+     */
+    public FanOutResult fanOut(List<String> uids, String commandText) throws InterruptedException, ExecutionException {
+        long start = System.nanoTime();
+        Semaphore permits = new Semaphore(fanOutConcurrency);
+        Map<String, Future<CommandResult>> pending = new LinkedHashMap<>();
+
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+            try {
+                for (String uid : uids) {
+                    permits.acquire();
+                    pending.put(uid, workers.submit(() -> {
+                        try {
+                            return execute(uid, commandText);
+                        } finally {
+                            permits.release();
                         }
-                        index++;
-                    }
+                    }));
                 }
-                continue;
-            }
-            
-            // 查找对应控件的值
-            Control control = parameterControls.get(originalName);
-            
-            if (control != null) {
-                String value = "";
-                if (control instanceof TextField) {
-                    value = ((TextField) control).getText();
-                } else if (control instanceof ComboBox) {
-                    String selected = (String) ((ComboBox<?>) control).getSelectionModel().getSelectedItem();
-                    String input = ((ComboBox<?>) control).getEditor().getText();
-                    value = selected != null ? selected : input != null ? input : "";
+
+                Map<String, CommandResult> results = new LinkedHashMap<>();
+                for (Map.Entry<String, Future<CommandResult>> entry : pending.entrySet()) {
+                    results.put(entry.getKey(), entry.getValue().get());
                 }
+                return new FanOutResult(commandText, results, elapsedMillis(start));
+            } catch (InterruptedException e) {
+                // 被取消时中断所有尚未完成的请求
+                workers.shutdownNow();
+                throw e;
+            }
+        }
+    }
 
-                // 只有当值非空时才添加到命令中
-                if (!value.isEmpty()) {
-                    commandText.append(" ");
-                    // 对于包含" - "的值（如"10001 - 物品名"），只取ID部分
-                    if (value.contains(" - ")) {
-                        value = value.substring(0, value.indexOf(" - "));
-                    }
+    /**
+     * 将命令异步广播到服务器组内的所有服务器
+     * 所有服务器并行执行，每台服务器的整个调用（含重试、退避和排队）不超过广播超时，
+     * 超时的服务器被取消并报告为超时，整体耗时不超过广播超时
+     *
+     * @param group 目标服务器组
+     * @param uid 目标UID，可为空
+     * @param commandText 命令文本
+     * @return 可取消的汇总结果，以服务器地址为键
+     */
+    public CompletableFuture<FanOutResult> executeBroadcastAsync(ServerGroup group, String uid, String commandText) {
+        return submitAsync(commandText + " -> " + group.name(),
+                () -> broadcast(group, uid, commandText),
+                result -> logger.info("广播命令执行完成: {} -> {}; 成功 {} 失败 {} 耗时 {}ms",
+                        commandText, group.name(), result.succeeded(), result.failed(), result.elapsedMillis()));
+    }
 
-                    if (field.getFieldMode() == Syntax.FieldMode.SPECIAL_PREFIX) {
-                        // 使用实际的前缀字符，而不是固定的"x"
-                        commandText.append(field.getSpecialPrefix()).append(value);
-                    } else {
-                        commandText.append(value);
+    /**
+     * 同步地将命令广播到服务器组内的所有服务器
+     */
+    public FanOutResult broadcast(ServerGroup group, String uid, String commandText) throws InterruptedException, ExecutionException {
+        long start = System.nanoTime();
+        Duration timeout = broadcastTimeout;
+        Map<String, Future<CommandResult>> pending = new LinkedHashMap<>();
+
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+            try {
+                for (ServerEndpoint server : group.servers()) {
+                    pending.put(server.serverAddress(), workers.submit(() -> execute(server, uid, commandText, timeout)));
+                }
+
+                // 超时同时限制单次请求和整个调用，所有服务器共用同一个截止时间
+                long deadline = start + timeout.toNanos();
+                Map<String, CommandResult> results = new LinkedHashMap<>();
+                for (Map.Entry<String, Future<CommandResult>> entry : pending.entrySet()) {
+                    Future<CommandResult> future = entry.getValue();
+                    try {
+                        results.put(entry.getKey(), future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+                    } catch (TimeoutException e) {
+                        future.cancel(true);
+                        String fullText = uid != null && !uid.isEmpty() ? commandText + " @" + uid : commandText;
+                        results.put(entry.getKey(), new CommandResult(fullText, 0,
+                                "no response within " + timeout.toSeconds() + " s", elapsedMillis(start), e));
                     }
                 }
+                return new FanOutResult(commandText, results, elapsedMillis(start));
+            } catch (InterruptedException e) {
+                // 被取消时中断所有尚未完成的请求
+                workers.shutdownNow();
+                throw e;
             }
         }
+    }
 
-        return commandText.toString();
+    /**
+     * 异步执行多行脚本，每行一条命令
+     *
+     * @param scriptText 脚本内容
+     * @param uid 没有写@uid的行使用的UID，可为空
+     * @param listener 进度回调
+     * @return 可取消的执行汇总
+     */
+    public CompletableFuture<ScriptResult> executeScriptAsync(String scriptText, String uid, ScriptRunner.ProgressListener listener) {
+        long totalLines = scriptText.lines().count();
+        return submitAsync("script (" + totalLines + " lines)", () -> {
+            try (BufferedReader reader = new BufferedReader(new StringReader(scriptText))) {
+                return newScriptRunner().run(reader, totalLines, uid, listener);
+            }
+        }, result -> {});
     }
 
     /**
-     * 发送命令到服务器的通用方法
+     * 异步执行脚本文件，文件以流的方式逐行读取，不会整体加载到内存
+     *
+     * @param scriptFile 脚本文件
+     * @param uid 没有写@uid的行使用的UID，可为空
+     * @param listener 进度回调
+     * @return 可取消的执行汇总
      */
-    public HttpResponse<String> sendCommandToServer(String commandText) {
-        // 发送POST请求到服务器
-        try {
-            try (HttpClient client = HttpClient.newBuilder()
-                    .connectTimeout(Duration.ofSeconds(10))
-                    .build()) {
+    public CompletableFuture<ScriptResult> executeScriptFileAsync(Path scriptFile, String uid, ScriptRunner.ProgressListener listener) {
+        return submitAsync("script " + scriptFile, () -> {
+            long totalLines;
+            try (Stream<String> lines = Files.lines(scriptFile, StandardCharsets.UTF_8)) {
+                totalLines = lines.count();
+            }
+            try (BufferedReader reader = Files.newBufferedReader(scriptFile, StandardCharsets.UTF_8)) {
+                return newScriptRunner().run(reader, totalLines, uid, listener);
+            }
+        }, result -> {});
+    }
 
-                String jsonBody = "{\"token\": \"" + authToken +
-                        "\", \"command\": \"" + commandText + "\"}";
+    private ScriptRunner newScriptRunner() {
+        return new ScriptRunner(this, scriptConcurrency, scriptOrdering);
+    }
 
-                HttpRequest request = HttpRequest.newBuilder()
-                        .uri(URI.create(serverAddress + "/api/command"))
-                        .timeout(Duration.ofSeconds(30))
-                        .header("Content-Type", "application/json")
-                        .POST(HttpRequest.BodyPublishers.ofString(jsonBody))
-                        .build();
+    /**
+     * 提交一个可取消的后台任务并跟踪其状态
+     * 只有任务未被取消时才会调用publisher
+     */
+    private <T> CompletableFuture<T> submitAsync(String description, Callable<T> work, Consumer<T> publisher) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        inFlightCommands.add(future);
 
-                return client.send(request, HttpResponse.BodyHandlers.ofString());
+        Future<?> task = asyncExecutor.submit(() -> {
+            try {
+                T result = work.call();
+                if (future.complete(result)) {
+                    publisher.accept(result);
+                }
+            } catch (Exception e) {
+                future.completeExceptionally(e);
             }
-        } catch (Exception e) {
-            logger.error("发送命令时发生异常", e);
-            throw new RuntimeException(e);
-        }
+        });
+
+        future.whenComplete((result, throwable) -> {
+            inFlightCommands.remove(future);
+            if (future.isCancelled()) {
+                task.cancel(true);
+                logger.info("命令已取消: {}", description);
+            }
+        });
+        return future;
     }
 
     /**
-     * 执行命令
+     * 设置批量执行时的最大并发数
      */
-    public void executeCommand(String uid, String commandText, Consumer<String> historyConsumer) {
-        try {
-            if (uid != null && !uid.isEmpty()) {
-                commandText += " @" + uid;
+    public void setFanOutConcurrency(int fanOutConcurrency) {
+        this.fanOutConcurrency = Math.max(1, fanOutConcurrency);
+    }
+
+    /**
+     * 设置脚本执行的并发数和顺序保证
+     */
+    public void setScriptOptions(int scriptConcurrency, ScriptRunner.Ordering scriptOrdering) {
+        this.scriptConcurrency = Math.max(1, scriptConcurrency);
+        this.scriptOrdering = scriptOrdering;
+    }
+
+    /**
+     * 设置离线暂存队列
+     * @param spool 暂存队列，为null时关闭暂存
+     */
+    public void setSpool(CommandSpool spool) {
+        this.spool = spool;
+    }
+
+    /**
+     * 设置持久化的命令历史
+     * @param historyArchive 命令历史，为null时不记录
+     */
+    public void setHistoryArchive(HistoryArchive historyArchive) {
+        this.historyArchive = historyArchive;
+    }
+
+    /**
+     * 设置广播时每台服务器的超时时间
+     */
+    public void setBroadcastTimeout(Duration broadcastTimeout) {
+        this.broadcastTimeout = broadcastTimeout;
+    }
+
+    /**
+     * 取消所有正在执行的异步命令
+     * @return 被取消的命令数量
+     */
+    public int cancelAll() {
+        int cancelled = 0;
+        for (CompletableFuture<?> future : List.copyOf(inFlightCommands)) {
+            if (future.cancel(true)) {
+                cancelled++;
             }
+        }
+        return cancelled;
+    }
 
-            HttpResponse<String> response = sendCommandToServer(commandText);
+    /**
+     * 获取正在执行的异步命令数量
+     */
+    public int getInFlightCount() {
+        return inFlightCommands.size();
+    }
 
-            String message = extractMessageFromResponse(response.body());
+    /**
+     * 同步执行命令并返回结果，不会抛出异常
+     */
+    public CommandResult execute(String uid, String commandText) {
+        return execute(currentEndpoint(), uid, commandText, null);
+    }
 
-            if (response.statusCode() == 200) {
-                historyConsumer.accept("> " + commandText + "\n" + message);
-                logger.info("命令执行成功: {}; 服务端返回: {}", commandText, message);
-            } else {
-                historyConsumer.accept(response.statusCode() + " - " + message);
-                logger.error("命令执行失败: {} - {}", response.statusCode(), message);
+    /**
+     * 在指定服务器上同步执行命令并返回结果，不会抛出异常
+     * 启用了暂存队列时，无法送达的命令和排在暂存命令之后的同UID命令会进入暂存队列
+     */
+    public CommandResult execute(ServerEndpoint endpoint, String uid, String commandText, Duration timeout) {
+        CommandSpool currentSpool = spool;
+        if (currentSpool != null && currentSpool.hasPending(endpoint, uid)) {
+            String queuedText = uid != null && !uid.isEmpty() ? commandText + " @" + uid : commandText;
+            if (!currentSpool.spool(endpoint, uid, commandText)) {
+                return new CommandResult(queuedText, 0, "spool closed, command not sent", 0, null);
             }
+            return new CommandResult(queuedText, 0, "queued behind spooled commands", 0, null, true);
+        }
+
+        CommandResult result = deliver(endpoint, uid, commandText, timeout);
+        if (currentSpool != null && isUndelivered(result) && currentSpool.spool(endpoint, uid, commandText)) {
+            return result.asSpooled();
+        }
+        return result;
+    }
+
+    /**
+     * 直接发送命令，不经过暂存队列
+     * 可能已经到达服务器的命令会写入持久化的命令历史
+     */
+    CommandResult deliver(ServerEndpoint endpoint, String uid, String commandText, Duration timeout) {
+        String fullText = uid != null && !uid.isEmpty() ? commandText + " @" + uid : commandText;
+
+        long start = System.nanoTime();
+        CommandResult result;
+        try {
+            HttpResponse<ResponseBody> response = sendCommandToServer(endpoint, fullText, timeout);
+            result = toResult(fullText, response, start, true);
         } catch (Exception e) {
-            historyConsumer.accept("command sends exceptions: " + e.getMessage());
-            logger.error("发送命令时发生异常", e);
+            result = new CommandResult(fullText, 0, e.getMessage(), elapsedMillis(start), e);
+        }
 
-            if (e.getMessage().equals("java.net.ConnectException"))
-                historyConsumer.accept("Please check if the remote server is online");
+        HistoryArchive archive = historyArchive;
+        if (archive != null && !isUndelivered(result)) {
+            archive.record(endpoint, uid, commandText, result);
         }
+        return result;
     }
 
     /**
-     * 从服务器响应中提取消息
+     * 直接通过传输层发送一次命令，不经过重试、限流、并发控制和暂存队列
+     * 用于压测，测量的是服务器本身的表现
+     * @param endpoint 目标服务器
+     * @param commandText 完整的命令文本(含@uid)
+     * @param timeout 请求超时时间
      */
-    private String extractMessageFromResponse(String responseBody) {
+    public CommandResult executeUnmanaged(ServerEndpoint endpoint, String commandText, Duration timeout) {
+        URI uri = URI.create(endpoint.serverAddress() + "/api/command");
+
+        long start = System.nanoTime();
         try {
-            ObjectMapper mapper = new ObjectMapper();
-            ServerRspData response = mapper.readValue(responseBody, ServerRspData.class);
-            return response.getMsg() != null ? response.getMsg() : responseBody;
+            byte[] jsonBody = CommandCodec.encodeRequest(endpoint.authToken(), commandText);
+            HttpResponse<ResponseBody> response;
+            CommandTransport current = acquireTransport();
+            try {
+                response = current.send(uri, jsonBody, timeout);
+            } finally {
+                current.release();
+            }
+            return toResult(commandText, response, start, false);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new CommandResult(commandText, 0, e.getMessage(), elapsedMillis(start), e);
         } catch (Exception e) {
+            return new CommandResult(commandText, 0, e.getMessage(), elapsedMillis(start), e);
+        }
+    }
+
+    /**
+     * 命令是否确定没有到达服务器
+     * 只有连接失败和熔断拒绝可以确定，读取超时时服务器可能已经执行过，不能重发
+     */
+    static boolean isUndelivered(CommandResult result) {
+        for (Throwable cause = result.error(); cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConnectException || cause instanceof HttpConnectTimeoutException
+                    || cause instanceof CircuitOpenException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 探测服务器是否在线
+     */
+    void probe(ServerEndpoint endpoint, Duration timeout) throws IOException, InterruptedException {
+        CommandTransport current = acquireTransport();
+        try {
+            current.probe(URI.create(endpoint.serverAddress()), timeout);
+        } finally {
+            current.release();
+        }
+    }
+
+    /**
+     * 当前配置的服务器
+     */
+    public ServerEndpoint currentEndpoint() {
+        return new ServerEndpoint(serverAddress, authToken);
+    }
+
+    /**
+     * 将执行结果写入历史记录
+     */
+    private void publishResult(CommandResult result, Consumer<String> historyConsumer) {
+        logResult(result);
+        String outcome = describeOutcome(result);
+        historyConsumer.accept(result.spooled() || result.statusCode() == 200 && result.error() == null
+                ? "> " + result.commandText() + "\n" + outcome : outcome);
+    }
+
+    /**
+     * 描述执行结果，不含命令本身
+     */
+    public static String describeOutcome(CommandResult result) {
+        if (result.spooled()) {
+            return "The remote server is unreachable, the command is spooled and will be sent once the server is back";
+        } else if (result.error() != null) {
+            String description = "command sends exceptions: " + result.message();
+            if (result.error().getCause() instanceof ConnectException)
+                description += "\nPlease check if the remote server is online";
+            else if (result.error().getCause() instanceof CircuitOpenException)
+                description += "\nThe remote server keeps failing, requests are paused until it recovers";
+            return description;
+        } else if (result.statusCode() == 200) {
+            return result.message() + responseFileNote(result);
+        } else {
+            return result.statusCode() + " - " + result.message() + responseFileNote(result);
+        }
+    }
+
+    /**
+     * 将执行结果写入日志
+     */
+    private static void logResult(CommandResult result) {
+        if (result.spooled()) {
+            logger.warn("命令已暂存: {}; {}", result.commandText(), result.message());
+        } else if (result.error() != null) {
+            if (!(result.error().getCause() instanceof CircuitOpenException))
+                logger.error("发送命令时发生异常", result.error());
+        } else if (result.statusCode() == 200) {
+            logger.info("命令执行成功: {}; 服务端返回: {}", result.commandText(), result.message());
+        } else {
+            logger.error("命令执行失败: {} - {}", result.statusCode(), result.message());
+        }
+    }
+
+    private static String responseFileNote(CommandResult result) {
+        return result.responseFile() == null ? "" : "\n... (full response saved to " + result.responseFile() + ")";
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    /**
+     * 把服务器响应转换为执行结果
+     * 消息超过MAX_MESSAGE_CHARS时被截断，完整响应保存在临时文件中
+     * @param keepResponseFile 是否保留完整响应文件，为false时立即删除
+     */
+    private CommandResult toResult(String commandText, HttpResponse<ResponseBody> response, long start, boolean keepResponseFile) {
+        ResponseBody body = response.body();
+        String message = null;
+        boolean truncated = false;
+        try {
+            CommandCodec.Response decoded = CommandCodec.decodeResponse(body, MAX_MESSAGE_CHARS);
+            message = decoded.message();
+            truncated = decoded.truncated();
+        } catch (IOException e) {
             logger.warn("解析服务器响应失败: {}, 返回原始响应", e.getMessage());
-            return responseBody;
         }
+        if (message == null) {
+            String raw = body.text();
+            truncated = body.isSpilled() || raw.length() > MAX_MESSAGE_CHARS;
+            message = raw.length() > MAX_MESSAGE_CHARS ? raw.substring(0, MAX_MESSAGE_CHARS) : raw;
+        }
+
+        Path responseFile = null;
+        if (keepResponseFile && (truncated || body.isSpilled())) {
+            try {
+                responseFile = body.toFile().file();
+            } catch (IOException e) {
+                logger.warn("保存完整响应失败: {}", e.getMessage());
+            }
+        } else {
+            body.discard();
+        }
+        return new CommandResult(commandText, response.statusCode(), message, elapsedMillis(start), null, false, responseFile);
     }
-}
\ No newline at end of file
+}
@@ -6,6 +6,7 @@ import emu.nebula.nbcommand.service.command.manager.*;
 import emu.nebula.nbcommand.service.command.manager.CharacterManager;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Supplier;
 
 /**
@@ -14,6 +15,8 @@ import java.util.function.Supplier;
  */
 public class CommandRegistry {
     public static I18nManager i18n = I18nManager.getInstance();
+    // 语言代码 -> 按类别组织的命令，命令不可变，切换语言时直接复用
+    private static final Map<String, Map<String, List<Command>>> COMMANDS_BY_LANGUAGE = new ConcurrentHashMap<>();
     
     /**
      * 定义命令结构
@@ -46,11 +49,25 @@ public class CommandRegistry {
     }
 
     /**
-     * 创建所有命令并按类别组织
+     * 获取当前语言的所有命令并按类别组织
      *
-     * @return 按类别组织的所有命令映射
+     * @return 按类别组织的所有命令映射，不可修改
      */
     public static Map<String, List<Command>> createAllCommands() {
+        return getAllCommands(i18n.getCurrentLocale());
+    }
+
+    /**
+     * 获取指定语言的所有命令，每种语言只创建一次，可在任意线程调用
+     *
+     * @return 按类别组织的所有命令映射，不可修改
+     */
+    public static Map<String, List<Command>> getAllCommands(Locale locale) {
+        return COMMANDS_BY_LANGUAGE.computeIfAbsent(I18nManager.getLanguageCode(locale),
+                languageCode -> i18n.callWithLocale(locale, CommandRegistry::buildAllCommands));
+    }
+
+    private static Map<String, List<Command>> buildAllCommands() {
         Map<String, List<Command>> allCommands = new LinkedHashMap<>();
 
         // 定义所有命令类别和命令
@@ -66,9 +83,9 @@ public class CommandRegistry {
                 commands.add(creator.get());
             }
 
-            allCommands.put(i18n.getString(categoryKey), commands);
+            allCommands.put(i18n.getString(categoryKey), List.copyOf(commands));
         }
 
-        return allCommands;
+        return Collections.unmodifiableMap(allCommands);
     }
 }
\ No newline at end of file
@@ -0,0 +1,293 @@
+package emu.nebula.nbcommand.service.command;
+
+import emu.nebula.nbcommand.model.CommandResult;
+import emu.nebula.nbcommand.model.ServerEndpoint;
+import emu.nebula.nbcommand.model.SpooledCommand;
+import emu.nebula.nbcommand.service.DatabaseManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 离线命令暂存队列
+ * 服务器不可达时命令被写入config.db中的command_spool表，写入先在内存中攒批再一次性提交；
+ * 后台定时探测有暂存命令的服务器，探测成功后按UID分组、组内按入队顺序发送，
+ * 发送成功才从表中删除，因此程序崩溃或重启后会从剩余的命令继续发送
+ */
+public class CommandSpool {
+    private static final Logger logger = LoggerFactory.getLogger(CommandSpool.class);
+
+    // 内存中攒批的最大数量，达到后立即写入
+    private static final int FLUSH_BATCH_SIZE = 200;
+    private static final long FLUSH_INTERVAL_MILLIS = 200;
+    private static final long DRAIN_INTERVAL_SECONDS = 5;
+    // 每轮每个顺序键从表中加载的最大命令数
+    private static final int DRAIN_BATCH_SIZE = 500;
+    private static final Duration PROBE_TIMEOUT = Duration.ofSeconds(3);
+    // 关闭时等待正在进行的发送轮次结束的最长时间
+    private static final long CLOSE_TIMEOUT_SECONDS = 10;
+
+    /**
+     * 暂存命令发送后的回调，可能在任意后台线程上调用
+     */
+    @FunctionalInterface
+    public interface DrainListener {
+        void onDrained(long delivered, long remaining);
+    }
+
+    private final CommandExecutor commandExecutor;
+    private final DatabaseManager databaseManager;
+    private final ScheduledExecutorService scheduler =
+            Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().name("command-spool").factory());
+
+    // 尚未写入数据库的命令
+    private final List<SpooledCommand> buffer = new ArrayList<>();
+    // 顺序键 -> 暂存中的命令数量，包括尚未写入的
+    private final Map<String, Integer> pendingByKey = new ConcurrentHashMap<>();
+    private final AtomicLong pendingTotal = new AtomicLong();
+    // 每次清空加一，清空之前开始的发送轮次不再继续发送
+    private final AtomicLong clearGeneration = new AtomicLong();
+    // 关闭后不再接受新命令，也不再开始新的发送
+    private volatile boolean closed;
+    private volatile DrainListener drainListener = (delivered, remaining) -> {};
+
+    public CommandSpool(CommandExecutor commandExecutor, DatabaseManager databaseManager) {
+        this.commandExecutor = commandExecutor;
+        this.databaseManager = databaseManager;
+
+        // 恢复上次退出时未发送的命令
+        databaseManager.countSpooledCommands().forEach((key, count) -> {
+            pendingByKey.put(key, count);
+            pendingTotal.addAndGet(count);
+        });
+        if (pendingTotal.get() > 0) {
+            logger.info("恢复暂存命令 {} 条, 服务器恢复后将继续发送", pendingTotal.get());
+        }
+    }
+
+    /**
+     * 启动定时写入和定时发送
+     */
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::flush, FLUSH_INTERVAL_MILLIS, FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::drain, DRAIN_INTERVAL_SECONDS, DRAIN_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        // 正常退出时由close按顺序关闭，钩子只在未经正常退出流程时兜底
+        Runtime.getRuntime().addShutdownHook(new Thread(this::close, "command-spool-flush"));
+    }
+
+    /**
+     * 停止后台发送并写入内存中剩余的命令，之后不再接受新命令
+     * 必须在关闭数据库之前调用，可重复调用
+     */
+    public void close() {
+        synchronized (buffer) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        scheduler.shutdown();
+        try {
+            if (!scheduler.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                logger.warn("暂存命令发送未能在 {} 秒内结束", CLOSE_TIMEOUT_SECONDS);
+                scheduler.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            scheduler.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        logger.info("暂存队列已关闭, 剩余 {} 条", pendingTotal.get());
+    }
+
+    /**
+     * 暂存一条命令
+     * @return 是否已暂存，队列已关闭时返回false
+     */
+    public boolean spool(ServerEndpoint endpoint, String uid, String commandText) {
+        SpooledCommand command = new SpooledCommand(0, endpoint, uid, commandText, 0);
+
+        boolean full;
+        synchronized (buffer) {
+            if (closed) {
+                logger.warn("暂存队列已关闭, 命令未暂存: {}", commandText);
+                return false;
+            }
+            // 计数和缓冲区在同一把锁内更新，与clear互斥
+            pendingByKey.merge(command.orderingKey(), 1, Integer::sum);
+            pendingTotal.incrementAndGet();
+            buffer.add(command);
+            full = buffer.size() >= FLUSH_BATCH_SIZE;
+        }
+        if (full) {
+            flush();
+        }
+        return true;
+    }
+
+    /**
+     * 目标UID是否还有暂存中的命令
+     * 有的话新命令也必须进入暂存队列，保证同一UID的命令顺序
+     */
+    public boolean hasPending(ServerEndpoint endpoint, String uid) {
+        return pendingByKey.containsKey(SpooledCommand.orderingKey(endpoint, uid));
+    }
+
+    /**
+     * 暂存中的命令总数
+     */
+    public long getPendingCount() {
+        return pendingTotal.get();
+    }
+
+    public void setDrainListener(DrainListener drainListener) {
+        this.drainListener = drainListener;
+    }
+
+    /**
+     * 立即尝试发送暂存命令，不等待下一次定时检查
+     */
+    public void drainNow() {
+        scheduler.execute(this::drain);
+    }
+
+    /**
+     * 丢弃所有暂存命令
+     * 正在进行的发送轮次会在当前命令完成后停止
+     * @return 丢弃的数量
+     */
+    public int clear() {
+        synchronized (buffer) {
+            clearGeneration.incrementAndGet();
+            buffer.clear();
+            int deleted = databaseManager.clearSpooledCommands();
+            pendingByKey.clear();
+            pendingTotal.set(0);
+            return deleted;
+        }
+    }
+
+    /**
+     * 将内存中攒下的命令写入数据库
+     */
+    public void flush() {
+        List<SpooledCommand> batch;
+        synchronized (buffer) {
+            if (buffer.isEmpty()) {
+                return;
+            }
+            batch = new ArrayList<>(buffer);
+            buffer.clear();
+        }
+
+        if (databaseManager.spoolCommands(batch)) {
+            logger.info("暂存命令已写入 {} 条", batch.size());
+        } else {
+            // 写入失败时放回缓冲区，下次重试
+            synchronized (buffer) {
+                buffer.addAll(0, batch);
+            }
+        }
+    }
+
+    /**
+     * 发送一轮暂存命令
+     * 只在调度线程上执行，因此同一时刻只有一轮在进行
+     */
+    private void drain() {
+        try {
+            flush();
+            if (closed || pendingTotal.get() == 0) {
+                return;
+            }
+
+            // 先探测服务器，只加载在线服务器的命令，且每个顺序键单独限量，
+            // 长时间宕机的服务器或卡住的UID积压再多也不会挤掉其他命令
+            long generation = clearGeneration.get();
+            Map<String, List<SpooledCommand>> groups = new LinkedHashMap<>();
+            for (ServerEndpoint endpoint : databaseManager.loadSpooledEndpoints()) {
+                if (!isOnline(endpoint)) {
+                    continue;
+                }
+                for (SpooledCommand command : databaseManager.loadSpooledCommands(endpoint, DRAIN_BATCH_SIZE)) {
+                    groups.computeIfAbsent(command.orderingKey(), k -> new ArrayList<>()).add(command);
+                }
+            }
+            if (groups.isEmpty()) {
+                return;
+            }
+
+            AtomicLong delivered = new AtomicLong();
+            try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (List<SpooledCommand> group : groups.values()) {
+                    workers.submit(() -> delivered.addAndGet(drainGroup(group, generation)));
+                }
+            }
+
+            logger.info("暂存命令发送 {} 条, 剩余 {} 条", delivered.get(), pendingTotal.get());
+            drainListener.onDrained(delivered.get(), pendingTotal.get());
+            if (delivered.get() > 0 && pendingTotal.get() > 0 && !closed) {
+                drainNow();
+            }
+        } catch (Exception e) {
+            logger.error("发送暂存命令时发生异常", e);
+        }
+    }
+
+    /**
+     * 按顺序发送同一UID的暂存命令，遇到仍然无法送达的命令就停止，保证顺序
+     * @param generation 本轮开始时的清空计数，期间被清空时停止发送
+     * @return 成功送达的数量
+     */
+    private long drainGroup(List<SpooledCommand> group, long generation) {
+        long delivered = 0;
+        for (SpooledCommand command : group) {
+            if (closed || clearGeneration.get() != generation) {
+                return delivered;
+            }
+            CommandResult result = commandExecutor.deliver(command.endpoint(), command.uid(), command.commandText(), null);
+            if (CommandExecutor.isUndelivered(result)) {
+                databaseManager.markSpoolAttempt(command.id(), result.message());
+                return delivered;
+            }
+
+            // 已送达，服务端返回的错误不会因为重发而改变，不再保留
+            if (!result.isSuccess()) {
+                logger.warn("暂存命令已送达但执行失败: {} - {} {}", result.commandText(), result.statusCode(), result.message());
+            }
+            synchronized (buffer) {
+                // 发送期间被清空时记录已不存在，计数也已归零
+                if (databaseManager.deleteSpooledCommand(command.id())) {
+                    pendingByKey.computeIfPresent(command.orderingKey(), (key, count) -> count > 1 ? count - 1 : null);
+                    pendingTotal.decrementAndGet();
+                }
+            }
+            delivered++;
+        }
+        return delivered;
+    }
+
+    private boolean isOnline(ServerEndpoint endpoint) {
+        try {
+            commandExecutor.probe(endpoint, PROBE_TIMEOUT);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception e) {
+            logger.debug("服务器仍不可达: {} - {}", endpoint.serverAddress(), e.toString());
+            return false;
+        }
+    }
+}
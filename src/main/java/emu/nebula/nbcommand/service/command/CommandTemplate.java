@@ -0,0 +1,233 @@
+package emu.nebula.nbcommand.service.command;
+
+import emu.nebula.nbcommand.model.command.Syntax;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * 预编译的命令模板
+ * 每个Syntax只编译一次：第一个字段是命令名，其余字段编译为参数槽位，
+ * 槽位的取值方式、前缀和分隔符都在编译时确定，渲染时不再解析语法定义。
+ * 模板本身不可变，可在线程间共享；每次编辑命令时通过{@link #newRenderer()}创建渲染器，
+ * 渲染器缓存每个槽位的片段，只重新计算发生变化的槽位。
+ */
+public final class CommandTemplate {
+    // Syntax -> 已编译的模板，命令被回收后模板随之回收
+    private static final Map<Syntax, CommandTemplate> CACHE = Collections.synchronizedMap(new WeakHashMap<>());
+    private static final String ID_SEPARATOR = " - ";
+    private static final String DEFAULT_DELIMITER = ",";
+
+    /**
+     * 槽位的取值方式
+     */
+    public enum SlotKind {
+        VALUE,                  // 单个输入控件的值
+        MULTI_SELECT,           // 多选容器中的ID列表
+        MULTI_SELECT_WITH_COUNT // 多选容器中的ID:数量列表
+    }
+
+    /**
+     * 参数槽位
+     *
+     * @param key 控件和多选容器的键，即字段的原始名称
+     * @param kind 取值方式
+     * @param prefix 值前面的固定前缀，没有时为空字符串
+     * @param delimiter 多选项之间的分隔符
+     */
+    public record Slot(String key, SlotKind kind, String prefix, String delimiter) {}
+
+    /**
+     * 槽位取值来源，渲染器只为发生变化的槽位调用
+     */
+    public interface SlotSource {
+        /**
+         * 单值槽位的当前输入，没有对应控件时返回null
+         */
+        String value(String key);
+
+        /**
+         * 多选槽位的已选项，没有对应容器时返回null
+         */
+        List<String> items(String key);
+
+        /**
+         * 带数量多选槽位的已选项，没有对应容器时返回null
+         */
+        Map<String, Integer> itemsWithCount(String key);
+    }
+
+    private final String commandName;
+    private final List<Slot> slots;
+
+    private CommandTemplate(String commandName, List<Slot> slots) {
+        this.commandName = commandName;
+        this.slots = slots;
+    }
+
+    /**
+     * 获取语法对应的模板，首次调用时编译
+     */
+    public static CommandTemplate of(Syntax syntax) {
+        return CACHE.computeIfAbsent(syntax, CommandTemplate::compile);
+    }
+
+    private static CommandTemplate compile(Syntax syntax) {
+        List<Syntax.Field> fields = syntax.getFields();
+        List<Slot> slots = new ArrayList<>(fields.size());
+        for (Syntax.Field field : fields.subList(1, fields.size())) {
+            String specialPrefix = field.getSpecialPrefix() != null ? field.getSpecialPrefix() : "";
+            String delimiter = specialPrefix.isEmpty() ? DEFAULT_DELIMITER : specialPrefix;
+            slots.add(switch (field.getFieldMode()) {
+                case MULTI_SELECT_CONTAINER -> new Slot(field.getOriginalName(), SlotKind.MULTI_SELECT, "", delimiter);
+                case MULTI_SELECT_CONTAINER_WITH_COUNT ->
+                        new Slot(field.getOriginalName(), SlotKind.MULTI_SELECT_WITH_COUNT, "", delimiter);
+                case SPECIAL_PREFIX -> new Slot(field.getOriginalName(), SlotKind.VALUE, specialPrefix, delimiter);
+                default -> new Slot(field.getOriginalName(), SlotKind.VALUE, "", delimiter);
+            });
+        }
+        return new CommandTemplate(fields.getFirst().getOriginalName(), List.copyOf(slots));
+    }
+
+    public String getCommandName() {
+        return commandName;
+    }
+
+    public List<Slot> getSlots() {
+        return slots;
+    }
+
+    /**
+     * 创建新的渲染器，所有槽位初始为待计算状态
+     */
+    public Renderer newRenderer() {
+        return new Renderer();
+    }
+
+    /**
+     * 一次性渲染完整的命令文本
+     */
+    public String render(SlotSource source) {
+        return newRenderer().render(source);
+    }
+
+    /**
+     * 计算单个槽位的片段，值为空时片段为空
+     */
+    private static String renderSlot(Slot slot, SlotSource source) {
+        return switch (slot.kind()) {
+            case VALUE -> {
+                String value = source.value(slot.key());
+                yield value == null || value.isEmpty() ? "" : " " + slot.prefix() + idOf(value);
+            }
+            case MULTI_SELECT -> {
+                List<String> items = source.items(slot.key());
+                if (items == null || items.isEmpty()) {
+                    yield "";
+                }
+                StringBuilder segment = new StringBuilder(" ");
+                for (int i = 0; i < items.size(); i++) {
+                    if (i > 0) {
+                        segment.append(slot.delimiter());
+                    }
+                    segment.append(idOf(items.get(i)));
+                }
+                yield segment.toString();
+            }
+            case MULTI_SELECT_WITH_COUNT -> {
+                Map<String, Integer> items = source.itemsWithCount(slot.key());
+                if (items == null || items.isEmpty()) {
+                    yield "";
+                }
+                StringBuilder segment = new StringBuilder(" ");
+                for (Map.Entry<String, Integer> entry : items.entrySet()) {
+                    if (segment.length() > 1) {
+                        segment.append(slot.delimiter());
+                    }
+                    segment.append(idOf(entry.getKey())).append(':').append(entry.getValue());
+                }
+                yield segment.toString();
+            }
+        };
+    }
+
+    /**
+     * 对于"10001 - 物品名"形式的值，只取ID部分
+     */
+    private static String idOf(String value) {
+        int separator = value.indexOf(ID_SEPARATOR);
+        return separator >= 0 ? value.substring(0, separator) : value;
+    }
+
+    /**
+     * 模板渲染器
+     * 缓存每个槽位的片段和拼接结果，输入变化时只需标记对应的槽位，
+     * 下次渲染只重新计算被标记的槽位，没有变化时直接返回上次的结果。非线程安全，只在UI线程上使用。
+     */
+    public final class Renderer {
+        private final String[] segments = new String[slots.size()];
+        private final boolean[] dirty = new boolean[slots.size()];
+        private boolean anyDirty = true;
+        private String text;
+
+        private Renderer() {
+            Arrays.fill(dirty, true);
+        }
+
+        /**
+         * 标记某个键对应的槽位需要重新计算
+         * @param key 字段的原始名称
+         */
+        public void markDirty(String key) {
+            for (int i = 0; i < slots.size(); i++) {
+                if (slots.get(i).key().equals(key)) {
+                    dirty[i] = true;
+                    anyDirty = true;
+                }
+            }
+        }
+
+        /**
+         * 标记所有槽位需要重新计算
+         */
+        public void markAllDirty() {
+            Arrays.fill(dirty, true);
+            anyDirty = true;
+        }
+
+        /**
+         * 渲染命令文本
+         * @param source 槽位取值来源，只为被标记的槽位调用
+         * @return 完整的命令文本
+         */
+        public String render(SlotSource source) {
+            if (!anyDirty) {
+                return text;
+            }
+
+            boolean changed = text == null;
+            for (int i = 0; i < segments.length; i++) {
+                if (dirty[i]) {
+                    String segment = renderSlot(slots.get(i), source);
+                    changed |= !segment.equals(segments[i]);
+                    segments[i] = segment;
+                    dirty[i] = false;
+                }
+            }
+            anyDirty = false;
+
+            if (changed) {
+                StringBuilder commandText = new StringBuilder(commandName);
+                for (String segment : segments) {
+                    commandText.append(segment);
+                }
+                text = commandText.toString();
+            }
+            return text;
+        }
+    }
+}
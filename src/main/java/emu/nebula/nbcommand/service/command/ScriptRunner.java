@@ -0,0 +1,176 @@
+package emu.nebula.nbcommand.service.command;
+
+import emu.nebula.nbcommand.model.CommandResult;
+import emu.nebula.nbcommand.model.ScriptResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 批量脚本执行器
+ * 逐行读取脚本并流水线式地发送，每行一条命令，空行和以#或//开头的行会被跳过。
+ * 同一时刻最多只有concurrency条命令在执行，读取会被执行速度反压，因此内存占用与脚本大小无关。
+ */
+public class ScriptRunner {
+    private static final Logger logger = LoggerFactory.getLogger(ScriptRunner.class);
+    // 汇总中保留的失败样本数量
+    private static final int FAILURE_SAMPLE_LIMIT = 10;
+
+    /**
+     * 执行顺序保证
+     */
+    public enum Ordering {
+        PER_UID, // 同一UID的命令按脚本顺序执行，不同UID之间并行
+        STRICT   // 所有命令严格按脚本顺序逐条执行
+    }
+
+    /**
+     * 进度回调，可能在任意后台线程上调用
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+        void onProgress(long completedLines, long totalLines);
+    }
+
+    private final CommandExecutor commandExecutor;
+    private final int concurrency;
+    private final Ordering ordering;
+
+    public ScriptRunner(CommandExecutor commandExecutor, int concurrency, Ordering ordering) {
+        this.commandExecutor = commandExecutor;
+        this.concurrency = Math.max(1, concurrency);
+        this.ordering = ordering;
+    }
+
+    /**
+     * 执行脚本
+     *
+     * @param reader 脚本来源，逐行读取
+     * @param totalLines 脚本总行数，仅用于进度显示
+     * @param defaultUid 没有写@uid的行使用的UID，可为空
+     * @param listener 进度回调
+     * @return 执行汇总
+     */
+    public ScriptResult run(BufferedReader reader, long totalLines, String defaultUid, ProgressListener listener)
+            throws IOException, InterruptedException, ExecutionException {
+        long start = System.nanoTime();
+        Semaphore permits = new Semaphore(concurrency);
+        AtomicLong completed = new AtomicLong();
+        AtomicLong succeeded = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+        long skipped = 0;
+        List<String> failureSamples = Collections.synchronizedList(new ArrayList<>());
+        // 每个顺序键最后提交的命令，后续同键命令在它完成后才开始，只在读取线程上访问
+        Map<String, CompletableFuture<Void>> tails = new HashMap<>();
+
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+            try {
+                String line;
+                long lineNumber = 0;
+                while ((line = reader.readLine()) != null) {
+                    lineNumber++;
+                    String commandText = line.strip();
+                    if (commandText.isEmpty() || commandText.startsWith("#") || commandText.startsWith("//")) {
+                        skipped++;
+                        reportProgress(listener, completed.incrementAndGet(), totalLines);
+                        continue;
+                    }
+
+                    long currentLine = lineNumber;
+                    // 行尾写了@uid时以它为准，否则使用默认UID
+                    String explicitUid = trailingUid(commandText);
+                    String uid = explicitUid != null ? explicitUid : defaultUid;
+                    String text = explicitUid != null ? commandText.substring(0, commandText.lastIndexOf(' ')).strip() : commandText;
+                    String key = ordering == Ordering.STRICT ? "" : uid != null ? uid : "";
+
+                    permits.acquire();
+                    CompletableFuture<Void> previous = tails.getOrDefault(key, CompletableFuture.completedFuture(null));
+                    // 无论前一条命令如何结束，后一条都会执行并归还名额
+                    CompletableFuture<Void> current = previous.handleAsync((ignored, error) -> {
+                        try {
+                            CommandResult result = commandExecutor.execute(uid, text);
+                            if (result.isSuccess()) {
+                                succeeded.incrementAndGet();
+                            } else {
+                                recordFailure(failed, failureSamples, currentLine + ": " + result.commandText() + " - " + describeFailure(result));
+                            }
+                        } catch (RuntimeException e) {
+                            logger.error("脚本第 {} 行执行时发生异常", currentLine, e);
+                            recordFailure(failed, failureSamples, currentLine + ": " + commandText + " - " + e);
+                        } finally {
+                            permits.release();
+                            reportProgress(listener, completed.incrementAndGet(), totalLines);
+                        }
+                        return null;
+                    }, workers);
+                    tails.put(key, current);
+
+                    // 清理已经完成的顺序键，避免UID很多时映射无限增长
+                    if (tails.size() > concurrency * 4) {
+                        tails.values().removeIf(CompletableFuture::isDone);
+                    }
+                }
+
+                CompletableFuture.allOf(tails.values().toArray(new CompletableFuture<?>[0])).get();
+            } catch (InterruptedException e) {
+                // 被取消时中断所有尚未完成的请求
+                workers.shutdownNow();
+                throw e;
+            }
+        }
+
+        ScriptResult result = new ScriptResult(completed.get(), succeeded.get(), failed.get(), skipped,
+                (System.nanoTime() - start) / 1_000_000, List.copyOf(failureSamples));
+        logger.info("脚本执行完成: 共 {} 行, 成功 {} 失败 {} 跳过 {}, 耗时 {}ms",
+                result.totalLines(), result.succeeded(), result.failed(), result.skipped(), result.elapsedMillis());
+        return result;
+    }
+
+    /**
+     * 获取行尾以@开头的UID，与CommandExecutor拼接"命令 @uid"的格式一致；
+     * 命令中间出现的@（如邮件正文）不算UID
+     * @return UID，没有时返回null
+     */
+    static String trailingUid(String commandText) {
+        int space = commandText.lastIndexOf(' ');
+        if (space < 0 || commandText.length() - space < 3 || commandText.charAt(space + 1) != '@') {
+            return null;
+        }
+        return commandText.substring(space + 2);
+    }
+
+    private static void recordFailure(AtomicLong failed, List<String> failureSamples, String sample) {
+        failed.incrementAndGet();
+        if (failureSamples.size() < FAILURE_SAMPLE_LIMIT) {
+            failureSamples.add(sample);
+        }
+    }
+
+    /**
+     * 回调异常只记录日志，不影响后续命令的执行
+     */
+    private static void reportProgress(ProgressListener listener, long completedLines, long totalLines) {
+        try {
+            listener.onProgress(completedLines, totalLines);
+        } catch (RuntimeException e) {
+            logger.warn("脚本进度回调异常", e);
+        }
+    }
+
+    private static String describeFailure(CommandResult result) {
+        return result.statusCode() > 0 ? result.statusCode() + " " + result.message() : result.message();
+    }
+}
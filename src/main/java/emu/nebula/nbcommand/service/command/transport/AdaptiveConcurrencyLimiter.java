@@ -0,0 +1,232 @@
+package emu.nebula.nbcommand.service.command.transport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 自适应并发限制器
+ * 为每台服务器维护一个并发上限，根据观测到的往返耗时动态调整（AIMD）:
+ * 请求成功且平滑后的耗时接近该服务器的最小耗时时，上限每轮加一（加性增）；
+ * 出错或平滑后的耗时明显高于最小耗时时，上限乘以一个系数（乘性减）。
+ * 这样空闲的服务器可以跑满，繁忙的服务器会自动被少发请求。
+ * 等待名额的大多是虚拟线程，因此使用ReentrantLock而不是synchronized，等待时不会占住载体线程
+ */
+public class AdaptiveConcurrencyLimiter {
+    private static final Logger logger = LoggerFactory.getLogger(AdaptiveConcurrencyLimiter.class);
+
+    private static final int INITIAL_LIMIT = 4;
+    private static final int MIN_LIMIT = 1;
+    // 乘性减的系数
+    private static final double BACKOFF_RATIO = 0.7;
+    // 耗时超过最小耗时的倍数视为拥塞
+    private static final double LATENCY_TOLERANCE = 2.0;
+    // 耗时差值低于该值时不视为拥塞，避免本地极短耗时的抖动
+    private static final long LATENCY_SLACK_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+    // 每隔多少个样本重新测量最小耗时，以跟随网络条件变化
+    private static final int MIN_RTT_RESET_SAMPLES = 500;
+    // 平滑耗时的EWMA系数，单个偶然偏快或偏慢的样本不会直接触发调整
+    private static final double RTT_SMOOTHING = 0.2;
+
+    private volatile int maxLimit;
+    private final Map<String, ServerLimit> limits = new ConcurrentHashMap<>();
+
+    /**
+     * @param maxLimit 每台服务器并发上限的最大值
+     */
+    public AdaptiveConcurrencyLimiter(int maxLimit) {
+        this.maxLimit = Math.max(MIN_LIMIT, maxLimit);
+    }
+
+    /**
+     * 获取一个并发名额，达到上限时阻塞等待
+     * @param serverAddress 服务器地址
+     * @return 名额，请求完成后必须调用其中一个完成方法
+     */
+    public Permit acquire(String serverAddress) throws InterruptedException {
+        ServerLimit limit = limits.computeIfAbsent(serverAddress, ServerLimit::new);
+        limit.acquire();
+        return new Permit(limit, System.nanoTime());
+    }
+
+    /**
+     * 设置每台服务器并发上限的最大值，当前上限超过新值时会被截断
+     */
+    public void setMaxLimit(int maxLimit) {
+        this.maxLimit = Math.max(MIN_LIMIT, maxLimit);
+        limits.values().forEach(ServerLimit::clampToMax);
+    }
+
+    /**
+     * 获取各服务器当前的并发上限，按服务器地址排序
+     */
+    public List<Stats> getStats() {
+        return limits.values().stream()
+                .map(ServerLimit::snapshot)
+                .sorted(Comparator.comparing(Stats::serverAddress))
+                .toList();
+    }
+
+    /**
+     * 单台服务器的并发状态快照
+     * @param serverAddress 服务器地址
+     * @param limit 当前并发上限
+     * @param inFlight 正在进行的请求数
+     * @param minRttMillis 观测到的最小往返耗时（毫秒）
+     */
+    public record Stats(String serverAddress, int limit, int inFlight, long minRttMillis) {}
+
+    /**
+     * 一个已获取的并发名额
+     */
+    public static final class Permit {
+        private final ServerLimit limit;
+        private final long startNanos;
+        private boolean released = false;
+
+        private Permit(ServerLimit limit, long startNanos) {
+            this.limit = limit;
+            this.startNanos = startNanos;
+        }
+
+        /**
+         * 请求成功完成
+         */
+        public void onSuccess() {
+            release(Outcome.SUCCESS);
+        }
+
+        /**
+         * 请求失败或服务器表示过载
+         */
+        public void onFailure() {
+            release(Outcome.FAILURE);
+        }
+
+        /**
+         * 请求被取消，不参与上限调整
+         */
+        public void onCancel() {
+            release(Outcome.IGNORED);
+        }
+
+        private void release(Outcome outcome) {
+            if (!released) {
+                released = true;
+                limit.release(System.nanoTime() - startNanos, outcome);
+            }
+        }
+    }
+
+    private enum Outcome {
+        SUCCESS,
+        FAILURE,
+        IGNORED
+    }
+
+    private final class ServerLimit {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition permitAvailable = lock.newCondition();
+        private final String serverAddress;
+        private double limit = INITIAL_LIMIT;
+        private int inFlight = 0;
+        private double smoothedRttNanos = 0;
+        private double minRttNanos = Double.MAX_VALUE;
+        private int samples = 0;
+        // 上次乘性减的时间，一个往返内只减一次，避免同一波拥塞把上限连续压到底
+        private long lastDecreaseNanos = 0;
+
+        ServerLimit(String serverAddress) {
+            this.serverAddress = serverAddress;
+        }
+
+        void acquire() throws InterruptedException {
+            lock.lock();
+            try {
+                while (inFlight >= (int) limit) {
+                    try {
+                        permitAvailable.await();
+                    } catch (InterruptedException e) {
+                        // 可能已经收到了唤醒，转交给下一个等待者，避免名额空闲而其他线程继续等待
+                        permitAvailable.signal();
+                        throw e;
+                    }
+                }
+                inFlight++;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void release(long rttNanos, Outcome outcome) {
+            lock.lock();
+            try {
+                inFlight--;
+                if (outcome != Outcome.IGNORED) {
+                    adjustLimit(rttNanos, outcome);
+                }
+                // 只唤醒能拿到名额的数量，上限下调后也可能一个都不唤醒
+                for (int free = (int) limit - inFlight; free > 0; free--) {
+                    permitAvailable.signal();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void adjustLimit(long rttNanos, Outcome outcome) {
+            if (outcome == Outcome.SUCCESS) {
+                smoothedRttNanos = smoothedRttNanos == 0 ? rttNanos
+                        : smoothedRttNanos + RTT_SMOOTHING * (rttNanos - smoothedRttNanos);
+                if (++samples >= MIN_RTT_RESET_SAMPLES) {
+                    samples = 0;
+                    minRttNanos = smoothedRttNanos;
+                }
+                minRttNanos = Math.min(minRttNanos, smoothedRttNanos);
+            }
+
+            long now = System.nanoTime();
+            boolean congested = outcome == Outcome.FAILURE
+                    || (smoothedRttNanos > minRttNanos * LATENCY_TOLERANCE && smoothedRttNanos - minRttNanos > LATENCY_SLACK_NANOS);
+            if (congested) {
+                if (now - lastDecreaseNanos > Math.min((long) smoothedRttNanos, TimeUnit.SECONDS.toNanos(1))) {
+                    lastDecreaseNanos = now;
+                    double previous = limit;
+                    limit = Math.max(MIN_LIMIT, limit * BACKOFF_RATIO);
+                    if ((int) previous != (int) limit) {
+                        logger.debug("并发上限下调: {} {} -> {}", serverAddress, (int) previous, (int) limit);
+                    }
+                }
+            } else if (inFlight + 1 >= (int) limit / 2) {
+                // 只有上限被实际用到一半以上时才增长，否则增长没有依据
+                limit = Math.min(maxLimit, limit + 1.0 / limit);
+            }
+        }
+
+        void clampToMax() {
+            lock.lock();
+            try {
+                limit = Math.min(limit, maxLimit);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        Stats snapshot() {
+            lock.lock();
+            try {
+                long minRtt = minRttNanos == Double.MAX_VALUE ? 0 : TimeUnit.NANOSECONDS.toMillis((long) minRttNanos);
+                return new Stats(serverAddress, (int) limit, inFlight, minRtt);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package emu.nebula.nbcommand.service.command.transport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+
+/**
+ * 单台服务器的熔断器
+ * 连续失败达到阈值后打开，在冷却时间内直接拒绝请求；
+ * 冷却结束后进入半开状态，只放行一个试探请求，成功则关闭，失败则重新打开
+ */
+public class CircuitBreaker {
+    private static final Logger logger = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final String serverAddress;
+    private final int failureThreshold;
+    private final Duration openDuration;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures = 0;
+    private long openedAtNanos;
+    // 半开状态下是否已经有试探请求在进行
+    private boolean probeInFlight = false;
+
+    public CircuitBreaker(String serverAddress, int failureThreshold, Duration openDuration) {
+        this.serverAddress = serverAddress;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openDuration = openDuration;
+    }
+
+    /**
+     * 请求发送前调用，熔断器打开时抛出异常
+     */
+    public synchronized void acquire() throws CircuitOpenException {
+        switch (state) {
+            case CLOSED -> {
+            }
+            case OPEN -> {
+                long remaining = openDuration.toNanos() - (System.nanoTime() - openedAtNanos);
+                if (remaining > 0) {
+                    throw new CircuitOpenException(serverAddress, Duration.ofNanos(remaining));
+                }
+                state = State.HALF_OPEN;
+                probeInFlight = true;
+                logger.info("熔断器半开, 发送试探请求: {}", serverAddress);
+            }
+            case HALF_OPEN -> {
+                if (probeInFlight) {
+                    throw new CircuitOpenException(serverAddress, Duration.ZERO);
+                }
+                probeInFlight = true;
+            }
+        }
+    }
+
+    /**
+     * 请求成功后调用
+     */
+    public synchronized void onSuccess() {
+        if (state != State.CLOSED) {
+            logger.info("熔断器关闭, 服务器已恢复: {}", serverAddress);
+        }
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        probeInFlight = false;
+    }
+
+    /**
+     * 请求失败后调用
+     */
+    public synchronized void onFailure() {
+        consecutiveFailures++;
+        probeInFlight = false;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            if (state != State.OPEN) {
+                logger.warn("熔断器打开: {}, 连续失败 {} 次, {} 秒内的请求将被直接拒绝",
+                        serverAddress, consecutiveFailures, openDuration.toSeconds());
+            }
+            state = State.OPEN;
+            openedAtNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * 请求被取消时调用，释放试探名额但不计入失败
+     */
+    public synchronized void onCancel() {
+        probeInFlight = false;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public String getServerAddress() {
+        return serverAddress;
+    }
+}
@@ -0,0 +1,28 @@
+package emu.nebula.nbcommand.service.command.transport;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * 服务器的熔断器处于打开状态，请求未被发送
+ */
+public class CircuitOpenException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    private final String serverAddress;
+    private final Duration retryAfter;
+
+    public CircuitOpenException(String serverAddress, Duration retryAfter) {
+        super("Server " + serverAddress + " is temporarily unavailable, retry in " + Math.max(1, retryAfter.toSeconds()) + " s");
+        this.serverAddress = serverAddress;
+        this.retryAfter = retryAfter;
+    }
+
+    public String getServerAddress() {
+        return serverAddress;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
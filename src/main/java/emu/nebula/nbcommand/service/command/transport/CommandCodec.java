@@ -0,0 +1,155 @@
+package emu.nebula.nbcommand.service.command.transport;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.core.util.JsonRecyclerPools;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 命令请求/响应的JSON编解码
+ * 基于Jackson流式API，不构建对象树也不做数据绑定，线程安全，可在所有请求间共享。
+ * 解析缓冲区来自全局共享的回收池而不是ThreadLocal，每条命令一个虚拟线程时也能复用。
+ */
+public final class CommandCodec {
+    private static final JsonFactory FACTORY = JsonFactory.builder()
+            .recyclerPool(JsonRecyclerPools.sharedConcurrentDequePool())
+            .build();
+
+    // 典型的请求体不超过这个大小，预分配避免扩容
+    private static final int INITIAL_REQUEST_SIZE = 128;
+    // 响应体不超过消息上限的这个倍数时直接取完整的Msg再截断，更大的响应只解码Msg的开头
+    private static final int INLINE_MESSAGE_RATIO = 4;
+
+    private CommandCodec() {
+    }
+
+    /**
+     * 编码命令请求，命令中的引号、反斜杠和控制字符会被正确转义
+     * @param token 鉴权Token
+     * @param command 命令文本
+     * @return UTF-8编码的请求体
+     */
+    public static byte[] encodeRequest(String token, String command) throws IOException {
+        try (ByteArrayBuilder out = new ByteArrayBuilder(INITIAL_REQUEST_SIZE)) {
+            try (JsonGenerator generator = FACTORY.createGenerator(out)) {
+                generator.writeStartObject();
+                generator.writeStringField("token", token);
+                generator.writeStringField("command", command);
+                generator.writeEndObject();
+            }
+            return out.toByteArray();
+        }
+    }
+
+    /**
+     * 流式解析服务器响应，只读取顶层的Code和Msg字段，Data等其它字段直接跳过，
+     * 返回的消息最多只有maxMessageChars个字符。
+     * Jackson取字符串值时总会先把整个值读入解析缓冲区，因此较大的响应中Msg只记录位置、不取值，
+     * 之后从该位置重新打开响应，只解码开头的maxMessageChars个字符，内存占用与消息长度无关
+     * @param body 响应体
+     * @param maxMessageChars 消息最多保留的字符数，超出部分被丢弃
+     * @return 解析结果
+     * @throws IOException 响应不是合法的JSON对象时
+     */
+    public static Response decodeResponse(ResponseBody body, int maxMessageChars) throws IOException {
+        boolean inline = body.size() <= (long) maxMessageChars * INLINE_MESSAGE_RATIO;
+        String code = null;
+        String message = null;
+        long messageOffset = -1;
+        try (JsonParser parser = FACTORY.createParser(body.openStream())) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("响应不是JSON对象");
+            }
+
+            while ((code == null || message == null && messageOffset < 0) && parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if (!value.isScalarValue() || value == JsonToken.VALUE_NULL) {
+                    parser.skipChildren();
+                } else if (name.equals("Code") && code == null) {
+                    code = parser.getText();
+                } else if (name.equals("Msg") && message == null && messageOffset < 0) {
+                    if (inline || value != JsonToken.VALUE_STRING) {
+                        message = parser.getText();
+                    } else {
+                        // 不取值时下一次nextToken会直接跳过这个字符串，不做缓冲
+                        messageOffset = parser.currentTokenLocation().getByteOffset();
+                    }
+                }
+            }
+        }
+
+        if (messageOffset >= 0) {
+            try (InputStream in = body.openStream()) {
+                in.skipNBytes(messageOffset);
+                return readStringPrefix(new InputStreamReader(in, StandardCharsets.UTF_8), code, maxMessageChars);
+            }
+        }
+        if (message == null) {
+            return new Response(code, null, false);
+        }
+        return message.length() > maxMessageChars
+                ? new Response(code, message.substring(0, maxMessageChars), true)
+                : new Response(code, message, false);
+    }
+
+    /**
+     * 从JSON字符串的开头引号处解码至多maxChars个字符
+     */
+    private static Response readStringPrefix(Reader reader, String code, int maxChars) throws IOException {
+        if (reader.read() != '"') {
+            throw new IOException("Msg字段位置无效");
+        }
+        StringBuilder text = new StringBuilder(Math.min(maxChars, 1024));
+        while (text.length() < maxChars) {
+            int c = reader.read();
+            if (c < 0) {
+                throw new IOException("Msg字段不完整");
+            } else if (c == '"') {
+                return new Response(code, text.toString(), false);
+            } else if (c != '\\') {
+                text.append((char) c);
+                continue;
+            }
+            int escaped = reader.read();
+            switch (escaped) {
+                case '"', '\\', '/' -> text.append((char) escaped);
+                case 'b' -> text.append('\b');
+                case 'f' -> text.append('\f');
+                case 'n' -> text.append('\n');
+                case 'r' -> text.append('\r');
+                case 't' -> text.append('\t');
+                case 'u' -> {
+                    int unit = 0;
+                    for (int i = 0; i < 4; i++) {
+                        int digit = Character.digit(reader.read(), 16);
+                        if (digit < 0) {
+                            throw new IOException("Msg字段包含无效的转义");
+                        }
+                        unit = unit << 4 | digit;
+                    }
+                    text.append((char) unit);
+                }
+                default -> throw new IOException("Msg字段包含无效的转义");
+            }
+        }
+        // 已取满，后面只要不是结束引号就说明被截断
+        return new Response(code, text.toString(), reader.read() != '"');
+    }
+
+    /**
+     * 服务器响应
+     * @param code Code字段，没有时为null
+     * @param message Msg字段，没有时为null
+     * @param truncated 消息是否被截断
+     */
+    public record Response(String code, String message, boolean truncated) {}
+}
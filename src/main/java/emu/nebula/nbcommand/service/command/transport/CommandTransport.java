@@ -0,0 +1,201 @@
+package emu.nebula.nbcommand.service.command.transport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 命令传输层
+ * 持有一个长期存活的HttpClient，复用其连接池并优先协商HTTP/2，
+ * 使连续发送的命令可以复用已经建立好的连接。
+ * 配置更新时旧的传输层被退役而不是立即关闭：使用者先通过tryRetain租用，用完release，
+ * 退役后不再出租，最后一个租用归还时才真正关闭客户端，已经在进行的请求和重试不受影响
+ */
+public class CommandTransport implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(CommandTransport.class);
+
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(10);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    // 单个响应在内存中最多保留的字节数，超出部分写入临时文件
+    public static final int DEFAULT_RESPONSE_MEMORY_LIMIT = 256 * 1024;
+
+    static {
+        // HttpClient的连接池在首次使用时读取这些属性，必须在创建客户端之前设置
+        // 默认的空闲连接保活时间较短，批量操作的间隙里连接会被回收
+        setDefaultProperty("jdk.httpclient.keepalive.timeout", "120");
+        setDefaultProperty("jdk.httpclient.keepalive.timeout.h2", "120");
+    }
+
+    private final HttpClient client;
+    private volatile int responseMemoryLimit = DEFAULT_RESPONSE_MEMORY_LIMIT;
+
+    // 连接池统计
+    private final LongAdder totalRequests = new LongAdder();
+    private final LongAdder failedRequests = new LongAdder();
+    private final LongAdder http2Responses = new LongAdder();
+    private final LongAdder http1Responses = new LongAdder();
+    private final LongAdder totalLatencyNanos = new LongAdder();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    // 当前的租用数，退役后归零时关闭
+    private final AtomicInteger leases = new AtomicInteger();
+    private volatile boolean retired = false;
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    public CommandTransport() {
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2) // 优先HTTP/2，服务端不支持时自动回退到HTTP/1.1
+                .connectTimeout(CONNECT_TIMEOUT)
+                .build();
+    }
+
+    /**
+     * 发送一个JSON请求并等待响应
+     * @param uri 目标地址
+     * @param jsonBody UTF-8编码的请求体
+     * @return 服务器响应
+     */
+    public HttpResponse<ResponseBody> send(URI uri, byte[] jsonBody) throws IOException, InterruptedException {
+        return send(uri, jsonBody, REQUEST_TIMEOUT);
+    }
+
+    /**
+     * 发送一个JSON请求并等待响应
+     * @param uri 目标地址
+     * @param jsonBody UTF-8编码的请求体
+     * @param timeout 请求超时时间
+     * @return 服务器响应，超过内存上限的响应体会写入临时文件
+     */
+    public HttpResponse<ResponseBody> send(URI uri, byte[] jsonBody, Duration timeout) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(uri)
+                .timeout(timeout)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(jsonBody))
+                .build();
+
+        totalRequests.increment();
+        inFlight.incrementAndGet();
+        long start = System.nanoTime();
+        try {
+            HttpResponse<ResponseBody> response = client.send(request, SpillingBodySubscriber.handler(responseMemoryLimit));
+            if (response.version() == HttpClient.Version.HTTP_2) {
+                http2Responses.increment();
+            } else {
+                http1Responses.increment();
+            }
+            return response;
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            failedRequests.increment();
+            throw e;
+        } finally {
+            totalLatencyNanos.add(System.nanoTime() - start);
+            inFlight.decrementAndGet();
+        }
+    }
+
+    /**
+     * 探测服务器是否在线
+     * 只要收到任意HTTP响应就认为服务器可达，不计入统计
+     * @param uri 探测地址
+     * @param timeout 超时时间
+     * @return 响应状态码
+     */
+    public int probe(URI uri, Duration timeout) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(uri)
+                .timeout(timeout)
+                .GET()
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    /**
+     * 设置单个响应在内存中最多保留的字节数
+     */
+    public void setResponseMemoryLimit(int responseMemoryLimit) {
+        this.responseMemoryLimit = Math.max(1024, responseMemoryLimit);
+    }
+
+    /**
+     * 获取连接池统计信息
+     * @return 统计快照
+     */
+    public Stats getStats() {
+        long requests = totalRequests.sum();
+        long avgLatencyMillis = requests == 0 ? 0 : totalLatencyNanos.sum() / requests / 1_000_000;
+        return new Stats(requests, failedRequests.sum(), inFlight.get(),
+                http2Responses.sum(), http1Responses.sum(), avgLatencyMillis);
+    }
+
+    /**
+     * 租用传输层，成功后必须调用release归还
+     * @return 是否租用成功，已退役时返回false，调用方应改用新的传输层
+     */
+    public boolean tryRetain() {
+        leases.incrementAndGet();
+        if (retired) {
+            release();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 归还租用，退役后最后一个租用归还时关闭传输层
+     */
+    public void release() {
+        if (leases.decrementAndGet() == 0 && retired) {
+            close();
+        }
+    }
+
+    /**
+     * 退役传输层，不再出租，没有租用时立即关闭，否则等最后一个租用归还后关闭
+     */
+    public void retire() {
+        retired = true;
+        if (leases.get() == 0) {
+            close();
+        }
+    }
+
+    /**
+     * 立即关闭传输层，可重复调用
+     * 正在进行的请求会失败，配置更新时应使用retire
+     */
+    @Override
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            client.shutdown();
+            logger.info("命令传输层已关闭, 统计: {}", getStats());
+        }
+    }
+
+    private static void setDefaultProperty(String key, String value) {
+        if (System.getProperty(key) == null) {
+            System.setProperty(key, value);
+        }
+    }
+
+    /**
+     * 连接池统计快照
+     * @param totalRequests 已发送请求数
+     * @param failedRequests 失败请求数（网络层异常）
+     * @param inFlight 当前正在进行的请求数
+     * @param http2Responses 通过HTTP/2返回的响应数
+     * @param http1Responses 通过HTTP/1.1返回的响应数
+     * @param avgLatencyMillis 平均往返耗时（毫秒）
+     */
+    public record Stats(long totalRequests, long failedRequests, int inFlight,
+                        long http2Responses, long http1Responses, long avgLatencyMillis) {}
+}
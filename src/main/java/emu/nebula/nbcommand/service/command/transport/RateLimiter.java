@@ -0,0 +1,123 @@
+package emu.nebula.nbcommand.service.command.transport;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 客户端令牌桶限流器
+ * 每个键（服务器地址+Token）一个令牌桶，令牌按固定速率补充，最多积攒burst个。
+ * 令牌不足时请求不会被丢弃，而是按到达顺序排队等待，保证批量操作不超过服务器能承受的速率
+ */
+public class RateLimiter {
+    private volatile double permitsPerSecond;
+    private volatile int burst;
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    // 排队统计
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final AtomicLong lastWaitNanos = new AtomicLong();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final LongAdder waitedRequests = new LongAdder();
+
+    /**
+     * @param permitsPerSecond 每秒允许的请求数，小于等于0表示不限流
+     * @param burst 允许的突发请求数
+     */
+    public RateLimiter(double permitsPerSecond, int burst) {
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = Math.max(1, burst);
+    }
+
+    /**
+     * 获取一个令牌，令牌不足时阻塞等待
+     * @param key 限流键
+     */
+    public void acquire(String key) throws InterruptedException {
+        if (permitsPerSecond <= 0) {
+            return;
+        }
+
+        long waitNanos = buckets.computeIfAbsent(key, k -> new TokenBucket(permitsPerSecond, burst)).reserve();
+        if (waitNanos <= 0) {
+            return;
+        }
+
+        queueDepth.incrementAndGet();
+        try {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        } finally {
+            queueDepth.decrementAndGet();
+            lastWaitNanos.set(waitNanos);
+            totalWaitNanos.add(waitNanos);
+            waitedRequests.increment();
+        }
+    }
+
+    /**
+     * 修改限流速率，已有的令牌桶会被丢弃
+     */
+    public void setRate(double permitsPerSecond, int burst) {
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = Math.max(1, burst);
+        buckets.clear();
+    }
+
+    /**
+     * 获取排队统计
+     */
+    public Stats getStats() {
+        long waited = waitedRequests.sum();
+        return new Stats(queueDepth.get(),
+                Duration.ofNanos(lastWaitNanos.get()).toMillis(),
+                waited == 0 ? 0 : totalWaitNanos.sum() / waited / 1_000_000,
+                permitsPerSecond);
+    }
+
+    /**
+     * 排队统计快照
+     * @param queueDepth 当前正在等待令牌的请求数
+     * @param lastWaitMillis 最近一次排队等待的时间（毫秒）
+     * @param avgWaitMillis 排队请求的平均等待时间（毫秒）
+     * @param permitsPerSecond 当前限流速率，小于等于0表示不限流
+     */
+    public record Stats(int queueDepth, long lastWaitMillis, long avgWaitMillis, double permitsPerSecond) {}
+
+    /**
+     * 单个令牌桶
+     * 采用预约的方式实现: 每个请求预约下一个可用的时间点并返回需要等待的时间，
+     * 等待在锁外进行，因此排队的请求按到达顺序依次放行
+     */
+    private static final class TokenBucket {
+        private final double intervalNanos;
+        private final double maxPermits;
+        private double storedPermits;
+        private long nextFreeNanos;
+
+        TokenBucket(double permitsPerSecond, int burst) {
+            this.intervalNanos = TimeUnit.SECONDS.toNanos(1) / permitsPerSecond;
+            this.maxPermits = burst;
+            this.storedPermits = burst;
+            this.nextFreeNanos = System.nanoTime();
+        }
+
+        synchronized long reserve() {
+            long now = System.nanoTime();
+            if (now > nextFreeNanos) {
+                // 空闲期间补充令牌
+                storedPermits = Math.min(maxPermits, storedPermits + (now - nextFreeNanos) / intervalNanos);
+                nextFreeNanos = now;
+            }
+
+            long waitNanos = nextFreeNanos - now;
+            double fromStored = Math.min(1, storedPermits);
+            storedPermits -= fromStored;
+            nextFreeNanos += (long) ((1 - fromStored) * intervalNanos);
+            return waitNanos;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package emu.nebula.nbcommand.service.command.transport;
+
+import emu.nebula.nbcommand.model.ServerEndpoint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 带重试、熔断和限流的命令发送
+ * 在CommandTransport之上按RetryPolicy重试确定没有送达的请求，并为每个服务器地址维护一个熔断器，
+ * 服务器宕机时快速失败，避免请求堆积和用户反复点击造成的突发流量。
+ * 每次尝试（包括重试）发送前都需要从限流器获取令牌，并占用一个自适应并发名额
+ */
+public class ResilientSender {
+    private static final Logger logger = LoggerFactory.getLogger(ResilientSender.class);
+
+    private static final int FAILURE_THRESHOLD = 5;
+    private static final Duration OPEN_DURATION = Duration.ofSeconds(15);
+
+    private final RateLimiter rateLimiter;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private volatile RetryPolicy retryPolicy = RetryPolicy.DEFAULT;
+    // 服务器地址 -> 熔断器，跨传输层重建保留
+    private final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    public ResilientSender(RateLimiter rateLimiter, AdaptiveConcurrencyLimiter concurrencyLimiter) {
+        this.rateLimiter = rateLimiter;
+        this.concurrencyLimiter = concurrencyLimiter;
+    }
+
+    /**
+     * 发送请求，确定没有送达的请求会按策略重试，可能已被执行的请求不重发
+     * 重试用尽后，最后一次的错误响应会原样返回，最后一次的异常会原样抛出
+     *
+     * @param transport 传输层
+     * @param endpoint 目标服务器，地址作为熔断器的键，地址和Token作为限流的键
+     * @param uri 目标地址
+     * @param jsonBody UTF-8编码的请求体，重试时原样重发
+     * @param timeout 单次请求的超时时间，为null时使用默认超时
+     */
+    public HttpResponse<ResponseBody> send(CommandTransport transport, ServerEndpoint endpoint, URI uri, byte[] jsonBody, Duration timeout)
+            throws IOException, InterruptedException {
+        String serverAddress = endpoint.serverAddress();
+        String rateLimitKey = serverAddress + "|" + endpoint.authToken();
+        RetryPolicy policy = retryPolicy;
+        CircuitBreaker breaker = breakers.computeIfAbsent(serverAddress,
+                address -> new CircuitBreaker(address, FAILURE_THRESHOLD, OPEN_DURATION));
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                breaker.acquire();
+            } catch (CircuitOpenException e) {
+                rejected.increment();
+                throw e;
+            }
+
+            HttpResponse<ResponseBody> response;
+            AdaptiveConcurrencyLimiter.Permit permit = null;
+            try {
+                // 熔断检查在排队之前，服务器宕机时不必等待令牌
+                rateLimiter.acquire(rateLimitKey);
+                permit = concurrencyLimiter.acquire(serverAddress);
+                response = timeout == null ? transport.send(uri, jsonBody) : transport.send(uri, jsonBody, timeout);
+            } catch (InterruptedException e) {
+                if (permit != null) {
+                    permit.onCancel();
+                }
+                breaker.onCancel();
+                throw e;
+            } catch (IOException e) {
+                permit.onFailure();
+                breaker.onFailure();
+                if (attempt >= policy.maxAttempts() || !policy.isRetryable(e)) {
+                    throw e;
+                }
+                logger.warn("请求失败, 第 {} 次重试: {} - {}", attempt, serverAddress, e.toString());
+                pause(policy, attempt);
+                continue;
+            } catch (RuntimeException e) {
+                if (permit != null) {
+                    permit.onCancel();
+                }
+                breaker.onCancel();
+                throw e;
+            }
+
+            // 5xx视为服务器故障，429只是限流，不影响熔断器；两者都说明服务器过载，并发上限需要下调
+            if (response.statusCode() >= 500 || response.statusCode() == 429) {
+                permit.onFailure();
+            } else {
+                permit.onSuccess();
+            }
+            if (response.statusCode() >= 500) {
+                breaker.onFailure();
+            } else {
+                breaker.onSuccess();
+            }
+            if (attempt >= policy.maxAttempts() || !policy.isRetryable(response.statusCode())) {
+                return response;
+            }
+            logger.warn("服务器返回 {}, 第 {} 次重试: {}", response.statusCode(), attempt, serverAddress);
+            response.body().discard();
+            pause(policy, attempt);
+        }
+    }
+
+    private void pause(RetryPolicy policy, int attempt) throws InterruptedException {
+        retries.increment();
+        Thread.sleep(policy.backoff(attempt));
+    }
+
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    /**
+     * 获取重试和熔断统计
+     */
+    public Stats getStats() {
+        int open = (int) breakers.values().stream()
+                .filter(breaker -> breaker.getState() != CircuitBreaker.State.CLOSED)
+                .count();
+        return new Stats(retries.sum(), rejected.sum(), open);
+    }
+
+    /**
+     * 重试和熔断统计快照
+     * @param retries 累计重试次数
+     * @param rejected 因熔断被直接拒绝的请求数
+     * @param openCircuits 当前未关闭的熔断器数量
+     */
+    public record Stats(long retries, long rejected, int openCircuits) {}
+}
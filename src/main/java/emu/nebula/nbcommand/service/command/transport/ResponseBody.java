@@ -0,0 +1,82 @@
+package emu.nebula.nbcommand.service.command.transport;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * 有内存上限的响应体
+ * 不超过上限的响应保存在内存中；超过上限的响应完整写入临时文件，内存中只保留开头一段用于预览
+ *
+ * @param head 响应开头的字节，未溢出时就是完整的响应
+ * @param size 响应的总字节数
+ * @param file 溢出时完整响应所在的临时文件，未溢出时为null
+ */
+public record ResponseBody(byte[] head, long size, Path file) {
+    private static final String SPILL_PREFIX = "nbcommand-response-";
+
+    /**
+     * 创建保存完整响应的临时文件，程序退出时删除
+     */
+    static Path createSpillFile() throws IOException {
+        Path file = Files.createTempFile(SPILL_PREFIX, ".json");
+        file.toFile().deleteOnExit();
+        return file;
+    }
+
+    /**
+     * 响应是否因为超过内存上限而写入了临时文件
+     */
+    public boolean isSpilled() {
+        return file != null;
+    }
+
+    /**
+     * 打开完整响应的输入流，溢出时从临时文件读取
+     */
+    public InputStream openStream() throws IOException {
+        return file != null ? Files.newInputStream(file) : new ByteArrayInputStream(head);
+    }
+
+    /**
+     * 响应文本，溢出时只有开头部分
+     */
+    public String text() {
+        return new String(head, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 确保完整响应保存在文件中，未溢出的响应会写入新的临时文件
+     * 用于响应本身不大、但消息太长无法完整显示的情况
+     * @return 保存在文件中的响应体
+     */
+    public ResponseBody toFile() throws IOException {
+        if (file != null) {
+            return this;
+        }
+        Path spillFile = createSpillFile();
+        Files.write(spillFile, head);
+        return new ResponseBody(head, size, spillFile);
+    }
+
+    /**
+     * 删除临时文件，重试时丢弃的响应应该立即清理
+     */
+    public void discard() {
+        if (file != null) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException ignored) {
+                // 退出时还会再删除一次
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return isSpilled() ? "ResponseBody[" + size + " bytes in " + file + "]" : text();
+    }
+}
@@ -0,0 +1,67 @@
+package emu.nebula.nbcommand.service.command.transport;
+
+import java.net.ConnectException;
+import java.net.http.HttpConnectTimeoutException;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 重试策略
+ * 使用带全抖动的指数退避: 第n次重试前等待 [0, min(maxDelay, baseDelay * 2^(n-1))) 之间的随机时间，
+ * 避免大量客户端在服务器恢复的同一时刻集中重试
+ *
+ * @param maxAttempts 最大尝试次数（含首次请求），为1时不重试
+ * @param baseDelay 第一次重试的退避上限
+ * @param maxDelay 单次退避的最大时间
+ */
+public record RetryPolicy(int maxAttempts, Duration baseDelay, Duration maxDelay) {
+    public static final RetryPolicy DEFAULT = new RetryPolicy(3, Duration.ofMillis(200), Duration.ofSeconds(5));
+
+    public RetryPolicy {
+        maxAttempts = Math.max(1, maxAttempts);
+    }
+
+    /**
+     * 返回修改了最大尝试次数的新策略
+     */
+    public RetryPolicy withMaxAttempts(int maxAttempts) {
+        return new RetryPolicy(maxAttempts, baseDelay, maxDelay);
+    }
+
+    /**
+     * 异常是否值得重试
+     * 命令不是幂等的，只重试确定没有到达服务器的请求：连接失败和连接超时。
+     * 读取超时、连接被重置等情况下服务器可能已经执行过命令，重发会重复发放，交给用户处理；
+     * 熔断器拒绝的请求也不重试
+     */
+    public boolean isRetryable(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof CircuitOpenException) {
+                return false;
+            }
+            if (cause instanceof ConnectException || cause instanceof HttpConnectTimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 状态码是否值得重试
+     * 只重试429请求过多和503服务不可用，这两种情况下服务器没有执行命令；
+     * 500、502、504时命令可能已经执行，不重试
+     */
+    public boolean isRetryable(int statusCode) {
+        return statusCode == 429 || statusCode == 503;
+    }
+
+    /**
+     * 计算第attempt次重试前的等待时间
+     * @param attempt 重试序号，从1开始
+     */
+    public Duration backoff(int attempt) {
+        long cap = baseDelay.toMillis() << Math.min(attempt - 1, 20);
+        long bound = Math.max(1, Math.min(maxDelay.toMillis(), cap));
+        return Duration.ofMillis(ThreadLocalRandom.current().nextLong(bound));
+    }
+}
@@ -0,0 +1,136 @@
+package emu.nebula.nbcommand.service.command.transport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+
+/**
+ * 边接收边处理的响应体订阅者
+ * 响应先缓存在内存中，超过上限后把已缓存的部分和后续数据一起写入临时文件，
+ * 每次只向连接请求一批数据，写文件跟不上时由HttpClient负责反压，内存占用不超过上限加一批缓冲区。
+ */
+class SpillingBodySubscriber implements HttpResponse.BodySubscriber<ResponseBody> {
+    private static final Logger logger = LoggerFactory.getLogger(SpillingBodySubscriber.class);
+
+    private final int memoryLimit;
+    private final CompletableFuture<ResponseBody> result = new CompletableFuture<>();
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    private Flow.Subscription subscription;
+    private byte[] head;
+    private Path file;
+    private FileChannel channel;
+    private long size = 0;
+
+    SpillingBodySubscriber(int memoryLimit) {
+        this.memoryLimit = memoryLimit;
+    }
+
+    /**
+     * 创建使用该订阅者的BodyHandler
+     * @param memoryLimit 内存中最多保留的字节数
+     */
+    static HttpResponse.BodyHandler<ResponseBody> handler(int memoryLimit) {
+        return responseInfo -> new SpillingBodySubscriber(memoryLimit);
+    }
+
+    @Override
+    public CompletionStage<ResponseBody> getBody() {
+        return result;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        subscription.request(1);
+    }
+
+    @Override
+    public void onNext(List<ByteBuffer> buffers) {
+        try {
+            for (ByteBuffer byteBuffer : buffers) {
+                size += byteBuffer.remaining();
+                if (channel == null && buffer.size() + byteBuffer.remaining() > memoryLimit) {
+                    spill();
+                }
+                if (channel != null) {
+                    while (byteBuffer.hasRemaining()) {
+                        channel.write(byteBuffer);
+                    }
+                } else {
+                    byte[] bytes = new byte[byteBuffer.remaining()];
+                    byteBuffer.get(bytes);
+                    buffer.writeBytes(bytes);
+                }
+            }
+            subscription.request(1);
+        } catch (IOException e) {
+            subscription.cancel();
+            onError(e);
+        }
+    }
+
+    /**
+     * 把已缓存的部分写入临时文件，之后的数据直接写文件
+     */
+    private void spill() throws IOException {
+        file = ResponseBody.createSpillFile();
+        channel = FileChannel.open(file, StandardOpenOption.WRITE);
+        head = buffer.toByteArray();
+        ByteBuffer pending = ByteBuffer.wrap(head);
+        while (pending.hasRemaining()) {
+            channel.write(pending);
+        }
+        buffer.reset();
+        logger.debug("响应超过内存上限 {} 字节, 写入临时文件 {}", memoryLimit, file);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        closeChannel();
+        if (file != null) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException ignored) {
+                // 退出时还会再删除一次
+            }
+        }
+        result.completeExceptionally(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        if (channel == null) {
+            result.complete(new ResponseBody(buffer.toByteArray(), size, null));
+            return;
+        }
+
+        try {
+            channel.close();
+            result.complete(new ResponseBody(head, size, file));
+        } catch (IOException e) {
+            onError(e);
+        }
+    }
+
+    private void closeChannel() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // 只是清理
+            }
+        }
+    }
+}
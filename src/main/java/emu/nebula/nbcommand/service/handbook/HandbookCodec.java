@@ -0,0 +1,132 @@
+package emu.nebula.nbcommand.service.handbook;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 手册数据的JSON解析和二进制编解码
+ * 二进制格式（大端序）：
+ * <pre>
+ * int    魔数 "NBHB"
+ * int    版本
+ * int    字符串数量 S
+ * int[S+1] 每个字符串在字符串区中的起始字节偏移，最后一项为字符串区总长度
+ * byte[] 字符串区，UTF-8编码，名称和类型去重后各存一份
+ * int    条目数量 N
+ * N × (int ID, int 名称字符串序号, int 类型字符串序号)
+ * </pre>
+ */
+public final class HandbookCodec {
+    public static final String BINARY_EXTENSION = ".bin";
+
+    private static final int MAGIC = 0x4E424842;
+    private static final int VERSION = 1;
+
+    private HandbookCodec() {
+    }
+
+    /**
+     * 从JSON读取数据集的全部条目，缺少类型字段的条目类型为"Unknown"
+     */
+    public static HandbookStore readJson(InputStream stream, HandbookDataset dataset) throws IOException {
+        JsonNode root = new ObjectMapper().readTree(stream);
+        JsonNode dataArray = root.get(dataset.getArrayFieldName());
+        HandbookStore.Builder builder = new HandbookStore.Builder();
+        if (dataArray != null && dataArray.isArray()) {
+            for (JsonNode node : dataArray) {
+                int id = node.get("id").asInt();
+                String name = node.get(dataset.getNameFieldName()).asText();
+                String type = node.has(dataset.getTypeFieldName()) ? node.get(dataset.getTypeFieldName()).asText() : "Unknown";
+                builder.add(id, name, type);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * 把条目写为二进制格式
+     */
+    public static void write(HandbookStore store, OutputStream stream) throws IOException {
+        Map<String, Integer> stringIndexes = new LinkedHashMap<>();
+        int[][] records = new int[store.size()][];
+        for (int i = 0; i < store.size(); i++) {
+            int name = stringIndexes.computeIfAbsent(store.name(i), key -> stringIndexes.size());
+            int type = stringIndexes.computeIfAbsent(store.type(i), key -> stringIndexes.size());
+            records[i] = new int[]{store.id(i), name, type};
+        }
+
+        DataOutputStream out = new DataOutputStream(stream);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(stringIndexes.size());
+        List<byte[]> encoded = new ArrayList<>(stringIndexes.size());
+        int offset = 0;
+        out.writeInt(offset);
+        for (String string : stringIndexes.keySet()) {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            encoded.add(bytes);
+            offset += bytes.length;
+            out.writeInt(offset);
+        }
+        for (byte[] bytes : encoded) {
+            out.write(bytes);
+        }
+        out.writeInt(records.length);
+        for (int[] record : records) {
+            out.writeInt(record[0]);
+            out.writeInt(record[1]);
+            out.writeInt(record[2]);
+        }
+        out.flush();
+    }
+
+    /**
+     * 读取二进制格式的条目
+     * 每个字符串只解码一次，相同的名称和类型共用同一个实例
+     * @throws IOException 魔数或版本不匹配、数据被截断时
+     */
+    public static HandbookStore read(ByteBuffer buffer) throws IOException {
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("不是手册二进制文件");
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("不支持的手册二进制版本: " + version);
+            }
+
+            int stringCount = buffer.getInt();
+            int[] offsets = new int[stringCount + 1];
+            for (int i = 0; i <= stringCount; i++) {
+                offsets[i] = buffer.getInt();
+            }
+            byte[] stringData = new byte[offsets[stringCount]];
+            buffer.get(stringData);
+            String[] strings = new String[stringCount];
+            for (int i = 0; i < stringCount; i++) {
+                strings[i] = new String(stringData, offsets[i], offsets[i + 1] - offsets[i], StandardCharsets.UTF_8);
+            }
+
+            int count = buffer.getInt();
+            HandbookStore.Builder builder = new HandbookStore.Builder();
+            for (int i = 0; i < count; i++) {
+                builder.add(buffer.getInt(), strings[buffer.getInt()], strings[buffer.getInt()]);
+            }
+            return builder.build();
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException e) {
+            throw new IOException("手册二进制文件已损坏", e);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package emu.nebula.nbcommand.service.handbook;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * 构建时把手册JSON编译为二进制格式，由pom.xml在process-classes阶段调用
+ * JSON仍是唯一的数据来源，二进制文件只是加载时的缓存，缺失时程序回退到解析JSON
+ * 用法: HandbookCompiler &lt;JSON根目录&gt; &lt;输出根目录&gt;，两个目录下都是按语言分的子目录
+ */
+public final class HandbookCompiler {
+    private HandbookCompiler() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: HandbookCompiler <handbook source dir> <output dir>");
+            System.exit(2);
+        }
+        Path sourceRoot = Paths.get(args[0]);
+        Path outputRoot = Paths.get(args[1]);
+
+        int compiled = 0;
+        try (DirectoryStream<Path> locales = Files.newDirectoryStream(sourceRoot, Files::isDirectory)) {
+            for (Path localeDir : locales) {
+                Path outputDir = outputRoot.resolve(localeDir.getFileName().toString());
+                Files.createDirectories(outputDir);
+                for (HandbookDataset dataset : HandbookDataset.values()) {
+                    Path json = localeDir.resolve(dataset.getFileName() + ".json");
+                    if (Files.isRegularFile(json)) {
+                        compile(json, outputDir.resolve(dataset.getFileName() + HandbookCodec.BINARY_EXTENSION), dataset);
+                        compiled++;
+                    }
+                }
+            }
+        }
+        System.out.println("Compiled " + compiled + " handbook files into " + outputRoot);
+    }
+
+    private static void compile(Path json, Path output, HandbookDataset dataset) throws IOException {
+        HandbookStore store;
+        try (InputStream stream = Files.newInputStream(json)) {
+            store = HandbookCodec.readJson(stream, dataset);
+        }
+        try (OutputStream stream = Files.newOutputStream(output)) {
+            HandbookCodec.write(store, stream);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package emu.nebula.nbcommand.service.handbook;
+
+/**
+ * 手册数据集及其JSON来源
+ * 每种语言的目录下各有一个JSON文件，构建时由HandbookCompiler编译为同名的二进制文件
+ */
+public enum HandbookDataset {
+    // 物品数据
+    ITEMS("items", "Items", "items", "title", "type"),
+    // 角色数据
+    CHARACTERS("characters", "Characters", "characters", "name", "element"),
+    // 秘纹数据
+    DISCS("discs", "Discs", "discs", "name", "element"),
+    // 秘纹音符数据
+    SUB_NOTE_SKILLS("subNoteSkills", "SubNoteSkills", "subNoteSkills", "name", "element"),
+    // 角色潜能数据
+    POTENTIALS("potentials", "Potentials", "potentials", "name", "element");
+
+    private final String dataIdentifier;
+    private final String fileName;
+    private final String arrayFieldName;
+    private final String nameFieldName;
+    private final String typeFieldName;
+
+    /**
+     * @param dataIdentifier 数据标识符 - 与命令执行框显示的参数一致
+     * @param fileName 不含扩展名的文件名
+     * @param arrayFieldName JSON数组字段名
+     * @param nameFieldName 名称字段名 - 字符(多种语言 对应游戏显示内容)
+     * @param typeFieldName 类型字段名 - 过滤器用
+     */
+    HandbookDataset(String dataIdentifier, String fileName, String arrayFieldName, String nameFieldName, String typeFieldName) {
+        this.dataIdentifier = dataIdentifier;
+        this.fileName = fileName;
+        this.arrayFieldName = arrayFieldName;
+        this.nameFieldName = nameFieldName;
+        this.typeFieldName = typeFieldName;
+    }
+
+    /**
+     * 根据数据标识符查找数据集
+     * @return 数据集，不是手册数据时返回null
+     */
+    public static HandbookDataset fromIdentifier(String dataIdentifier) {
+        for (HandbookDataset dataset : values()) {
+            if (dataset.dataIdentifier.equals(dataIdentifier)) {
+                return dataset;
+            }
+        }
+        return null;
+    }
+
+    public String getDataIdentifier() {
+        return dataIdentifier;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public String getArrayFieldName() {
+        return arrayFieldName;
+    }
+
+    public String getNameFieldName() {
+        return nameFieldName;
+    }
+
+    public String getTypeFieldName() {
+        return typeFieldName;
+    }
+
+    /**
+     * JSON资源路径，如"/handbook/zh_CN/Items.json"
+     */
+    public String jsonResource(String languageCode) {
+        return "/handbook/" + languageCode + "/" + fileName + ".json";
+    }
+
+    /**
+     * 编译后的二进制资源路径，如"/handbook/zh_CN/Items.bin"
+     */
+    public String binaryResource(String languageCode) {
+        return "/handbook/" + languageCode + "/" + fileName + HandbookCodec.BINARY_EXTENSION;
+    }
+}
@@ -0,0 +1,564 @@
+package emu.nebula.nbcommand.service.handbook;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 手册数据集的内存搜索索引，覆盖所有语言
+ * 各语言中ID相同的条目合并为一个条目：ID、每种语言的名称和名称的读音键预先转换为规范形式，相同的名称只保留一份，
+ * 按单字和双字建立倒排表，ID另按字典序排序用于前缀查找。因此用任何一种语言的名称都能查到条目，结果以调用方传入的语言显示。
+ * 查询结果按匹配程度排序：ID前缀 > 名称前缀 > 读音键及其他语言名称前缀 > 词首 > 子串 > 子序列 > 拼写错误（编辑距离），
+ * 前面的档次已经取满所需数量时不再计算后面的档次，耗时与手册大小基本无关。
+ */
+public class HandbookIndex {
+    // 字段之间的分隔符，不会出现在输入中，避免查询跨越两个字段
+    private static final char FIELD_SEPARATOR = '\u0000';
+    private static final int[] NO_POSTINGS = new int[0];
+
+    // 匹配档次，数值越大排名越靠前
+    private static final int TIER_NAME_PREFIX = 8;
+    private static final int TIER_KEY_PREFIX = 7;
+    private static final int TIER_NAME_WORD = 6;
+    private static final int TIER_KEY_WORD = 5;
+    private static final int TIER_SUBSTRING = 4;
+    private static final int TIER_SUBSEQUENCE = 3;
+    private static final int TIER_TYPO = 2;
+    // 启用子序列和拼写纠错所需的最短查询长度，过短的查询几乎能匹配所有条目；中日韩文字信息量大，两个字即可
+    private static final int MIN_SUBSEQUENCE_LENGTH = 3;
+    private static final int MIN_CJK_SUBSEQUENCE_LENGTH = 2;
+    private static final int MIN_TYPO_LENGTH = 4;
+
+    // 构建索引的各语言存储
+    private final List<HandbookStore> stores;
+    // [语言][条目] -> 该语言存储中的条目序号，该语言没有此ID时为-1
+    private final int[][] storeEntries;
+    // [语言][条目] -> 该语言的名称在fields中的位置，没有时为-1
+    private final int[][] nameFields;
+    // ID的字符串形式，用于前缀查找
+    private final String[] ids;
+    // 每个条目的规范形式字段：[0]为ID，其后为各语言去重后的名称，再后为读音键
+    private final String[][] fields;
+    // 所有字段以分隔符连接，用于建立倒排表和校验子串
+    private final String[] keys;
+    // 按ID字典序排列的条目序号
+    private final int[] byId;
+    // 单字和双字 -> 包含它的条目序号（升序）
+    private final Map<Integer, int[]> unigrams;
+    private final Map<Integer, int[]> bigrams;
+
+    private HandbookIndex(List<HandbookStore> stores) {
+        this.stores = List.copyOf(stores);
+
+        // 按ID合并各语言的条目，条目顺序为ID第一次出现的顺序
+        Map<Integer, Integer> entriesById = new HashMap<>();
+        List<Integer> entryIds = new ArrayList<>();
+        for (HandbookStore store : stores) {
+            for (int i = 0; i < store.size(); i++) {
+                entriesById.computeIfAbsent(store.id(i), id -> {
+                    entryIds.add(id);
+                    return entryIds.size() - 1;
+                });
+            }
+        }
+
+        int size = entryIds.size();
+        storeEntries = new int[stores.size()][size];
+        nameFields = new int[stores.size()][size];
+        for (int[] entries : storeEntries) {
+            Arrays.fill(entries, -1);
+        }
+        for (int[] entries : nameFields) {
+            Arrays.fill(entries, -1);
+        }
+
+        ids = new String[size];
+        fields = new String[size][];
+        keys = new String[size];
+        // 所有条目共用的规范形式字符串，各语言相同的名称和读音键只保留一个实例
+        Map<String, String> pool = new HashMap<>();
+        List<String> names = new ArrayList<>();
+        Set<String> phonetic = new LinkedHashSet<>();
+        for (int entry = 0; entry < size; entry++) {
+            int id = entryIds.get(entry);
+            ids[entry] = Integer.toString(id);
+            names.clear();
+            phonetic.clear();
+            for (int s = 0; s < stores.size(); s++) {
+                HandbookStore store = stores.get(s);
+                int storeEntry = store.indexOf(id);
+                if (storeEntry < 0) {
+                    continue;
+                }
+                storeEntries[s][entry] = storeEntry;
+                String name = pool.computeIfAbsent(PhoneticKeys.canonical(store.name(storeEntry)), key -> key);
+                int position = names.indexOf(name);
+                if (position < 0) {
+                    names.add(name);
+                    position = names.size() - 1;
+                }
+                nameFields[s][entry] = 1 + position;
+                phonetic.addAll(PhoneticKeys.of(store.name(storeEntry)));
+            }
+            // 与名称相同的读音键不再重复
+            phonetic.removeAll(names);
+
+            String[] entryFields = new String[1 + names.size() + phonetic.size()];
+            entryFields[0] = ids[entry];
+            int f = 1;
+            for (String name : names) {
+                entryFields[f++] = name;
+            }
+            for (String key : phonetic) {
+                entryFields[f++] = pool.computeIfAbsent(key, k -> k);
+            }
+            fields[entry] = entryFields;
+            keys[entry] = String.join(String.valueOf(FIELD_SEPARATOR), entryFields);
+        }
+
+        byId = sortedById(ids);
+        unigrams = buildPostings(keys, 1);
+        bigrams = buildPostings(keys, 2);
+    }
+
+    /**
+     * 为一个数据集的所有语言构建索引
+     * @param stores 该数据集各语言的存储，ID相同的条目视为同一条目
+     */
+    public static HandbookIndex build(List<HandbookStore> stores) {
+        return new HandbookIndex(stores);
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * 搜索与查询内容匹配的条目，匹配程度高的排在前面
+     * 查询内容可以是ID、任一语言名称的一部分、拼音首字母、假名罗马字、韩文初声或罗马字，允许少量拼写错误；
+     * 只返回显示语言中存在的条目，以该语言的名称显示，显示语言的名称匹配排在其他语言的名称之前
+     * @param store 显示语言的存储，必须是构建索引时传入的存储之一
+     * @param query 查询内容
+     * @param type 类型，"all"或null表示所有类型
+     * @param limit 最多返回的数量
+     * @return 条目的显示字符串，如"10001 - 物品名称"
+     * @throws IllegalArgumentException store不属于此索引时
+     */
+    public List<String> search(HandbookStore store, String query, String type, int limit) {
+        int language = stores.indexOf(store);
+        if (language < 0) {
+            throw new IllegalArgumentException("存储不属于此索引");
+        }
+        String normalized = query == null ? "" : PhoneticKeys.canonical(query.trim());
+        int requiredType = store.typeCodeOf(type);
+        if (requiredType == HandbookStore.UNKNOWN_TYPE) {
+            return List.of();
+        }
+        List<String> results = new ArrayList<>(Math.min(limit, store.size()));
+        if (normalized.isEmpty()) {
+            for (int i = 0; i < store.size() && results.size() < limit; i++) {
+                if (requiredType == HandbookStore.ANY_TYPE || requiredType == store.typeCode(i)) {
+                    results.add(store.displayString(i));
+                }
+            }
+            return results;
+        }
+
+        Query search = new Query(store, storeEntries[language], nameFields[language], requiredType);
+        boolean[] added = new boolean[size()];
+
+        // ID前缀匹配的条目按ID顺序排在最前
+        int from = lowerBound(normalized);
+        for (int j = from; j < byId.length && ids[byId[j]].startsWith(normalized) && results.size() < limit; j++) {
+            int entry = byId[j];
+            if (search.matches(entry)) {
+                added[entry] = true;
+                results.add(search.displayString(entry));
+            }
+        }
+
+        // 包含查询内容的条目：只遍历最短的倒排表，校验完整的子串后按前缀、词首、子串分档
+        Ranking ranking = new Ranking(search);
+        int[] candidates = shortestPostings(normalized);
+        for (int entry : candidates) {
+            if (!added[entry] && search.matches(entry) && keys[entry].contains(normalized)) {
+                ranking.add(entry, substringTier(entry, search.nameField(entry), normalized), 0);
+            }
+        }
+        ranking.drainTo(results, added, limit);
+
+        // 纯数字的查询只按ID查找，不做模糊匹配
+        if (results.size() >= limit || isDigits(normalized)) {
+            return results;
+        }
+
+        // 子序列：查询中的字符按顺序出现在名称或读音键中，越紧凑越靠前
+        if (normalized.length() >= (isLatin(normalized) ? MIN_SUBSEQUENCE_LENGTH : MIN_CJK_SUBSEQUENCE_LENGTH)) {
+            // 跨度过大的子序列基本是巧合，不算匹配
+            int maxGap = normalized.length();
+            // 子序列必然包含查询中的每个字，只需检查包含其中最少见的字的条目
+            for (int entry : rarestUnigramPostings(normalized)) {
+                if (!added[entry] && search.matches(entry)) {
+                    int gap = subsequenceGap(entry, normalized);
+                    if (gap >= 0 && gap <= maxGap) {
+                        ranking.add(entry, TIER_SUBSEQUENCE, gap);
+                    }
+                }
+            }
+            ranking.drainTo(results, added, limit);
+        }
+
+        // 拼写错误：名称或读音键某个词的开头与查询内容的编辑距离在允许范围内
+        if (results.size() < limit && normalized.length() >= MIN_TYPO_LENGTH) {
+            int maxDistance = normalized.length() >= 8 ? 2 : 1;
+            int[] typoCandidates = typoCandidates(normalized, maxDistance);
+            int count = typoCandidates == null ? size() : typoCandidates.length;
+            for (int c = 0; c < count; c++) {
+                int entry = typoCandidates == null ? c : typoCandidates[c];
+                if (!added[entry] && search.matches(entry)) {
+                    int distance = typoDistance(entry, normalized, maxDistance);
+                    if (distance <= maxDistance) {
+                        ranking.add(entry, TIER_TYPO, distance);
+                    }
+                }
+            }
+            ranking.drainTo(results, added, limit);
+        }
+        return results;
+    }
+
+    /**
+     * 一次搜索的显示语言：条目在该语言存储中的位置、类型和名称字段
+     */
+    private record Query(HandbookStore store, int[] storeEntries, int[] nameFields, int requiredType) {
+        boolean matches(int entry) {
+            int storeEntry = storeEntries[entry];
+            return storeEntry >= 0 && (requiredType == HandbookStore.ANY_TYPE || requiredType == store.typeCode(storeEntry));
+        }
+
+        int nameField(int entry) {
+            return nameFields[entry];
+        }
+
+        String displayString(int entry) {
+            return store.displayString(storeEntries[entry]);
+        }
+    }
+
+    /**
+     * 已确认包含查询内容的条目的匹配档次，显示语言的名称按名称分档，其他语言的名称和读音键按读音键分档
+     */
+    private int substringTier(int entry, int nameField, String query) {
+        String[] entryFields = fields[entry];
+        int best = TIER_SUBSTRING;
+        for (int f = 1; f < entryFields.length; f++) {
+            String field = entryFields[f];
+            for (int pos = field.indexOf(query); pos >= 0; pos = field.indexOf(query, pos + 1)) {
+                int tier;
+                if (pos == 0) {
+                    tier = f == nameField ? TIER_NAME_PREFIX : TIER_KEY_PREFIX;
+                } else if (isWordStart(field, pos)) {
+                    tier = f == nameField ? TIER_NAME_WORD : TIER_KEY_WORD;
+                } else {
+                    continue;
+                }
+                best = Math.max(best, tier);
+                break;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * 查询内容作为子序列出现时多出的字符数，取名称和读音键中最紧凑的一个；不是子序列时返回-1
+     */
+    private int subsequenceGap(int entry, String query) {
+        String[] entryFields = fields[entry];
+        int best = -1;
+        for (int f = 1; f < entryFields.length; f++) {
+            String field = entryFields[f];
+            int start = field.indexOf(query.charAt(0));
+            // 从每个可能的起点尝试，取跨度最小的匹配
+            while (start >= 0) {
+                int pos = start;
+                int matched = 1;
+                while (matched < query.length()) {
+                    pos = field.indexOf(query.charAt(matched), pos + 1);
+                    if (pos < 0) {
+                        break;
+                    }
+                    matched++;
+                }
+                if (matched < query.length()) {
+                    break;
+                }
+                int gap = pos - start + 1 - query.length();
+                if (best < 0 || gap < best) {
+                    best = gap;
+                }
+                start = field.indexOf(query.charAt(0), start + 1);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * 查询内容与名称或读音键中任一词开头部分的最小编辑距离，超过maxDistance时返回maxDistance + 1
+     */
+    private int typoDistance(int entry, String query, int maxDistance) {
+        String[] entryFields = fields[entry];
+        int best = maxDistance + 1;
+        for (int f = 1; f < entryFields.length && best > 0; f++) {
+            String field = entryFields[f];
+            for (int pos = 0; pos < field.length() && best > 0; pos++) {
+                if (pos == 0 || isWordStart(field, pos)) {
+                    best = Math.min(best, prefixEditDistance(query, field, pos, best - 1));
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * 查询内容与target从start开始的某个前缀之间的最小编辑距离，相邻字符交换算一次编辑
+     * 超过maxDistance时提前结束并返回maxDistance + 1
+     */
+    private static int prefixEditDistance(String query, String target, int start, int maxDistance) {
+        int n = query.length();
+        int m = Math.min(target.length() - start, n + maxDistance);
+        if (m < n - maxDistance) {
+            return maxDistance + 1;
+        }
+        int[] beforePrevious = new int[n + 1];
+        int[] previous = new int[n + 1];
+        int[] current = new int[n + 1];
+        for (int i = 0; i <= n; i++) {
+            previous[i] = i;
+        }
+        int best = previous[n];
+        for (int j = 1; j <= m; j++) {
+            current[0] = j;
+            int rowMin = current[0];
+            char c = target.charAt(start + j - 1);
+            for (int i = 1; i <= n; i++) {
+                int cost = query.charAt(i - 1) == c ? 0 : 1;
+                current[i] = Math.min(Math.min(current[i - 1] + 1, previous[i] + 1), previous[i - 1] + cost);
+                if (i > 1 && j > 1 && query.charAt(i - 1) == target.charAt(start + j - 2)
+                        && query.charAt(i - 2) == c) {
+                    current[i] = Math.min(current[i], beforePrevious[i - 2] + 1);
+                }
+                rowMin = Math.min(rowMin, current[i]);
+            }
+            best = Math.min(best, current[n]);
+            if (rowMin > maxDistance) {
+                break;
+            }
+            int[] swap = beforePrevious;
+            beforePrevious = previous;
+            previous = current;
+            current = swap;
+        }
+        return Math.min(best, maxDistance + 1);
+    }
+
+    private static boolean isWordStart(String field, int pos) {
+        return !Character.isLetterOrDigit(field.charAt(pos - 1));
+    }
+
+    private static boolean isLatin(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) >= 0x2E80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isDigits(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) < '0' || text.charAt(i) > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 查询内容的所有单字或双字中，倒排表最短的一个
+     */
+    private int[] shortestPostings(String normalized) {
+        if (normalized.length() == 1) {
+            return unigrams.getOrDefault(gram(normalized, 0, 1), NO_POSTINGS);
+        }
+        int[] shortest = null;
+        for (int i = 0; i + 1 < normalized.length(); i++) {
+            int[] postings = bigrams.getOrDefault(gram(normalized, i, 2), NO_POSTINGS);
+            if (shortest == null || postings.length < shortest.length) {
+                shortest = postings;
+                if (shortest.length == 0) {
+                    break;
+                }
+            }
+        }
+        return shortest;
+    }
+
+    /**
+     * 可能在maxDistance次编辑内匹配查询内容的条目
+     * 每次编辑最多破坏查询中的三个双字，符合条件的条目至少包含其余的双字；查询过短无法排除任何条目时返回null
+     */
+    private int[] typoCandidates(String normalized, int maxDistance) {
+        Set<Integer> grams = new HashSet<>();
+        for (int i = 0; i + 1 < normalized.length(); i++) {
+            grams.add(gram(normalized, i, 2));
+        }
+        int required = grams.size() - 3 * maxDistance;
+        if (required <= 0) {
+            return null;
+        }
+        int[] counts = new int[size()];
+        PostingsBuilder candidates = new PostingsBuilder();
+        for (int gram : grams) {
+            for (int entry : bigrams.getOrDefault(gram, NO_POSTINGS)) {
+                if (++counts[entry] == required) {
+                    candidates.add(entry);
+                }
+            }
+        }
+        return candidates.toArray();
+    }
+
+    /**
+     * 查询内容的所有单字中，倒排表最短的一个
+     */
+    private int[] rarestUnigramPostings(String normalized) {
+        int[] rarest = null;
+        for (int i = 0; i < normalized.length(); i++) {
+            int[] postings = unigrams.getOrDefault(gram(normalized, i, 1), NO_POSTINGS);
+            if (rarest == null || postings.length < rarest.length) {
+                rarest = postings;
+            }
+        }
+        return rarest;
+    }
+
+    /**
+     * 第一个ID不小于查询内容的位置
+     */
+    private int lowerBound(String prefix) {
+        int low = 0;
+        int high = byId.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (ids[byId[mid]].compareTo(prefix) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static int[] sortedById(String[] ids) {
+        Integer[] order = new Integer[ids.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> ids[a].compareTo(ids[b]));
+        int[] sorted = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            sorted[i] = order[i];
+        }
+        return sorted;
+    }
+
+    private static int gram(String text, int start, int length) {
+        return length == 1 ? text.charAt(start) : text.charAt(start) << 16 | text.charAt(start + 1);
+    }
+
+    /**
+     * 构建定长字片段的倒排表，每个条目在同一个倒排表中只出现一次
+     */
+    private static Map<Integer, int[]> buildPostings(String[] keys, int length) {
+        Map<Integer, PostingsBuilder> builders = new HashMap<>();
+        for (int entry = 0; entry < keys.length; entry++) {
+            String key = keys[entry];
+            for (int i = 0; i + length <= key.length(); i++) {
+                if (key.charAt(i) == FIELD_SEPARATOR || key.charAt(i + length - 1) == FIELD_SEPARATOR) {
+                    continue;
+                }
+                builders.computeIfAbsent(gram(key, i, length), g -> new PostingsBuilder()).add(entry);
+            }
+        }
+
+        Map<Integer, int[]> postings = new HashMap<>(builders.size() * 2);
+        builders.forEach((gram, builder) -> postings.put(gram, builder.toArray()));
+        return postings;
+    }
+
+    /**
+     * 一个档次内的排序：档次高的在前，同档次按额外代价（跨度或编辑距离）、名称长度、数据集顺序排列
+     * 每项打包为一个long，按数值降序即为排名顺序
+     */
+    private final class Ranking {
+        private final Query search;
+        private long[] scores = new long[16];
+        private int size;
+
+        Ranking(Query search) {
+            this.search = search;
+        }
+
+        void add(int entry, int tier, int cost) {
+            int nameLength = Math.min(fields[entry][search.nameField(entry)].length(), 0xFF);
+            long score = (long) tier << 56
+                    | (long) (0xFF - Math.min(cost, 0xFF)) << 48
+                    | (long) (0xFF - nameLength) << 40
+                    | (Integer.MAX_VALUE - entry);
+            if (size == scores.length) {
+                scores = Arrays.copyOf(scores, size * 2);
+            }
+            scores[size++] = score;
+        }
+
+        /**
+         * 按排名把条目追加到结果中，直到取满limit，然后清空
+         */
+        void drainTo(List<String> results, boolean[] added, int limit) {
+            Arrays.sort(scores, 0, size);
+            for (int i = size - 1; i >= 0 && results.size() < limit; i--) {
+                int entry = Integer.MAX_VALUE - (int) (scores[i] & 0xFFFFFFFFL);
+                added[entry] = true;
+                results.add(search.displayString(entry));
+            }
+            size = 0;
+        }
+    }
+
+    /**
+     * 按升序追加条目序号的数组，忽略连续重复
+     */
+    private static final class PostingsBuilder {
+        private int[] entries = new int[4];
+        private int size;
+
+        void add(int entry) {
+            if (size > 0 && entries[size - 1] == entry) {
+                return;
+            }
+            if (size == entries.length) {
+                entries = Arrays.copyOf(entries, size * 2);
+            }
+            entries[size++] = entry;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(entries, size);
+        }
+    }
+}
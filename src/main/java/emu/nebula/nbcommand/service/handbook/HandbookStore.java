@@ -0,0 +1,198 @@
+package emu.nebula.nbcommand.service.handbook;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 一个数据集在某一语言下的紧凑存储，加载后不可修改，可在任意线程读取
+ * 条目按列存放：整数ID、类型编号、名称，以及预先拼好的显示字符串"ID - 名称"；
+ * 按ID查找使用开放寻址哈希表，每种类型的显示列表在构建时生成一次，之后所有ComboBox共用同一个只读列表
+ */
+public final class HandbookStore {
+    public static final String ALL_TYPES = "all";
+    // 不限类型和类型不存在时的类型编号
+    public static final int ANY_TYPE = -1;
+    public static final int UNKNOWN_TYPE = -2;
+
+    private static final HandbookStore EMPTY = new Builder().build();
+
+    private final int[] ids;
+    private final int[] typeCodes;
+    private final String[] names;
+    private final String[] displayStrings;
+    // 类型编号 -> 类型名称，按首次出现的顺序编号
+    private final String[] typeNames;
+    private final Map<String, Integer> typeCodesByName;
+    // 以ID为键的开放寻址表，存放条目序号加一，0表示空位
+    private final int[] idSlots;
+    // 类型 -> 该类型条目的显示字符串，"all"为全部条目
+    private final Map<String, ObservableList<String>> displayLists;
+
+    private HandbookStore(Builder builder) {
+        int size = builder.size;
+        ids = Arrays.copyOf(builder.ids, size);
+        typeCodes = Arrays.copyOf(builder.typeCodes, size);
+        names = builder.names.toArray(new String[0]);
+        typeNames = builder.typeCodesByName.keySet().toArray(new String[0]);
+        typeCodesByName = Map.copyOf(builder.typeCodesByName);
+
+        displayStrings = new String[size];
+        for (int i = 0; i < size; i++) {
+            displayStrings[i] = ids[i] + " - " + names[i];
+        }
+
+        idSlots = new int[Integer.highestOneBit(Math.max(size, 1) * 2) * 2];
+        for (int i = 0; i < size; i++) {
+            int slot = slotOf(ids[i]);
+            // 重复的ID保留第一条，与按顺序查找的结果一致
+            if (idSlots[slot] == 0) {
+                idSlots[slot] = i + 1;
+            }
+        }
+
+        Map<String, ObservableList<String>> lists = new LinkedHashMap<>();
+        lists.put(ALL_TYPES, readOnlyList(displayStrings));
+        String[][] byType = new String[typeNames.length][];
+        int[] counts = new int[typeNames.length];
+        for (int code : typeCodes) {
+            counts[code]++;
+        }
+        for (int code = 0; code < typeNames.length; code++) {
+            byType[code] = new String[counts[code]];
+            counts[code] = 0;
+        }
+        for (int i = 0; i < size; i++) {
+            byType[typeCodes[i]][counts[typeCodes[i]]++] = displayStrings[i];
+        }
+        for (int code = 0; code < typeNames.length; code++) {
+            lists.putIfAbsent(typeNames[code], readOnlyList(byType[code]));
+        }
+        displayLists = Collections.unmodifiableMap(lists);
+    }
+
+    /**
+     * 没有任何条目的存储，数据集无法加载时使用
+     */
+    public static HandbookStore empty() {
+        return EMPTY;
+    }
+
+    private static ObservableList<String> readOnlyList(String[] strings) {
+        return FXCollections.unmodifiableObservableList(FXCollections.observableList(Arrays.asList(strings)));
+    }
+
+    private int slotOf(int id) {
+        int mask = idSlots.length - 1;
+        int hash = id * 0x9E3779B9;
+        int slot = (hash ^ hash >>> 16) & mask;
+        while (idSlots[slot] != 0 && ids[idSlots[slot] - 1] != id) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    public int id(int entry) {
+        return ids[entry];
+    }
+
+    public String name(int entry) {
+        return names[entry];
+    }
+
+    public String type(int entry) {
+        return typeNames[typeCodes[entry]];
+    }
+
+    public int typeCode(int entry) {
+        return typeCodes[entry];
+    }
+
+    /**
+     * 条目的显示字符串，如"10001 - 物品名称"
+     */
+    public String displayString(int entry) {
+        return displayStrings[entry];
+    }
+
+    /**
+     * 按ID查找条目序号
+     * @return 条目序号，不存在时返回-1
+     */
+    public int indexOf(int id) {
+        return idSlots[slotOf(id)] - 1;
+    }
+
+    /**
+     * 类型名称对应的编号
+     * @param type 类型，"all"或null表示所有类型
+     * @return 类型编号；所有类型时为ANY_TYPE，数据集中没有此类型时为UNKNOWN_TYPE
+     */
+    public int typeCodeOf(String type) {
+        if (type == null || ALL_TYPES.equals(type)) {
+            return ANY_TYPE;
+        }
+        return typeCodesByName.getOrDefault(type, UNKNOWN_TYPE);
+    }
+
+    /**
+     * 所有类型，"all"在最前
+     */
+    public Set<String> getTypes() {
+        return displayLists.keySet();
+    }
+
+    /**
+     * 指定类型的显示字符串列表
+     * 返回的列表只读且被所有调用者共用，重复调用不会分配新对象
+     * @param type 类型，"all"表示所有类型
+     * @return 显示字符串列表，类型不存在时为空列表
+     */
+    public ObservableList<String> getDisplayList(String type) {
+        ObservableList<String> list = displayLists.get(type);
+        return list != null ? list : FXCollections.emptyObservableList();
+    }
+
+    /**
+     * 按条目顺序构建存储
+     */
+    public static final class Builder {
+        private int[] ids = new int[64];
+        private int[] typeCodes = new int[64];
+        private final List<String> names = new ArrayList<>();
+        private final Map<String, Integer> typeCodesByName = new LinkedHashMap<>();
+        private final Map<String, String> nameInstances = new HashMap<>();
+        private int size;
+
+        /**
+         * 追加一个条目，相同的名称和类型只保留一个字符串实例
+         */
+        public Builder add(int id, String name, String type) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                typeCodes = Arrays.copyOf(typeCodes, size * 2);
+            }
+            ids[size] = id;
+            typeCodes[size] = typeCodesByName.computeIfAbsent(type, key -> typeCodesByName.size());
+            names.add(nameInstances.computeIfAbsent(name, key -> key));
+            size++;
+            return this;
+        }
+
+        public HandbookStore build() {
+            return new HandbookStore(this);
+        }
+    }
+}
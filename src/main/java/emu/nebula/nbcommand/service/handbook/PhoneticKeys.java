@@ -0,0 +1,262 @@
+package emu.nebula.nbcommand.service.handbook;
+
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 手册名称的归一化和读音键
+ * 为中文名称生成拼音首字母，为假名生成罗马字，为韩文生成初声和罗马字，
+ * 使操作员可以用拉丁字母或简拼输入搜索本地化的名称。
+ */
+public final class PhoneticKeys {
+    // GB2312一级汉字按拼音排序，每个首字母第一个汉字的区位码
+    private static final int[] GB2312_INITIAL_CODES = {
+            0xB0A1, 0xB0C5, 0xB2C1, 0xB4EE, 0xB6EA, 0xB7A2, 0xB8C1, 0xB9FE, 0xBBF7, 0xBFA6, 0xC0AC, 0xC2E8,
+            0xC4C3, 0xC5B6, 0xC5BE, 0xC6DA, 0xC8BB, 0xC8F6, 0xCBFA, 0xCDDA, 0xCEF4, 0xD1B9, 0xD4D1, 0xD7FA
+    };
+    private static final char[] GB2312_INITIALS = "abcdefghjklmnopqrstwxyz".toCharArray();
+    private static final Charset GB2312 = Charset.forName("GB2312");
+
+    private static final int HANGUL_BASE = 0xAC00;
+    private static final int HANGUL_END = 0xD7A3;
+    private static final int JUNGSEONG_COUNT = 21;
+    private static final int JONGSEONG_COUNT = 28;
+    private static final char CHOSEONG_BASE = 'ᄀ';
+    private static final char JONGSEONG_BASE = 'ᆧ';
+    private static final String[] CHOSEONG_ROMAN = {
+            "g", "kk", "n", "d", "tt", "r", "m", "b", "pp", "s", "ss", "", "j", "jj", "ch", "k", "t", "p", "h"
+    };
+    private static final String[] JUNGSEONG_ROMAN = {
+            "a", "ae", "ya", "yae", "eo", "e", "yeo", "ye", "o", "wa", "wae", "oe", "yo", "u", "wo", "we", "wi", "yu",
+            "eu", "ui", "i"
+    };
+    private static final String[] JONGSEONG_ROMAN = {
+            "", "k", "k", "k", "n", "n", "n", "t", "l", "k", "m", "p", "l", "l", "p", "l", "m", "p", "p", "t", "t",
+            "ng", "t", "t", "k", "t", "p", "t"
+    };
+    // 收音 -> 对应的初声序列，使输入过程中尚未组合的辅音也能匹配
+    private static final String[] JONGSEONG_AS_CHOSEONG = {
+            "", "ᄀ", "ᄁ", "ᄀᄉ", "ᄂ", "ᄂᄌ", "ᄂᄒ", "ᄃ", "ᄅ",
+            "ᄅᄀ", "ᄅᄆ", "ᄅᄇ", "ᄅᄉ", "ᄅᄐ", "ᄅᄑ",
+            "ᄅᄒ", "ᄆ", "ᄇ", "ᄇᄉ", "ᄉ", "ᄊ", "ᄋ", "ᄌ", "ᄎ",
+            "ᄏ", "ᄐ", "ᄑ", "ᄒ"
+    };
+
+    // 平假名 -> 罗马字（平文式），拗音在前优先匹配
+    private static final Map<String, String> KANA_ROMAJI = new HashMap<>();
+
+    static {
+        String[] table = {
+                "きゃ", "kya", "きゅ", "kyu", "きょ", "kyo", "しゃ", "sha", "しゅ", "shu", "しょ", "sho",
+                "ちゃ", "cha", "ちゅ", "chu", "ちょ", "cho", "にゃ", "nya", "にゅ", "nyu", "にょ", "nyo",
+                "ひゃ", "hya", "ひゅ", "hyu", "ひょ", "hyo", "みゃ", "mya", "みゅ", "myu", "みょ", "myo",
+                "りゃ", "rya", "りゅ", "ryu", "りょ", "ryo", "ぎゃ", "gya", "ぎゅ", "gyu", "ぎょ", "gyo",
+                "じゃ", "ja", "じゅ", "ju", "じょ", "jo", "びゃ", "bya", "びゅ", "byu", "びょ", "byo",
+                "ぴゃ", "pya", "ぴゅ", "pyu", "ぴょ", "pyo", "ふぁ", "fa", "ふぃ", "fi", "ふぇ", "fe", "ふぉ", "fo",
+                "てぃ", "ti", "でぃ", "di", "しぇ", "she", "ちぇ", "che", "じぇ", "je", "うぃ", "wi", "うぇ", "we",
+                "ゔぁ", "va", "ゔぃ", "vi", "ゔぇ", "ve", "ゔぉ", "vo",
+                "あ", "a", "い", "i", "う", "u", "え", "e", "お", "o",
+                "か", "ka", "き", "ki", "く", "ku", "け", "ke", "こ", "ko",
+                "さ", "sa", "し", "shi", "す", "su", "せ", "se", "そ", "so",
+                "た", "ta", "ち", "chi", "つ", "tsu", "て", "te", "と", "to",
+                "な", "na", "に", "ni", "ぬ", "nu", "ね", "ne", "の", "no",
+                "は", "ha", "ひ", "hi", "ふ", "fu", "へ", "he", "ほ", "ho",
+                "ま", "ma", "み", "mi", "む", "mu", "め", "me", "も", "mo",
+                "や", "ya", "ゆ", "yu", "よ", "yo",
+                "ら", "ra", "り", "ri", "る", "ru", "れ", "re", "ろ", "ro",
+                "わ", "wa", "ゐ", "i", "ゑ", "e", "を", "o", "ん", "n",
+                "が", "ga", "ぎ", "gi", "ぐ", "gu", "げ", "ge", "ご", "go",
+                "ざ", "za", "じ", "ji", "ず", "zu", "ぜ", "ze", "ぞ", "zo",
+                "だ", "da", "ぢ", "ji", "づ", "zu", "で", "de", "ど", "do",
+                "ば", "ba", "び", "bi", "ぶ", "bu", "べ", "be", "ぼ", "bo",
+                "ぱ", "pa", "ぴ", "pi", "ぷ", "pu", "ぺ", "pe", "ぽ", "po", "ゔ", "vu",
+                "ぁ", "a", "ぃ", "i", "ぅ", "u", "ぇ", "e", "ぉ", "o", "ゃ", "ya", "ゅ", "yu", "ょ", "yo", "ゎ", "wa"
+        };
+        for (int i = 0; i < table.length; i += 2) {
+            KANA_ROMAJI.put(table[i], table[i + 1]);
+        }
+    }
+
+    private PhoneticKeys() {
+    }
+
+    /**
+     * 搜索用的规范形式，名称和查询内容使用同一规则
+     * 兼容分解后转小写，片假名转平假名，韩文音节分解为字母且收音统一为初声，
+     * 因此全角/半角、平/片假名以及输入到一半的韩文音节都能互相匹配。
+     */
+    public static String canonical(String text) {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFKD).toLowerCase(Locale.ROOT);
+        StringBuilder result = null;
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            String replacement = null;
+            if (c >= 'ァ' && c <= 'ヶ') {
+                replacement = String.valueOf((char) (c - 0x60));
+            } else if (c > JONGSEONG_BASE && c < JONGSEONG_BASE + JONGSEONG_COUNT) {
+                replacement = JONGSEONG_AS_CHOSEONG[c - JONGSEONG_BASE];
+            }
+            if (replacement != null && result == null) {
+                result = new StringBuilder(decomposed.length() + 4).append(decomposed, 0, i);
+            }
+            if (result != null) {
+                if (replacement != null) {
+                    result.append(replacement);
+                } else {
+                    result.append(c);
+                }
+            }
+        }
+        return result == null ? decomposed : result.toString();
+    }
+
+    /**
+     * 生成名称的读音键，已经是规范形式
+     * 只包含与名称本身不同的键：拼音首字母、假名罗马字、韩文初声和韩文罗马字
+     */
+    public static List<String> of(String name) {
+        String composed = Normalizer.normalize(name, Normalizer.Form.NFKC);
+        List<String> keys = new ArrayList<>(2);
+        boolean han = false;
+        boolean kana = false;
+        boolean hangul = false;
+        for (int i = 0; i < composed.length(); i++) {
+            Character.UnicodeScript script = Character.UnicodeScript.of(composed.charAt(i));
+            han |= script == Character.UnicodeScript.HAN;
+            kana |= script == Character.UnicodeScript.HIRAGANA || script == Character.UnicodeScript.KATAKANA;
+            hangul |= composed.charAt(i) >= HANGUL_BASE && composed.charAt(i) <= HANGUL_END;
+        }
+        if (han) {
+            addKey(keys, pinyinInitials(composed));
+        }
+        if (kana) {
+            addKey(keys, romaji(composed));
+        }
+        if (hangul) {
+            addKey(keys, hangulInitials(composed));
+            addKey(keys, hangulRoman(composed));
+        }
+        return keys;
+    }
+
+    private static void addKey(List<String> keys, String key) {
+        String canonical = canonical(key);
+        if (!keys.contains(canonical)) {
+            keys.add(canonical);
+        }
+    }
+
+    /**
+     * 汉字替换为拼音首字母，不在GB2312一级字库中的字符保持不变
+     */
+    static String pinyinInitials(String text) {
+        CharsetEncoder encoder = GB2312.newEncoder();
+        StringBuilder result = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            char initial = 0;
+            if (Character.UnicodeScript.of(c) == Character.UnicodeScript.HAN && encoder.canEncode(c)) {
+                byte[] bytes = String.valueOf(c).getBytes(GB2312);
+                if (bytes.length == 2) {
+                    initial = gb2312Initial((bytes[0] & 0xFF) << 8 | bytes[1] & 0xFF);
+                }
+            }
+            result.append(initial != 0 ? initial : c);
+        }
+        return result.toString();
+    }
+
+    private static char gb2312Initial(int code) {
+        if (code < GB2312_INITIAL_CODES[0] || code >= GB2312_INITIAL_CODES[GB2312_INITIAL_CODES.length - 1]) {
+            return 0;
+        }
+        for (int i = GB2312_INITIALS.length - 1; i >= 0; i--) {
+            if (code >= GB2312_INITIAL_CODES[i]) {
+                return GB2312_INITIALS[i];
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * 假名替换为罗马字，促音重复下一个辅音，长音符重复前一个元音，其他字符保持不变
+     */
+    static String romaji(String text) {
+        StringBuilder hiragana = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            hiragana.append(c >= 'ァ' && c <= 'ヶ' ? (char) (c - 0x60) : c);
+        }
+
+        StringBuilder result = new StringBuilder(text.length() * 2);
+        boolean doubleNext = false;
+        for (int i = 0; i < hiragana.length(); i++) {
+            char c = hiragana.charAt(i);
+            if (c == 'っ') {
+                doubleNext = true;
+                continue;
+            }
+            String roman = i + 1 < hiragana.length() ? KANA_ROMAJI.get(hiragana.substring(i, i + 2)) : null;
+            if (roman != null) {
+                i++;
+            } else {
+                roman = KANA_ROMAJI.get(String.valueOf(c));
+            }
+            if (roman == null) {
+                if (c == 'ー' && !result.isEmpty()) {
+                    result.append(result.charAt(result.length() - 1));
+                } else {
+                    result.append(c);
+                }
+            } else {
+                if (doubleNext) {
+                    result.append(roman.startsWith("ch") ? 't' : roman.charAt(0));
+                }
+                result.append(roman);
+            }
+            doubleNext = false;
+        }
+        return result.toString();
+    }
+
+    /**
+     * 韩文音节替换为初声，其他字符保持不变
+     */
+    static String hangulInitials(String text) {
+        StringBuilder result = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= HANGUL_BASE && c <= HANGUL_END) {
+                result.append((char) (CHOSEONG_BASE + (c - HANGUL_BASE) / (JUNGSEONG_COUNT * JONGSEONG_COUNT)));
+            } else {
+                result.append(c);
+            }
+        }
+        return result.toString();
+    }
+
+    /**
+     * 韩文音节按文化观光部罗马字（不处理音变）替换，其他字符保持不变
+     */
+    static String hangulRoman(String text) {
+        StringBuilder result = new StringBuilder(text.length() * 3);
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= HANGUL_BASE && c <= HANGUL_END) {
+                int index = c - HANGUL_BASE;
+                result.append(CHOSEONG_ROMAN[index / (JUNGSEONG_COUNT * JONGSEONG_COUNT)])
+                        .append(JUNGSEONG_ROMAN[index % (JUNGSEONG_COUNT * JONGSEONG_COUNT) / JONGSEONG_COUNT])
+                        .append(JONGSEONG_ROMAN[index % JONGSEONG_COUNT]);
+            } else {
+                result.append(c);
+            }
+        }
+        return result.toString();
+    }
+}
@@ -0,0 +1,129 @@
+package emu.nebula.nbcommand.service.history;
+
+import emu.nebula.nbcommand.model.HistoryEntry;
+import javafx.beans.property.ReadOnlyLongProperty;
+import javafx.beans.property.ReadOnlyLongWrapper;
+import javafx.collections.ObservableList;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 有界的命令历史
+ * 内存中只保留最近的若干条记录，更早的记录按时间顺序追加写入临时文件，
+ * 写文件在单独的后台线程上进行，不阻塞界面。
+ */
+public class CommandHistory implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(CommandHistory.class);
+    public static final int DEFAULT_CAPACITY = 1000;
+
+    private final HistoryRingList entries;
+    // 单线程保证写入顺序
+    private final ExecutorService pager = Executors.newSingleThreadExecutor(Thread.ofVirtual().name("history-pager").factory());
+    private final ReadOnlyLongWrapper pagedOutCount = new ReadOnlyLongWrapper();
+    private volatile Path pageFile;
+    // 只在pager线程上访问
+    private BufferedWriter writer;
+
+    public CommandHistory(int capacity) {
+        this.entries = new HistoryRingList(capacity);
+    }
+
+    /**
+     * 内存中的记录，供ListView显示
+     */
+    public ObservableList<HistoryEntry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * 追加一批记录，必须在JavaFX应用线程上调用
+     */
+    public void addAll(Collection<HistoryEntry> newEntries) {
+        pageOut(entries.append(newEntries));
+    }
+
+    /**
+     * 修改内存中保留的记录数，必须在JavaFX应用线程上调用
+     */
+    public void setCapacity(int capacity) {
+        pageOut(entries.setCapacity(capacity));
+    }
+
+    /**
+     * 已写入临时文件的记录数
+     */
+    public ReadOnlyLongProperty pagedOutCountProperty() {
+        return pagedOutCount.getReadOnlyProperty();
+    }
+
+    /**
+     * 保存较早记录的临时文件，还没有记录被换出时为null
+     * 返回前会等待已提交的记录写完
+     */
+    public Path getPageFile() {
+        try {
+            pager.submit(this::flushWriter).get();
+        } catch (Exception e) {
+            logger.warn("等待历史记录写入失败: {}", e.getMessage());
+        }
+        return pageFile;
+    }
+
+    private void pageOut(List<HistoryEntry> evicted) {
+        if (evicted.isEmpty()) {
+            return;
+        }
+        pagedOutCount.set(pagedOutCount.get() + evicted.size());
+        pager.execute(() -> {
+            try {
+                if (writer == null) {
+                    Path file = Files.createTempFile("nbcommand-history-", ".log");
+                    file.toFile().deleteOnExit();
+                    writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+                    pageFile = file;
+                }
+                for (HistoryEntry entry : evicted) {
+                    writer.write(entry.toDisplayText());
+                    writer.newLine();
+                }
+            } catch (IOException e) {
+                logger.error("写入历史记录文件失败", e);
+            }
+        });
+    }
+
+    private void flushWriter() {
+        if (writer != null) {
+            try {
+                writer.flush();
+            } catch (IOException e) {
+                logger.error("写入历史记录文件失败", e);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        pager.execute(() -> {
+            flushWriter();
+            try {
+                if (writer != null) {
+                    writer.close();
+                }
+            } catch (IOException ignored) {
+                // 文件会在退出时删除
+            }
+        });
+        pager.close();
+    }
+}
@@ -0,0 +1,67 @@
+package emu.nebula.nbcommand.service.history;
+
+import emu.nebula.nbcommand.model.CommandResult;
+import emu.nebula.nbcommand.model.HistoryRecord;
+import emu.nebula.nbcommand.model.ServerEndpoint;
+import emu.nebula.nbcommand.service.DatabaseManager;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * 持久化的命令历史
+ * 每条送达服务器的命令及其响应都写入数据库，重启后仍可按内容和时间检索
+ */
+public class HistoryArchive {
+    public static final int PAGE_SIZE = 200;
+
+    private final DatabaseManager databaseManager;
+
+    public HistoryArchive(DatabaseManager databaseManager) {
+        this.databaseManager = databaseManager;
+    }
+
+    /**
+     * 记录一次命令执行，异步写入，可在任意线程调用
+     * @param endpoint 目标服务器
+     * @param uid 目标UID，可为空
+     * @param commandText 不含@uid的命令文本
+     * @param result 执行结果
+     */
+    public void record(ServerEndpoint endpoint, String uid, String commandText, CommandResult result) {
+        databaseManager.appendHistory(HistoryRecord.of(endpoint, uid, commandText, result));
+    }
+
+    /**
+     * 检索命令历史，按从新到旧的顺序返回一页
+     * 会访问数据库，不要在JavaFX应用线程上调用
+     * @param text 搜索内容，多个词以空格分隔，需要同时出现在命令、UID或响应中，每个词按前缀匹配；为空时不过滤
+     * @param since 只查询此时间之后的记录，为null时不限制
+     * @param beforeId 上一页最后一条记录的序号，第一页传Long.MAX_VALUE
+     */
+    public List<HistoryRecord> search(String text, Instant since, long beforeId) {
+        return databaseManager.searchHistory(toMatchQuery(text), since, beforeId, PAGE_SIZE);
+    }
+
+    /**
+     * 把用户输入转换为FTS5查询表达式
+     * 每个词都作为带引号的短语，避免输入中的运算符和特殊字符被当作查询语法；没有可搜索的词时返回null
+     */
+    static String toMatchQuery(String text) {
+        if (text == null || text.isBlank()) {
+            return null;
+        }
+        StringBuilder query = new StringBuilder();
+        for (String term : text.trim().split("\\s+")) {
+            // 只有符号的词不会产生任何索引词条
+            if (term.codePoints().noneMatch(Character::isLetterOrDigit)) {
+                continue;
+            }
+            if (!query.isEmpty()) {
+                query.append(' ');
+            }
+            query.append('"').append(term.replace("\"", "\"\"")).append("\"*");
+        }
+        return query.isEmpty() ? null : query.toString();
+    }
+}
@@ -0,0 +1,124 @@
+package emu.nebula.nbcommand.service.history;
+
+import emu.nebula.nbcommand.model.HistoryEntry;
+import javafx.collections.ObservableListBase;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 固定容量的环形历史记录列表
+ * 追加和淘汰最旧记录都是O(1)，不需要移动元素；超出容量时最旧的记录被移除并返回给调用方。
+ * 只允许通过append追加，所有修改必须在JavaFX应用线程上进行。
+ */
+public class HistoryRingList extends ObservableListBase<HistoryEntry> {
+    private HistoryEntry[] ring;
+    // 最旧记录所在的位置
+    private int head = 0;
+    private int size = 0;
+
+    public HistoryRingList(int capacity) {
+        this.ring = new HistoryEntry[Math.max(1, capacity)];
+    }
+
+    @Override
+    public HistoryEntry get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return ring[(head + index) % ring.length];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    public int getCapacity() {
+        return ring.length;
+    }
+
+    /**
+     * 追加一批记录，作为一次变更通知
+     * @param entries 新记录
+     * @return 被淘汰的最旧记录，按时间顺序排列
+     */
+    public List<HistoryEntry> append(Collection<HistoryEntry> entries) {
+        List<HistoryEntry> evicted = new ArrayList<>();
+        if (entries.isEmpty()) {
+            return evicted;
+        }
+
+        beginChange();
+        try {
+            for (HistoryEntry entry : entries) {
+                if (size == ring.length) {
+                    HistoryEntry oldest = ring[head];
+                    ring[head] = null;
+                    head = (head + 1) % ring.length;
+                    size--;
+                    nextRemove(0, oldest);
+                    evicted.add(oldest);
+                }
+                ring[(head + size) % ring.length] = entry;
+                size++;
+                nextAdd(size - 1, size);
+            }
+        } finally {
+            endChange();
+        }
+        return evicted;
+    }
+
+    /**
+     * 修改容量，缩小时保留最新的记录
+     * @return 因容量缩小被淘汰的记录，按时间顺序排列
+     */
+    public List<HistoryEntry> setCapacity(int capacity) {
+        capacity = Math.max(1, capacity);
+        if (capacity == ring.length) {
+            return List.of();
+        }
+
+        int dropped = Math.max(0, size - capacity);
+        List<HistoryEntry> evicted = new ArrayList<>(subList(0, dropped));
+        HistoryEntry[] resized = new HistoryEntry[capacity];
+        for (int i = dropped; i < size; i++) {
+            resized[i - dropped] = get(i);
+        }
+
+        beginChange();
+        try {
+            ring = resized;
+            head = 0;
+            size -= dropped;
+            if (dropped > 0) {
+                nextRemove(0, evicted);
+            }
+        } finally {
+            endChange();
+        }
+        return evicted;
+    }
+
+    /**
+     * 清空所有记录
+     */
+    @Override
+    public void clear() {
+        if (size == 0) {
+            return;
+        }
+        List<HistoryEntry> removed = new ArrayList<>(this);
+        beginChange();
+        try {
+            ring = new HistoryEntry[ring.length];
+            head = 0;
+            size = 0;
+            nextRemove(0, removed);
+        } finally {
+            endChange();
+        }
+    }
+}
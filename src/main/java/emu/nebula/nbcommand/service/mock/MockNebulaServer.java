@@ -0,0 +1,187 @@
+package emu.nebula.nbcommand.service.mock;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 内嵌的Nebula模拟服务器
+ * 在本机回环地址上提供与Nebula相同格式的/api/command接口（Code/Data/Msg），
+ * 可以配置响应耗时分布、错误率和慢响应，用于离线开发、压测和验证重试退避等行为。
+ * 每个请求在独立的虚拟线程上处理，模拟耗时不会占用平台线程
+ */
+public class MockNebulaServer implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(MockNebulaServer.class);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private volatile MockServerConfig config;
+    private HttpServer server;
+    private ExecutorService executor;
+
+    // 统计
+    private final LongAdder totalRequests = new LongAdder();
+    private final LongAdder errorResponses = new LongAdder();
+    private final LongAdder throttledResponses = new LongAdder();
+    private final LongAdder slowResponses = new LongAdder();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    public MockNebulaServer(MockServerConfig config) {
+        this.config = config;
+    }
+
+    /**
+     * 启动服务器
+     */
+    public synchronized void start() throws IOException {
+        if (server != null) {
+            return;
+        }
+
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), config.port()), 0);
+        server.setExecutor(executor);
+        server.createContext("/api/command", this::handleCommand);
+        // 其它路径用于健康检查，返回200即可
+        server.createContext("/", exchange -> respond(exchange, 200, "{}"));
+        server.start();
+        logger.info("模拟服务器已启动: {}, 配置: {}", getAddress(), config);
+    }
+
+    /**
+     * 服务器地址，可直接填入服务器地址栏
+     */
+    public synchronized String getAddress() {
+        if (server == null) {
+            return null;
+        }
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public synchronized boolean isRunning() {
+        return server != null;
+    }
+
+    /**
+     * 运行中修改配置，端口变化需要重启才能生效
+     */
+    public void setConfig(MockServerConfig config) {
+        this.config = config;
+    }
+
+    public MockServerConfig getConfig() {
+        return config;
+    }
+
+    private void handleCommand(HttpExchange exchange) throws IOException {
+        MockServerConfig current = config;
+        Random random = ThreadLocalRandom.current();
+        totalRequests.increment();
+        inFlight.incrementAndGet();
+        try {
+            String command;
+            try (InputStream body = exchange.getRequestBody()) {
+                JsonNode request = objectMapper.readTree(body);
+                command = request == null ? "" : request.path("command").asText("");
+            } catch (IOException e) {
+                respond(exchange, 400, rspData(400, "Invalid request body"));
+                return;
+            }
+
+            Duration latency = random.nextDouble() < current.slowRate()
+                    ? countSlow(current.slowLatencyMillis())
+                    : current.sampleLatency(random);
+            Thread.sleep(latency);
+
+            double roll = random.nextDouble();
+            if (roll < current.errorRate()) {
+                errorResponses.increment();
+                respond(exchange, 503, rspData(503, "Mock server error"));
+            } else if (roll < current.errorRate() + current.throttleRate()) {
+                throttledResponses.increment();
+                respond(exchange, 429, rspData(429, "Too many requests"));
+            } else {
+                respond(exchange, 200, rspData(200, "Mock executed: " + command));
+            }
+        } catch (InterruptedException e) {
+            // 服务器关闭时中断，直接断开连接
+            Thread.currentThread().interrupt();
+        } finally {
+            inFlight.decrementAndGet();
+            exchange.close();
+        }
+    }
+
+    private Duration countSlow(long slowLatencyMillis) {
+        slowResponses.increment();
+        return Duration.ofMillis(slowLatencyMillis);
+    }
+
+    private String rspData(int code, String msg) {
+        ObjectNode node = objectMapper.createObjectNode();
+        node.put("Code", code);
+        node.putNull("Data");
+        node.put("Msg", msg);
+        return node.toString();
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * 获取统计信息
+     */
+    public Stats getStats() {
+        return new Stats(totalRequests.sum(), errorResponses.sum(), throttledResponses.sum(),
+                slowResponses.sum(), inFlight.get());
+    }
+
+    /**
+     * 停止服务器，正在处理的请求会被中断
+     */
+    @Override
+    public synchronized void close() {
+        if (server == null) {
+            return;
+        }
+        server.stop(0);
+        executor.shutdownNow();
+        server = null;
+        executor = null;
+        logger.info("模拟服务器已停止, 统计: {}", getStats());
+    }
+
+    /**
+     * 模拟服务器统计快照
+     * @param totalRequests 收到的命令请求数
+     * @param errorResponses 返回503的次数
+     * @param throttledResponses 返回429的次数
+     * @param slowResponses 慢响应的次数
+     * @param inFlight 正在处理的请求数
+     */
+    public record Stats(long totalRequests, long errorResponses, long throttledResponses,
+                        long slowResponses, int inFlight) {}
+}
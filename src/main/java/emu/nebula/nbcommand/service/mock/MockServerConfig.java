@@ -0,0 +1,103 @@
+package emu.nebula.nbcommand.service.mock;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Function;
+
+/**
+ * 模拟服务器的行为配置
+ *
+ * @param port 监听端口，为0时自动分配
+ * @param distribution 响应耗时的分布
+ * @param meanLatencyMillis 平均耗时（毫秒）
+ * @param jitterMillis 耗时的波动幅度（毫秒），对均匀分布为半宽，对正态分布为标准差
+ * @param errorRate 返回503的概率，0~1
+ * @param throttleRate 返回429的概率，0~1
+ * @param slowRate 慢响应的概率，0~1
+ * @param slowLatencyMillis 慢响应的耗时（毫秒）
+ */
+public record MockServerConfig(
+        int port,
+        LatencyDistribution distribution,
+        long meanLatencyMillis,
+        long jitterMillis,
+        double errorRate,
+        double throttleRate,
+        double slowRate,
+        long slowLatencyMillis
+) {
+    public static final MockServerConfig DEFAULT =
+            new MockServerConfig(18080, LatencyDistribution.NORMAL, 30, 10, 0, 0, 0, 5000);
+
+    /**
+     * 响应耗时分布
+     */
+    public enum LatencyDistribution {
+        FIXED,
+        UNIFORM,
+        NORMAL,
+        EXPONENTIAL;
+
+        public static LatencyDistribution parse(String value) {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+
+    public MockServerConfig {
+        errorRate = clampRate(errorRate);
+        throttleRate = clampRate(throttleRate);
+        slowRate = clampRate(slowRate);
+        meanLatencyMillis = Math.max(0, meanLatencyMillis);
+        jitterMillis = Math.max(0, jitterMillis);
+    }
+
+    /**
+     * 按分布抽取一次响应耗时（不含慢响应）
+     */
+    public Duration sampleLatency(Random random) {
+        double millis = switch (distribution) {
+            case FIXED -> meanLatencyMillis;
+            case UNIFORM -> meanLatencyMillis + (random.nextDouble() * 2 - 1) * jitterMillis;
+            case NORMAL -> meanLatencyMillis + random.nextGaussian() * jitterMillis;
+            case EXPONENTIAL -> -Math.log(1 - random.nextDouble()) * meanLatencyMillis;
+        };
+        return Duration.ofNanos((long) (Math.max(0, millis) * 1_000_000));
+    }
+
+    /**
+     * 从命令行参数创建配置，未指定的项使用默认值
+     * 支持的参数: port, distribution, latency, jitter, error-rate, throttle-rate, slow-rate, slow-ms
+     *
+     * @throws IllegalArgumentException 参数值无法解析时抛出，消息中包含出错的参数名
+     */
+    public static MockServerConfig fromOptions(Map<String, String> options) {
+        MockServerConfig d = DEFAULT;
+        return new MockServerConfig(
+                option(options, "port", d.port(), Integer::parseInt),
+                option(options, "distribution", d.distribution(), LatencyDistribution::parse),
+                option(options, "latency", d.meanLatencyMillis(), Long::parseLong),
+                option(options, "jitter", d.jitterMillis(), Long::parseLong),
+                option(options, "error-rate", d.errorRate(), Double::parseDouble),
+                option(options, "throttle-rate", d.throttleRate(), Double::parseDouble),
+                option(options, "slow-rate", d.slowRate(), Double::parseDouble),
+                option(options, "slow-ms", d.slowLatencyMillis(), Long::parseLong));
+    }
+
+    private static <T> T option(Map<String, String> options, String name, T defaultValue, Function<String, T> parser) {
+        String value = options.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return parser.apply(value.trim());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid value for --" + name + ": '" + value + "'", e);
+        }
+    }
+
+    private static double clampRate(double rate) {
+        return Math.clamp(rate, 0.0, 1.0);
+    }
+}
@@ -0,0 +1,173 @@
+package emu.nebula.nbcommand.service.stress;
+
+import emu.nebula.nbcommand.model.Command;
+import emu.nebula.nbcommand.model.command.Syntax;
+import emu.nebula.nbcommand.service.TypedDataManager;
+import emu.nebula.nbcommand.service.handbook.HandbookStore;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * 压测命令生成器
+ * 按权重从命令注册表中的语法生成随机命令，参数中的物品、角色等ID从图鉴数据中随机选取。
+ * 混合比例的格式为"命令:权重"，以逗号分隔，例如"give:8,mail:2"
+ */
+public class CommandMixGenerator {
+    // 默认只压测给予物品，不会破坏账号数据
+    public static final String DEFAULT_MIX = "give:1";
+    private static final int MAX_MULTI_SELECT = 3;
+    private static final int MAX_NUMBER = 5;
+
+    private final List<Syntax> templates = new ArrayList<>();
+    private final List<Integer> cumulativeWeights = new ArrayList<>();
+    private int totalWeight = 0;
+    // 数据标识符 -> 可选ID，存储不可修改，生成时无需加锁
+    private final Map<String, HandbookStore> storesByIdentifier = new HashMap<>();
+
+    private CommandMixGenerator() {
+    }
+
+    /**
+     * 创建生成器
+     *
+     * @param mix 混合比例，例如"give:8,mail:2"
+     * @param commands 可用的命令
+     * @param typedDataManager 图鉴数据
+     * @throws IllegalArgumentException 比例格式错误或命令不存在时
+     */
+    public static CommandMixGenerator create(String mix, Collection<Command> commands, TypedDataManager typedDataManager) {
+        CommandMixGenerator generator = new CommandMixGenerator();
+        generator.storesByIdentifier.putAll(typedDataManager.getAllData());
+
+        for (String entry : mix.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            String[] parts = entry.split(":", 2);
+            String root = parts[0].trim().toLowerCase(Locale.ROOT);
+            int weight;
+            try {
+                weight = parts.length > 1 ? Integer.parseInt(parts[1].trim()) : 1;
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("权重必须是整数: " + entry.trim());
+            }
+            if (weight <= 0) {
+                continue;
+            }
+
+            List<Syntax> matches = commands.stream()
+                    .map(Command::syntax)
+                    .filter(syntax -> rootOf(syntax).equals(root))
+                    .toList();
+            if (matches.isEmpty()) {
+                throw new IllegalArgumentException("未知的命令: " + root);
+            }
+            // 同名的多个语法（如clean）平分权重
+            for (Syntax syntax : matches) {
+                generator.add(syntax, Math.max(1, weight / matches.size()));
+            }
+        }
+
+        if (generator.templates.isEmpty()) {
+            throw new IllegalArgumentException("命令比例为空");
+        }
+        return generator;
+    }
+
+    /**
+     * 可用于压测的命令名称
+     */
+    public static Set<String> availableCommands(Collection<Command> commands) {
+        Set<String> roots = new LinkedHashSet<>();
+        for (Command command : commands) {
+            roots.add(rootOf(command.syntax()));
+        }
+        return roots;
+    }
+
+    private static String rootOf(Syntax syntax) {
+        return syntax.getFields().getFirst().getOriginalName().toLowerCase(Locale.ROOT);
+    }
+
+    private void add(Syntax syntax, int weight) {
+        totalWeight += weight;
+        templates.add(syntax);
+        cumulativeWeights.add(totalWeight);
+    }
+
+    /**
+     * 按权重生成一条不含@uid的命令
+     */
+    public String next(Random random) {
+        int roll = random.nextInt(totalWeight);
+        int index = 0;
+        while (cumulativeWeights.get(index) <= roll) {
+            index++;
+        }
+        return generate(templates.get(index), random);
+    }
+
+    private String generate(Syntax syntax, Random random) {
+        StringBuilder commandText = new StringBuilder();
+        for (Syntax.Field field : syntax.getFields()) {
+            String originalName = field.getOriginalName();
+            if (commandText.isEmpty()) {
+                commandText.append(originalName);
+                continue;
+            }
+
+            String value = switch (field.getFieldMode()) {
+                case SIMPLE_RADIO -> randomOption(originalName, random);
+                case COMPLEX_RADIO -> randomId(originalName, random);
+                case MULTI_SELECT_CONTAINER -> randomIds(field, random, false);
+                case MULTI_SELECT_CONTAINER_WITH_COUNT -> randomIds(field, random, true);
+                case SPECIAL_PREFIX -> field.getSpecialPrefix() == null || field.getSpecialPrefix().isEmpty()
+                        ? null : field.getSpecialPrefix() + (1 + random.nextInt(MAX_NUMBER));
+                // 不带括号的普通字段是固定文本，带括号的是可选参数，无法推断取值时省略
+                case NONE -> originalName.startsWith("[") || originalName.startsWith("(") ? null : originalName;
+                case REALLY_HIDDEN -> null;
+            };
+            if (value != null && !value.isEmpty()) {
+                commandText.append(' ').append(value);
+            }
+        }
+        return commandText.toString();
+    }
+
+    /**
+     * 从"{a | b | c}"中随机选一项
+     */
+    private static String randomOption(String options, Random random) {
+        String[] choices = options.replace("{", "").replace("}", "").split("\\|");
+        return choices[random.nextInt(choices.length)].trim();
+    }
+
+    private String randomId(String identifier, Random random) {
+        HandbookStore store = storesByIdentifier.get(identifier);
+        if (store == null || store.size() == 0) {
+            return null;
+        }
+        return Integer.toString(store.id(random.nextInt(store.size())));
+    }
+
+    private String randomIds(Syntax.Field field, Random random, boolean withCount) {
+        String delimiter = field.getSpecialPrefix() != null && !field.getSpecialPrefix().isEmpty() ? field.getSpecialPrefix() : ",";
+        int count = 1 + random.nextInt(MAX_MULTI_SELECT);
+        List<String> values = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String id = randomId(field.getOriginalName(), random);
+            if (id != null) {
+                values.add(withCount ? id + ":" + (1 + random.nextInt(MAX_NUMBER)) : id);
+            }
+        }
+        return String.join(delimiter, values);
+    }
+}
@@ -0,0 +1,81 @@
+package emu.nebula.nbcommand.service.stress;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 无锁的对数分桶耗时直方图
+ * 以微秒记录，每个2的幂区间再均分为64个子桶，分位数误差不超过约1.6%，
+ * 内存占用固定，与样本数量无关，适合长时间压测
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // 覆盖到约2^40微秒（十几天），足够任何请求耗时
+    private static final int MAX_EXPONENT = 40;
+
+    private final AtomicLongArray counts = new AtomicLongArray((MAX_EXPONENT + 1) * SUB_BUCKETS);
+    private final LongAdder total = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * 记录一个样本
+     * @param micros 耗时（微秒）
+     */
+    public void record(long micros) {
+        long value = Math.max(0, micros);
+        counts.incrementAndGet(bucketIndex(value));
+        total.increment();
+        max.accumulate(value);
+    }
+
+    public long count() {
+        return total.sum();
+    }
+
+    public long maxMicros() {
+        return max.get();
+    }
+
+    /**
+     * 获取分位数
+     * @param quantile 0~1之间的分位，如0.99
+     * @return 对应的耗时（微秒），取所在桶的上界
+     */
+    public long percentileMicros(double quantile) {
+        long samples = count();
+        if (samples == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(quantile * samples));
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(bucketUpperBound(i), maxMicros());
+            }
+        }
+        return maxMicros();
+    }
+
+    private static int bucketIndex(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        // 取最高的SUB_BUCKET_BITS+1位，value >>> shift落在[SUB_BUCKETS, 2*SUB_BUCKETS)之间
+        int shift = Math.min(63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS, MAX_EXPONENT - 1);
+        int subBucket = (int) Math.min(value >>> shift, 2 * SUB_BUCKETS - 1) - SUB_BUCKETS;
+        return (shift + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    private static long bucketUpperBound(int index) {
+        int exponent = index / SUB_BUCKETS;
+        int subBucket = index % SUB_BUCKETS;
+        if (exponent == 0) {
+            return subBucket;
+        }
+        return ((long) (subBucket + SUB_BUCKETS + 1) << (exponent - 1)) - 1;
+    }
+}
@@ -0,0 +1,37 @@
+package emu.nebula.nbcommand.service.stress;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * 压测配置
+ *
+ * @param mode 压测模式
+ * @param targetRate 开环模式下每秒发送的命令数
+ * @param concurrency 闭环模式下的并发数；开环模式下同时未完成请求的上限
+ * @param duration 压测时长
+ * @param commandMix 命令混合比例，格式见CommandMixGenerator
+ * @param uids 轮流使用的目标UID，为空时不附加@uid
+ */
+public record StressConfig(
+        Mode mode,
+        int targetRate,
+        int concurrency,
+        Duration duration,
+        String commandMix,
+        List<String> uids
+) {
+    /**
+     * 压测模式
+     */
+    public enum Mode {
+        OPEN_LOOP,  // 按固定速率发送，不等待响应，测量服务器在给定负载下的耗时
+        CLOSED_LOOP // 固定数量的并发连续发送，测量服务器能达到的最大吞吐
+    }
+
+    public StressConfig {
+        targetRate = Math.max(1, targetRate);
+        concurrency = Math.max(1, concurrency);
+        uids = List.copyOf(uids);
+    }
+}
@@ -0,0 +1,104 @@
+package emu.nebula.nbcommand.service.stress;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 压测报告
+ *
+ * @param serverAddress 目标服务器
+ * @param mode 压测模式
+ * @param targetRate 开环模式的目标速率
+ * @param concurrency 并发数
+ * @param commandMix 命令混合比例
+ * @param elapsedMillis 实际耗时（毫秒）
+ * @param total 完成的请求数
+ * @param succeeded 成功的请求数
+ * @param failed 失败的请求数
+ * @param throughput 实际吞吐（每秒完成的请求数）
+ * @param p50Millis 50分位耗时（毫秒）
+ * @param p90Millis 90分位耗时（毫秒）
+ * @param p99Millis 99分位耗时（毫秒）
+ * @param maxMillis 最大耗时（毫秒）
+ * @param errors 按类型统计的错误数，例如"HTTP 503"或异常类名
+ */
+public record StressReport(
+        String serverAddress,
+        StressConfig.Mode mode,
+        int targetRate,
+        int concurrency,
+        String commandMix,
+        long elapsedMillis,
+        long total,
+        long succeeded,
+        long failed,
+        double throughput,
+        double p50Millis,
+        double p90Millis,
+        double p99Millis,
+        double maxMillis,
+        Map<String, Long> errors
+) {
+    private static final String[] CSV_COLUMNS = {
+            "server_address", "mode", "target_rate", "concurrency", "command_mix", "elapsed_ms",
+            "total", "succeeded", "failed", "throughput", "p50_ms", "p90_ms", "p99_ms", "max_ms", "errors"
+    };
+
+    /**
+     * 导出为CSV，第一行为表头，第二行为数据
+     */
+    public String toCsv() {
+        StringBuilder errorText = new StringBuilder();
+        errors.forEach((type, count) -> {
+            if (!errorText.isEmpty()) {
+                errorText.append("; ");
+            }
+            errorText.append(type).append('=').append(count);
+        });
+
+        Object[] values = {serverAddress, mode, targetRate, concurrency, commandMix, elapsedMillis,
+                total, succeeded, failed, format(throughput), format(p50Millis), format(p90Millis),
+                format(p99Millis), format(maxMillis), errorText};
+        StringBuilder csv = new StringBuilder(String.join(",", CSV_COLUMNS)).append('\n');
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                csv.append(',');
+            }
+            csv.append(escapeCsv(String.valueOf(values[i])));
+        }
+        return csv.append('\n').toString();
+    }
+
+    /**
+     * 导出为格式化的JSON
+     */
+    public String toJson() throws IOException {
+        return new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValueAsString(this);
+    }
+
+    /**
+     * 按文件扩展名导出，.json导出为JSON，其它导出为CSV
+     */
+    public void export(Path file) throws IOException {
+        boolean json = file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".json");
+        Files.writeString(file, json ? toJson() : toCsv(), StandardCharsets.UTF_8);
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.2f", value);
+    }
+
+    private static String escapeCsv(String value) {
+        if (value.contains(",") || value.contains("\"") || value.contains("\n")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+}
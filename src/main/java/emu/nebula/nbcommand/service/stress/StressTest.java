@@ -0,0 +1,219 @@
+package emu.nebula.nbcommand.service.stress;
+
+import emu.nebula.nbcommand.model.CommandResult;
+import emu.nebula.nbcommand.model.ServerEndpoint;
+import emu.nebula.nbcommand.service.command.CommandExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 压测执行器
+ * 开环模式按目标速率发送命令，耗时从计划发送时刻开始计算，服务器变慢导致的排队也计入耗时，
+ * 避免只统计实际发出的请求而低估尾部耗时；闭环模式下固定数量的虚拟线程连续发送。
+ * 压测请求直接走传输层，不经过重试、限流和暂存队列，测量的是服务器本身的表现。
+ */
+public class StressTest {
+    private static final Logger logger = LoggerFactory.getLogger(StressTest.class);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(10);
+    private static final long PROGRESS_INTERVAL_MILLIS = 500;
+
+    /**
+     * 进度回调，在执行压测的线程上调用
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+        void onProgress(Progress progress);
+    }
+
+    /**
+     * 压测进度快照
+     *
+     * @param completed 已完成的请求数
+     * @param failed 失败的请求数
+     * @param elapsedMillis 已经过的时间（毫秒）
+     * @param throughput 当前吞吐（每秒完成的请求数）
+     * @param p99Millis 当前99分位耗时（毫秒）
+     */
+    public record Progress(long completed, long failed, long elapsedMillis, double throughput, double p99Millis) {}
+
+    private final CommandExecutor commandExecutor;
+    private final ServerEndpoint endpoint;
+    private final CommandMixGenerator generator;
+    private final StressConfig config;
+
+    private final LatencyHistogram histogram = new LatencyHistogram();
+    private final LongAdder succeeded = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private volatile boolean stopped = false;
+
+    public StressTest(CommandExecutor commandExecutor, ServerEndpoint endpoint,
+                      CommandMixGenerator generator, StressConfig config) {
+        this.commandExecutor = commandExecutor;
+        this.endpoint = endpoint;
+        this.generator = generator;
+        this.config = config;
+    }
+
+    /**
+     * 执行压测，直到达到设定时长或被停止
+     *
+     * @param listener 进度回调
+     * @return 压测报告
+     * @throws InterruptedException 执行线程被中断时，尚未完成的请求会被取消
+     */
+    public StressReport run(ProgressListener listener) throws InterruptedException {
+        logger.info("开始压测 {}: {}", endpoint.serverAddress(), config);
+        long start = System.nanoTime();
+        long deadline = start + config.duration().toNanos();
+
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+            try {
+                if (config.mode() == StressConfig.Mode.OPEN_LOOP) {
+                    workers.submit(() -> pace(workers, start, deadline));
+                } else {
+                    for (int i = 0; i < config.concurrency(); i++) {
+                        workers.submit(() -> loop(deadline));
+                    }
+                }
+
+                while (!stopped && System.nanoTime() < deadline) {
+                    long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                    Thread.sleep(Math.max(1, Math.min(PROGRESS_INTERVAL_MILLIS, remainingMillis)));
+                    listener.onProgress(progress(start));
+                }
+                stopped = true;
+            } catch (InterruptedException e) {
+                stopped = true;
+                workers.shutdownNow();
+                throw e;
+            }
+        }
+
+        StressReport report = report(System.nanoTime() - start);
+        listener.onProgress(progress(start));
+        logger.info("压测完成: 共 {} 个请求, 失败 {}, 吞吐 {}/s, p99 {}ms",
+                report.total(), report.failed(), String.format("%.1f", report.throughput()), report.p99Millis());
+        return report;
+    }
+
+    /**
+     * 提前结束压测，已经发出的请求会等待完成
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    /**
+     * 开环模式的发送节拍，第i个请求计划在start + i * interval时发送
+     */
+    private void pace(ExecutorService workers, long start, long deadline) {
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / config.targetRate();
+        // 限制同时未完成的请求数，服务器停止响应时不至于无限堆积
+        Semaphore outstanding = new Semaphore(config.concurrency());
+        for (long i = 0; !stopped; i++) {
+            long scheduled = start + i * intervalNanos;
+            if (scheduled >= deadline) {
+                break;
+            }
+            long wait = scheduled - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            try {
+                outstanding.acquire();
+            } catch (InterruptedException e) {
+                return;
+            }
+            workers.submit(() -> {
+                try {
+                    send(scheduled);
+                } finally {
+                    outstanding.release();
+                }
+            });
+        }
+    }
+
+    /**
+     * 闭环模式的工作线程，上一个请求完成后立即发送下一个
+     */
+    private void loop(long deadline) {
+        while (!stopped && System.nanoTime() < deadline && !Thread.currentThread().isInterrupted()) {
+            send(System.nanoTime());
+        }
+    }
+
+    private void send(long scheduledNanos) {
+        String commandText = generator.next(ThreadLocalRandom.current());
+        List<String> uids = config.uids();
+        if (!uids.isEmpty()) {
+            commandText += " @" + uids.get((int) (sequence.getAndIncrement() % uids.size()));
+        }
+
+        CommandResult result = commandExecutor.executeUnmanaged(endpoint, commandText, REQUEST_TIMEOUT);
+        histogram.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - scheduledNanos));
+        if (result.isSuccess()) {
+            succeeded.increment();
+        } else {
+            failed.increment();
+            errors.computeIfAbsent(errorType(result), type -> new LongAdder()).increment();
+        }
+    }
+
+    /**
+     * 错误分类，收到响应时按状态码，否则按最内层异常的类型
+     */
+    private static String errorType(CommandResult result) {
+        if (result.error() == null) {
+            return "HTTP " + result.statusCode();
+        }
+        Throwable cause = result.error();
+        while (cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause.getClass().getSimpleName();
+    }
+
+    private Progress progress(long start) {
+        long elapsedNanos = System.nanoTime() - start;
+        long completed = succeeded.sum() + failed.sum();
+        return new Progress(completed, failed.sum(), TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+                throughput(completed, elapsedNanos), histogram.percentileMicros(0.99) / 1000.0);
+    }
+
+    private StressReport report(long elapsedNanos) {
+        long ok = succeeded.sum();
+        long ko = failed.sum();
+        Map<String, Long> errorCounts = new TreeMap<>();
+        errors.forEach((type, count) -> errorCounts.put(type, count.sum()));
+
+        return new StressReport(endpoint.serverAddress(), config.mode(), config.targetRate(), config.concurrency(),
+                config.commandMix(), TimeUnit.NANOSECONDS.toMillis(elapsedNanos), ok + ko, ok, ko,
+                throughput(ok + ko, elapsedNanos),
+                histogram.percentileMicros(0.50) / 1000.0,
+                histogram.percentileMicros(0.90) / 1000.0,
+                histogram.percentileMicros(0.99) / 1000.0,
+                histogram.maxMicros() / 1000.0,
+                errorCounts);
+    }
+
+    private static double throughput(long completed, long elapsedNanos) {
+        return elapsedNanos <= 0 ? 0 : completed * 1e9 / elapsedNanos;
+    }
+}
@@ -0,0 +1,29 @@
+package emu.nebula.nbcommand.ui;
+
+import emu.nebula.nbcommand.model.HistoryEntry;
+import javafx.scene.control.ListCell;
+
+/**
+ * 历史记录列表的单元格
+ * 只为可见的记录创建单元格，长消息自动换行，失败的命令以红色显示
+ */
+public final class HistoryEntryCell extends ListCell<HistoryEntry> {
+
+    public HistoryEntryCell() {
+        setWrapText(true);
+        // 宽度跟随列表，避免长文本撑出横向滚动条
+        setPrefWidth(0);
+    }
+
+    @Override
+    protected void updateItem(HistoryEntry entry, boolean empty) {
+        super.updateItem(entry, empty);
+        if (empty || entry == null) {
+            setText(null);
+            setStyle(null);
+            return;
+        }
+        setText(entry.toDisplayText());
+        setStyle(entry.status() == HistoryEntry.Status.FAILURE ? "-fx-text-fill: #c62828;" : null);
+    }
+}
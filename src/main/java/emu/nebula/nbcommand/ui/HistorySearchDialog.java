@@ -0,0 +1,218 @@
+package emu.nebula.nbcommand.ui;
+
+import emu.nebula.nbcommand.model.HistoryRecord;
+import emu.nebula.nbcommand.service.I18nManager;
+import emu.nebula.nbcommand.service.history.HistoryArchive;
+import emu.nebula.nbcommand.viewmodel.MainViewModel;
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.scene.control.Button;
+import javafx.scene.control.ButtonType;
+import javafx.scene.control.ComboBox;
+import javafx.scene.control.Dialog;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.scene.control.TextArea;
+import javafx.scene.control.TextField;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
+import javafx.stage.Modality;
+import javafx.stage.Window;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 命令历史搜索对话框
+ * 按内容和时间范围检索持久化的命令历史，结果按从新到旧分页加载，选中记录后可以在当前服务器上重新执行
+ */
+public class HistorySearchDialog {
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    /**
+     * 搜索的时间范围
+     */
+    private enum Range {
+        ALL("history_search.range_all", null),
+        DAY("history_search.range_day", Duration.ofDays(1)),
+        WEEK("history_search.range_week", Duration.ofDays(7)),
+        MONTH("history_search.range_month", Duration.ofDays(30));
+
+        private final String labelKey;
+        private final Duration period;
+
+        Range(String labelKey, Duration period) {
+            this.labelKey = labelKey;
+            this.period = period;
+        }
+    }
+
+    private final I18nManager i18n = I18nManager.getInstance();
+
+    private final MainViewModel viewModel;
+    private final HistoryArchive archive;
+    private final Dialog<ButtonType> dialog = new Dialog<>();
+    private final TextField queryField = new TextField();
+    private final ComboBox<Range> rangeComboBox = new ComboBox<>(FXCollections.observableArrayList(Range.values()));
+    private final Button searchButton = new Button();
+    private final Button loadMoreButton = new Button();
+    private final Button rerunButton = new Button();
+    private final Label statusLabel = new Label();
+    private final ObservableList<HistoryRecord> results = FXCollections.observableArrayList();
+    private final TableView<HistoryRecord> resultTable = new TableView<>(results);
+    private final TextArea responseArea = new TextArea();
+
+    // 当前搜索的条件，翻页时沿用
+    private String currentQuery;
+    private Instant currentSince;
+    // 每次新搜索加一，较早搜索的结果返回时直接丢弃
+    private long generation;
+    private boolean loading;
+    private boolean exhausted = true;
+
+    public HistorySearchDialog(MainViewModel viewModel, Window owner) {
+        this.viewModel = viewModel;
+        this.archive = viewModel.getHistoryArchive().orElseThrow();
+
+        queryField.setPromptText(i18n.getString("history_search.prompt"));
+        queryField.setOnAction(event -> search());
+        HBox.setHgrow(queryField, Priority.ALWAYS);
+        rangeComboBox.setValue(Range.ALL);
+        rangeComboBox.setButtonCell(new RangeCell());
+        rangeComboBox.setCellFactory(list -> new RangeCell());
+        searchButton.setText(i18n.getString("history_search.search"));
+        searchButton.setOnAction(event -> search());
+
+        resultTable.getColumns().add(column("history_search.time", 140,
+                record -> LocalDateTime.ofInstant(record.executedAt(), ZoneId.systemDefault()).format(TIME_FORMAT)));
+        resultTable.getColumns().add(column("history_search.uid", 80, HistoryRecord::uid));
+        resultTable.getColumns().add(column("history_search.command", 240, HistoryRecord::commandText));
+        resultTable.getColumns().add(column("history_search.status", 60, record -> Integer.toString(record.statusCode())));
+        resultTable.getColumns().add(column("history_search.latency", 70, record -> record.latencyMillis() + "ms"));
+        resultTable.getColumns().add(column("history_search.server", 160, HistoryRecord::serverAddress));
+        resultTable.setPrefHeight(300);
+        resultTable.getSelectionModel().selectedItemProperty().addListener((observable, oldValue, record) -> {
+            responseArea.setText(record == null ? "" : record.response());
+            // 只能在记录所在的服务器上重新执行
+            rerunButton.setDisable(record == null || !viewModel.canRerun(record));
+        });
+
+        responseArea.setEditable(false);
+        responseArea.setWrapText(true);
+        responseArea.setPrefRowCount(6);
+
+        loadMoreButton.setText(i18n.getString("history_search.load_more"));
+        loadMoreButton.setOnAction(event -> loadNextPage());
+        rerunButton.setText(i18n.getString("history_search.rerun"));
+        rerunButton.setDisable(true);
+        rerunButton.setOnAction(event -> {
+            HistoryRecord record = resultTable.getSelectionModel().getSelectedItem();
+            if (record != null) {
+                viewModel.rerunHistory(record);
+            }
+        });
+
+        VBox content = new VBox(10,
+                new HBox(5, queryField, rangeComboBox, searchButton),
+                resultTable,
+                responseArea,
+                new HBox(5, loadMoreButton, rerunButton, statusLabel));
+        content.setPrefWidth(760);
+        VBox.setVgrow(resultTable, Priority.ALWAYS);
+
+        dialog.initOwner(owner);
+        dialog.initModality(Modality.NONE);
+        dialog.setResizable(true);
+        dialog.setTitle(i18n.getString("history_search.title"));
+        dialog.getDialogPane().setContent(content);
+        dialog.getDialogPane().getButtonTypes().add(ButtonType.CLOSE);
+
+        updateButtons();
+        search();
+    }
+
+    /**
+     * 显示对话框，不阻塞主窗口
+     */
+    public void show() {
+        dialog.show();
+    }
+
+    private TableColumn<HistoryRecord, String> column(String titleKey, double width, Function<HistoryRecord, String> value) {
+        TableColumn<HistoryRecord, String> column = new TableColumn<>(i18n.getString(titleKey));
+        column.setPrefWidth(width);
+        column.setCellValueFactory(data -> new ReadOnlyObjectWrapper<>(value.apply(data.getValue())));
+        return column;
+    }
+
+    /**
+     * 按当前条件重新搜索
+     */
+    private void search() {
+        Range range = rangeComboBox.getValue();
+        currentQuery = queryField.getText();
+        currentSince = range.period == null ? null : Instant.now().minus(range.period);
+        generation++;
+        results.clear();
+        responseArea.clear();
+        exhausted = false;
+        loading = false;
+        loadNextPage();
+    }
+
+    /**
+     * 在后台加载下一页结果
+     */
+    private void loadNextPage() {
+        if (loading || exhausted) {
+            return;
+        }
+        long requestGeneration = generation;
+        String query = currentQuery;
+        Instant since = currentSince;
+        long beforeId = results.isEmpty() ? Long.MAX_VALUE : results.getLast().id();
+        loading = true;
+        statusLabel.setText(i18n.getString("history_search.searching"));
+        updateButtons();
+
+        Thread.ofVirtual().name("history-search").start(() -> {
+            List<HistoryRecord> page = archive.search(query, since, beforeId);
+            Platform.runLater(() -> {
+                if (requestGeneration != generation) {
+                    return;
+                }
+                loading = false;
+                exhausted = page.size() < HistoryArchive.PAGE_SIZE;
+                results.addAll(page);
+                statusLabel.setText(i18n.getString(exhausted ? "history_search.result_count" : "history_search.result_count_more",
+                        results.size()));
+                updateButtons();
+            });
+        });
+    }
+
+    private void updateButtons() {
+        loadMoreButton.setDisable(loading || exhausted);
+    }
+
+    /**
+     * 时间范围下拉框的单元格
+     */
+    private class RangeCell extends ListCell<Range> {
+        @Override
+        protected void updateItem(Range range, boolean empty) {
+            super.updateItem(range, empty);
+            setText(empty || range == null ? null : i18n.getString(range.labelKey));
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package emu.nebula.nbcommand.ui;
+
+import emu.nebula.nbcommand.service.I18nManager;
+import emu.nebula.nbcommand.service.mock.MockNebulaServer;
+import emu.nebula.nbcommand.service.mock.MockServerConfig;
+import emu.nebula.nbcommand.viewmodel.MainViewModel;
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.collections.FXCollections;
+import javafx.scene.control.Button;
+import javafx.scene.control.ButtonType;
+import javafx.scene.control.ComboBox;
+import javafx.scene.control.Control;
+import javafx.scene.control.Dialog;
+import javafx.scene.control.Label;
+import javafx.scene.control.Spinner;
+import javafx.scene.layout.GridPane;
+import javafx.scene.layout.VBox;
+import javafx.stage.Window;
+import javafx.util.Duration;
+
+/**
+ * 本地模拟服务器对话框
+ * 启动后命令会发往模拟服务器，停止后恢复为配置的服务器
+ */
+public class MockServerDialog {
+    private final I18nManager i18n = I18nManager.getInstance();
+
+    private final MainViewModel viewModel;
+    private final Dialog<ButtonType> dialog = new Dialog<>();
+    private final Spinner<Integer> portSpinner = new Spinner<>(0, 65535, 0);
+    private final ComboBox<MockServerConfig.LatencyDistribution> distributionComboBox =
+            new ComboBox<>(FXCollections.observableArrayList(MockServerConfig.LatencyDistribution.values()));
+    private final Spinner<Integer> latencySpinner = new Spinner<>(0, 60000, 0);
+    private final Spinner<Integer> jitterSpinner = new Spinner<>(0, 60000, 0);
+    private final Spinner<Double> errorRateSpinner = new Spinner<>(0.0, 100.0, 0.0, 1.0);
+    private final Spinner<Double> throttleRateSpinner = new Spinner<>(0.0, 100.0, 0.0, 1.0);
+    private final Spinner<Double> slowRateSpinner = new Spinner<>(0.0, 100.0, 0.0, 1.0);
+    private final Spinner<Integer> slowLatencySpinner = new Spinner<>(0, 600000, 0);
+    private final Button toggleButton = new Button();
+    private final Label statusLabel = new Label();
+
+    public MockServerDialog(MainViewModel viewModel, Window owner) {
+        this.viewModel = viewModel;
+
+        applyConfig(viewModel.getMockServerConfig());
+        for (Spinner<?> spinner : spinners()) {
+            spinner.setEditable(true);
+        }
+
+        GridPane grid = new GridPane();
+        grid.setHgap(10);
+        grid.setVgap(8);
+        addRow(grid, 0, "mock.port", portSpinner);
+        addRow(grid, 1, "mock.distribution", distributionComboBox);
+        addRow(grid, 2, "mock.latency", latencySpinner);
+        addRow(grid, 3, "mock.jitter", jitterSpinner);
+        addRow(grid, 4, "mock.error_rate", errorRateSpinner);
+        addRow(grid, 5, "mock.throttle_rate", throttleRateSpinner);
+        addRow(grid, 6, "mock.slow_rate", slowRateSpinner);
+        addRow(grid, 7, "mock.slow_latency", slowLatencySpinner);
+
+        toggleButton.setMaxWidth(Double.MAX_VALUE);
+        toggleButton.setOnAction(event -> toggle());
+
+        VBox content = new VBox(10, grid, toggleButton, statusLabel);
+        content.setPrefWidth(380);
+
+        dialog.initOwner(owner);
+        dialog.setTitle(i18n.getString("mock.title"));
+        dialog.getDialogPane().setContent(content);
+        dialog.getDialogPane().getButtonTypes().add(ButtonType.CLOSE);
+
+        refresh();
+    }
+
+    /**
+     * 显示对话框，打开期间定时刷新统计
+     */
+    public void showAndWait() {
+        Timeline refresher = new Timeline(new KeyFrame(Duration.millis(500), event -> refresh()));
+        refresher.setCycleCount(Animation.INDEFINITE);
+        refresher.play();
+        try {
+            dialog.showAndWait();
+        } finally {
+            refresher.stop();
+        }
+    }
+
+    private void applyConfig(MockServerConfig config) {
+        portSpinner.getValueFactory().setValue(config.port());
+        distributionComboBox.setValue(config.distribution());
+        latencySpinner.getValueFactory().setValue((int) config.meanLatencyMillis());
+        jitterSpinner.getValueFactory().setValue((int) config.jitterMillis());
+        errorRateSpinner.getValueFactory().setValue(config.errorRate() * 100);
+        throttleRateSpinner.getValueFactory().setValue(config.throttleRate() * 100);
+        slowRateSpinner.getValueFactory().setValue(config.slowRate() * 100);
+        slowLatencySpinner.getValueFactory().setValue((int) config.slowLatencyMillis());
+    }
+
+    private Spinner<?>[] spinners() {
+        return new Spinner<?>[]{portSpinner, latencySpinner, jitterSpinner,
+                errorRateSpinner, throttleRateSpinner, slowRateSpinner, slowLatencySpinner};
+    }
+
+    private void addRow(GridPane grid, int row, String labelKey, Control control) {
+        grid.add(new Label(i18n.getString(labelKey) + ":"), 0, row);
+        grid.add(control, 1, row);
+    }
+
+    private void toggle() {
+        if (viewModel.isMockServerRunning()) {
+            viewModel.stopMockServer();
+        } else {
+            commitEditors();
+            MockServerConfig config = new MockServerConfig(
+                    portSpinner.getValue(),
+                    distributionComboBox.getValue(),
+                    latencySpinner.getValue(),
+                    jitterSpinner.getValue(),
+                    errorRateSpinner.getValue() / 100,
+                    throttleRateSpinner.getValue() / 100,
+                    slowRateSpinner.getValue() / 100,
+                    slowLatencySpinner.getValue());
+            viewModel.startMockServer(config);
+        }
+        refresh();
+    }
+
+    private void refresh() {
+        MockNebulaServer server = viewModel.getMockServer();
+        boolean running = server != null && server.isRunning();
+        toggleButton.setText(i18n.getString(running ? "mock.stop" : "mock.start"));
+        if (running) {
+            MockNebulaServer.Stats stats = server.getStats();
+            statusLabel.setText(i18n.getString("mock.running", server.getAddress(), stats.totalRequests(),
+                    stats.errorResponses(), stats.throttledResponses(), stats.slowResponses()));
+        } else {
+            statusLabel.setText(i18n.getString("mock.stopped"));
+        }
+    }
+
+    /**
+     * 提交编辑器中尚未确认的输入
+     */
+    private void commitEditors() {
+        for (Spinner<?> spinner : spinners()) {
+            commitEditor(spinner);
+        }
+    }
+
+    private static <T> void commitEditor(Spinner<T> spinner) {
+        try {
+            spinner.getValueFactory().setValue(spinner.getValueFactory().getConverter().fromString(spinner.getEditor().getText()));
+        } catch (RuntimeException ignored) {
+            // 输入无效时保留原值
+        }
+    }
+}
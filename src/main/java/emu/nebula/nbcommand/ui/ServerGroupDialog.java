@@ -0,0 +1,149 @@
+package emu.nebula.nbcommand.ui;
+
+import emu.nebula.nbcommand.model.ServerEndpoint;
+import emu.nebula.nbcommand.model.ServerGroup;
+import emu.nebula.nbcommand.repository.ConfigRepository;
+import emu.nebula.nbcommand.service.I18nManager;
+import javafx.collections.FXCollections;
+import javafx.scene.control.Button;
+import javafx.scene.control.ButtonType;
+import javafx.scene.control.ComboBox;
+import javafx.scene.control.Dialog;
+import javafx.scene.control.Label;
+import javafx.scene.control.TextArea;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.Region;
+import javafx.scene.layout.VBox;
+import javafx.stage.Window;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 服务器组管理对话框
+ * 每行填写一台服务器: 地址 Token
+ */
+public class ServerGroupDialog {
+    private final I18nManager i18n = I18nManager.getInstance();
+
+    private final ConfigRepository configRepository;
+    private final Dialog<ButtonType> dialog = new Dialog<>();
+    private final ComboBox<String> groupComboBox = new ComboBox<>();
+    private final TextArea serversArea = new TextArea();
+    private final Label statusLabel = new Label();
+    // 对话框打开期间服务器组是否被修改过
+    private boolean changed = false;
+
+    public ServerGroupDialog(ConfigRepository configRepository, Window owner) {
+        this.configRepository = configRepository;
+
+        groupComboBox.setEditable(true);
+        groupComboBox.setPromptText(i18n.getString("server_group.name"));
+        groupComboBox.setOnAction(event -> loadGroup(groupComboBox.getEditor().getText()));
+
+        Button saveButton = new Button(i18n.getString("toolbar.save"));
+        saveButton.setMinWidth(Region.USE_PREF_SIZE);
+        saveButton.setOnAction(event -> saveGroup());
+
+        Button deleteButton = new Button(i18n.getString("server_group.delete"));
+        deleteButton.setMinWidth(Region.USE_PREF_SIZE);
+        deleteButton.setOnAction(event -> deleteGroup());
+
+        HBox groupBox = new HBox(5, groupComboBox, saveButton, deleteButton);
+        HBox.setHgrow(groupComboBox, Priority.ALWAYS);
+        groupComboBox.setMaxWidth(Double.MAX_VALUE);
+
+        serversArea.setPromptText("http://127.0.0.1:80 token\nhttp://127.0.0.1:81 token");
+        serversArea.setPrefRowCount(8);
+
+        VBox content = new VBox(5,
+                new Label(i18n.getString("server_group.name") + ":"), groupBox,
+                new Label(i18n.getString("server_group.servers") + ":"), serversArea,
+                statusLabel);
+        content.setPrefWidth(460);
+
+        dialog.initOwner(owner);
+        dialog.setTitle(i18n.getString("server_group.title"));
+        dialog.getDialogPane().setContent(content);
+        dialog.getDialogPane().getButtonTypes().add(ButtonType.CLOSE);
+
+        refreshGroupNames();
+    }
+
+    /**
+     * 显示对话框
+     * @return 服务器组是否被修改过
+     */
+    public boolean showAndWait() {
+        dialog.showAndWait();
+        return changed;
+    }
+
+    private void refreshGroupNames() {
+        String current = groupComboBox.getEditor().getText();
+        groupComboBox.setItems(FXCollections.observableArrayList(
+                configRepository.getServerGroups().stream().map(ServerGroup::name).toList()));
+        groupComboBox.getEditor().setText(current);
+    }
+
+    private void loadGroup(String name) {
+        configRepository.findServerGroup(name).ifPresent(group -> serversArea.setText(group.servers().stream()
+                .map(server -> server.serverAddress() + " " + server.authToken())
+                .collect(Collectors.joining("\n"))));
+    }
+
+    private void saveGroup() {
+        String name = groupComboBox.getEditor().getText();
+        if (name == null || name.isBlank()) {
+            statusLabel.setText(i18n.getString("server_group.name_required"));
+            return;
+        }
+
+        List<ServerEndpoint> servers = parseServers(serversArea.getText());
+        if (servers.isEmpty()) {
+            statusLabel.setText(i18n.getString("server_group.servers_required"));
+            return;
+        }
+
+        if (configRepository.saveServerGroup(new ServerGroup(name.trim(), servers))) {
+            changed = true;
+            statusLabel.setText(i18n.getString("server_group.saved", name.trim(), servers.size()));
+            refreshGroupNames();
+        } else {
+            statusLabel.setText(i18n.getString("message.config_save_failed"));
+        }
+    }
+
+    private void deleteGroup() {
+        String name = groupComboBox.getEditor().getText();
+        if (name != null && configRepository.deleteServerGroup(name.trim())) {
+            changed = true;
+            serversArea.clear();
+            groupComboBox.getEditor().clear();
+            statusLabel.setText(i18n.getString("server_group.deleted", name.trim()));
+            refreshGroupNames();
+        }
+    }
+
+    /**
+     * 解析服务器列表，每行格式为"地址 Token"，空行和#开头的行会被忽略
+     */
+    private static List<ServerEndpoint> parseServers(String text) {
+        List<ServerEndpoint> servers = new ArrayList<>();
+        if (text == null) {
+            return servers;
+        }
+
+        for (String line : text.split("\n")) {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                continue;
+            }
+            String[] parts = trimmed.split("\\s+", 2);
+            servers.add(new ServerEndpoint(parts[0], parts.length > 1 ? parts[1] : ""));
+        }
+        return servers;
+    }
+}
@@ -0,0 +1,114 @@
+package emu.nebula.nbcommand.ui;
+
+import emu.nebula.nbcommand.repository.ConfigRepository;
+import emu.nebula.nbcommand.service.I18nManager;
+import javafx.scene.control.ButtonType;
+import javafx.scene.control.CheckBox;
+import javafx.scene.control.Dialog;
+import javafx.scene.control.Label;
+import javafx.scene.control.Spinner;
+import javafx.scene.layout.GridPane;
+import javafx.stage.Window;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 执行设置对话框
+ * 每一行对应一项设置，确认后写回配置仓库
+ */
+public class SettingsDialog {
+    private final I18nManager i18n = I18nManager.getInstance();
+
+    private final ConfigRepository configRepository;
+    private final Dialog<ButtonType> dialog = new Dialog<>();
+    private final GridPane grid = new GridPane();
+    // 设置键 -> 对应的输入控件
+    private final Map<String, Spinner<Integer>> spinners = new LinkedHashMap<>();
+    private final Map<String, CheckBox> checkBoxes = new LinkedHashMap<>();
+
+    public SettingsDialog(ConfigRepository configRepository, Window owner) {
+        this.configRepository = configRepository;
+
+        grid.setHgap(10);
+        grid.setVgap(8);
+
+        dialog.initOwner(owner);
+        dialog.setTitle(i18n.getString("settings.title"));
+        dialog.getDialogPane().setContent(grid);
+        dialog.getDialogPane().getButtonTypes().addAll(ButtonType.OK, ButtonType.CANCEL);
+    }
+
+    /**
+     * 添加一项整数设置
+     * @param labelKey 标签的国际化键
+     * @param settingKey 设置键
+     * @param min 最小值
+     * @param max 最大值
+     * @param defaultValue 未设置时的默认值
+     * @return SettingsDialog对象本身，支持链式调用
+     */
+    public SettingsDialog addIntSetting(String labelKey, String settingKey, int min, int max, int defaultValue) {
+        int current = configRepository.getIntSetting(settingKey, defaultValue);
+        Spinner<Integer> spinner = new Spinner<>(min, max, Math.clamp(current, min, max));
+        spinner.setEditable(true);
+
+        int row = spinners.size() + checkBoxes.size();
+        grid.add(new Label(i18n.getString(labelKey) + ":"), 0, row);
+        grid.add(spinner, 1, row);
+        spinners.put(settingKey, spinner);
+        return this;
+    }
+
+    /**
+     * 添加一项开关设置
+     * @param labelKey 标签的国际化键
+     * @param settingKey 设置键
+     * @param defaultValue 未设置时的默认值
+     * @return SettingsDialog对象本身，支持链式调用
+     */
+    public SettingsDialog addBooleanSetting(String labelKey, String settingKey, boolean defaultValue) {
+        CheckBox checkBox = new CheckBox();
+        checkBox.setSelected(configRepository.getBooleanSetting(settingKey, defaultValue));
+
+        int row = spinners.size() + checkBoxes.size();
+        grid.add(new Label(i18n.getString(labelKey) + ":"), 0, row);
+        grid.add(checkBox, 1, row);
+        checkBoxes.put(settingKey, checkBox);
+        return this;
+    }
+
+    /**
+     * 显示对话框，用户确认后保存所有设置
+     * @return 是否保存了设置
+     */
+    public boolean showAndSave() {
+        boolean confirmed = dialog.showAndWait()
+                .filter(buttonType -> buttonType == ButtonType.OK)
+                .isPresent();
+        if (!confirmed) {
+            return false;
+        }
+
+        for (Map.Entry<String, Spinner<Integer>> entry : spinners.entrySet()) {
+            // 提交编辑器中尚未确认的输入
+            Spinner<Integer> spinner = entry.getValue();
+            try {
+                Integer edited = spinner.getValueFactory().getConverter().fromString(spinner.getEditor().getText());
+                // 编辑器为空时转换结果为null，保留原值
+                if (edited != null) {
+                    spinner.getValueFactory().setValue(edited);
+                }
+            } catch (NumberFormatException ignored) {
+                // 输入无效时保留原值
+            }
+            if (spinner.getValue() != null) {
+                configRepository.saveSetting(entry.getKey(), spinner.getValue());
+            }
+        }
+        for (Map.Entry<String, CheckBox> entry : checkBoxes.entrySet()) {
+            configRepository.saveSetting(entry.getKey(), entry.getValue().isSelected());
+        }
+        return true;
+    }
+}
@@ -0,0 +1,233 @@
+package emu.nebula.nbcommand.ui;
+
+import emu.nebula.nbcommand.service.I18nManager;
+import emu.nebula.nbcommand.service.stress.CommandMixGenerator;
+import emu.nebula.nbcommand.service.stress.StressConfig;
+import emu.nebula.nbcommand.service.stress.StressReport;
+import emu.nebula.nbcommand.service.stress.StressTest;
+import emu.nebula.nbcommand.viewmodel.MainViewModel;
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.scene.control.Button;
+import javafx.scene.control.ButtonType;
+import javafx.scene.control.ComboBox;
+import javafx.scene.control.Control;
+import javafx.scene.control.Dialog;
+import javafx.scene.control.Label;
+import javafx.scene.control.Spinner;
+import javafx.scene.control.TextArea;
+import javafx.scene.control.TextField;
+import javafx.scene.layout.GridPane;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
+import javafx.stage.FileChooser;
+import javafx.stage.Window;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 压测对话框
+ * 对当前服务器按设定的命令比例发送请求，显示实时进度，结束后可导出CSV或JSON报告
+ */
+public class StressTestDialog {
+    private static final Logger logger = LoggerFactory.getLogger(StressTestDialog.class);
+
+    private final I18nManager i18n = I18nManager.getInstance();
+
+    private final MainViewModel viewModel;
+    private final Dialog<ButtonType> dialog = new Dialog<>();
+    private final TextField mixField = new TextField(CommandMixGenerator.DEFAULT_MIX);
+    private final ComboBox<StressConfig.Mode> modeComboBox =
+            new ComboBox<>(FXCollections.observableArrayList(StressConfig.Mode.values()));
+    private final Spinner<Integer> rateSpinner = new Spinner<>(1, 100000, 100);
+    private final Spinner<Integer> concurrencySpinner = new Spinner<>(1, 10000, 16);
+    private final Spinner<Integer> durationSpinner = new Spinner<>(1, 86400, 30);
+    private final Button startButton = new Button();
+    private final Button exportButton = new Button();
+    private final Label statusLabel = new Label();
+    private final TextArea reportArea = new TextArea();
+
+    private volatile StressTest runningTest;
+    private StressReport lastReport;
+
+    public StressTestDialog(MainViewModel viewModel, Window owner) {
+        this.viewModel = viewModel;
+
+        modeComboBox.setValue(StressConfig.Mode.OPEN_LOOP);
+        modeComboBox.setOnAction(event -> updateModeControls());
+        for (Spinner<Integer> spinner : spinners()) {
+            spinner.setEditable(true);
+        }
+        mixField.setPromptText("give:8,mail:2");
+
+        GridPane grid = new GridPane();
+        grid.setHgap(10);
+        grid.setVgap(8);
+        addRow(grid, 0, "stress.mix", mixField);
+        addRow(grid, 1, "stress.mode", modeComboBox);
+        addRow(grid, 2, "stress.rate", rateSpinner);
+        addRow(grid, 3, "stress.concurrency", concurrencySpinner);
+        addRow(grid, 4, "stress.duration", durationSpinner);
+
+        startButton.setOnAction(event -> toggle());
+        exportButton.setText(i18n.getString("stress.export"));
+        exportButton.setDisable(true);
+        exportButton.setOnAction(event -> export());
+
+        reportArea.setEditable(false);
+        reportArea.setPrefRowCount(10);
+
+        VBox content = new VBox(10, grid, new HBox(5, startButton, exportButton), statusLabel, reportArea);
+        content.setPrefWidth(460);
+
+        dialog.initOwner(owner);
+        dialog.setTitle(i18n.getString("stress.title"));
+        dialog.getDialogPane().setContent(content);
+        dialog.getDialogPane().getButtonTypes().add(ButtonType.CLOSE);
+
+        updateModeControls();
+        updateButtons();
+    }
+
+    /**
+     * 显示对话框，关闭时停止正在进行的压测
+     */
+    public void showAndWait() {
+        try {
+            dialog.showAndWait();
+        } finally {
+            StressTest test = runningTest;
+            if (test != null) {
+                test.stop();
+            }
+        }
+    }
+
+    private List<Spinner<Integer>> spinners() {
+        return List.of(rateSpinner, concurrencySpinner, durationSpinner);
+    }
+
+    private void addRow(GridPane grid, int row, String labelKey, Control control) {
+        grid.add(new Label(i18n.getString(labelKey) + ":"), 0, row);
+        grid.add(control, 1, row);
+    }
+
+    /**
+     * 开环模式下并发数是未完成请求的上限，两种模式都需要；目标速率只在开环模式下有效
+     */
+    private void updateModeControls() {
+        rateSpinner.setDisable(modeComboBox.getValue() != StressConfig.Mode.OPEN_LOOP);
+    }
+
+    private void updateButtons() {
+        boolean running = runningTest != null;
+        startButton.setText(i18n.getString(running ? "stress.stop" : "stress.start"));
+        exportButton.setDisable(running || lastReport == null);
+    }
+
+    private void toggle() {
+        StressTest test = runningTest;
+        if (test != null) {
+            test.stop();
+            return;
+        }
+
+        for (Spinner<Integer> spinner : spinners()) {
+            commitEditor(spinner);
+        }
+        try {
+            test = viewModel.createStressTest(modeComboBox.getValue(), rateSpinner.getValue(),
+                    concurrencySpinner.getValue(), Duration.ofSeconds(durationSpinner.getValue()), mixField.getText());
+        } catch (IllegalArgumentException e) {
+            statusLabel.setText(i18n.getString("stress.invalid_mix", e.getMessage()));
+            return;
+        }
+
+        StressTest started = test;
+        runningTest = started;
+        reportArea.clear();
+        statusLabel.setText(i18n.getString("stress.starting"));
+        updateButtons();
+
+        Thread.ofVirtual().name("stress-test").start(() -> {
+            StressReport report = null;
+            try {
+                report = started.run(progress -> Platform.runLater(() -> statusLabel.setText(i18n.getString(
+                        "stress.progress", progress.completed(), progress.failed(), progress.elapsedMillis() / 1000,
+                        String.format("%.1f", progress.throughput()), String.format("%.1f", progress.p99Millis())))));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                logger.error("压测执行失败", e);
+            }
+
+            StressReport finished = report;
+            Platform.runLater(() -> {
+                runningTest = null;
+                lastReport = finished;
+                if (finished != null) {
+                    reportArea.setText(formatReport(finished));
+                }
+                updateButtons();
+            });
+        });
+    }
+
+    private String formatReport(StressReport report) {
+        StringBuilder text = new StringBuilder(i18n.getString("stress.report",
+                report.serverAddress(), report.mode(), report.total(), report.succeeded(), report.failed(),
+                report.elapsedMillis() / 1000.0, String.format("%.1f", report.throughput()),
+                String.format("%.1f", report.p50Millis()), String.format("%.1f", report.p90Millis()),
+                String.format("%.1f", report.p99Millis()), String.format("%.1f", report.maxMillis())));
+        for (Map.Entry<String, Long> error : report.errors().entrySet()) {
+            text.append('\n').append("  ").append(error.getKey()).append(": ").append(error.getValue());
+        }
+        return text.toString();
+    }
+
+    private void export() {
+        if (lastReport == null) {
+            return;
+        }
+
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle(i18n.getString("stress.export"));
+        fileChooser.setInitialFileName("stress-report.csv");
+        fileChooser.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("CSV", "*.csv"),
+                new FileChooser.ExtensionFilter("JSON", "*.json"));
+        File file = fileChooser.showSaveDialog(dialog.getOwner());
+        if (file == null) {
+            return;
+        }
+
+        // 按选择的格式补全扩展名，导出格式由扩展名决定
+        String extension = "JSON".equals(fileChooser.getSelectedExtensionFilter().getDescription()) ? ".json" : ".csv";
+        if (!file.getName().toLowerCase(Locale.ROOT).endsWith(extension)) {
+            file = new File(file.getParentFile(), file.getName() + extension);
+        }
+
+        try {
+            lastReport.export(file.toPath());
+            statusLabel.setText(i18n.getString("stress.exported", file.getName()));
+        } catch (IOException e) {
+            logger.error("导出压测报告失败", e);
+            statusLabel.setText(i18n.getString("stress.export_failed", e.getMessage()));
+        }
+    }
+
+    private static <T> void commitEditor(Spinner<T> spinner) {
+        try {
+            spinner.getValueFactory().setValue(spinner.getValueFactory().getConverter().fromString(spinner.getEditor().getText()));
+        } catch (RuntimeException ignored) {
+            // 输入无效时保留原值
+        }
+    }
+}
@@ -1,22 +1,35 @@
 package emu.nebula.nbcommand.ui;
 
 import emu.nebula.nbcommand.service.TypedDataManager;
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.scene.control.ComboBox;
 
-import java.util.stream.Collectors;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * 管理带类型的ComboBox控件，处理手动过滤和类型过滤功能
  */
 public class TypedComboBoxManager {
+    // 过滤结果最多显示的数量
+    private static final int MAX_RESULTS = 200;
+    // 所有ComboBox共用的后台过滤执行器，每次过滤一个虚拟线程
+    private static final ExecutorService FILTER_EXECUTOR = Executors.newVirtualThreadPerTaskExecutor();
+
     private final ComboBox<String> comboBox;
     private final TypedDataManager typedDataManager;
     private final String dataIdentifier;
     private String currentType = "all";
     // 标记是否正在更新项目，避免触发不必要的事件
     private boolean updatingItems = false;
+    // 每次过滤或切换类型时加一，只有最新一次的结果才会写入ComboBox，只在JavaFX应用线程上访问
+    private long filterGeneration;
+    // 正在后台执行的过滤，被新的输入取代时取消
+    private Future<?> pendingFilter;
 
     public TypedComboBoxManager(ComboBox<String> comboBox, TypedDataManager typedDataManager, String dataIdentifier) {
         this.comboBox = comboBox;
@@ -44,52 +57,51 @@ public class TypedComboBoxManager {
 
     /**
      * 手动更新过滤结果
+     * 在后台线程通过预先构建的索引查询，最多显示MAX_RESULTS条；连续调用时取消尚未完成的查询，只显示最新一次的结果
+     * 需要在JavaFX应用线程上调用
      */
     public void updateFilter() {
         String searchText = comboBox.getEditor().getText();
+        long generation = supersedePendingFilter();
         if (searchText == null || searchText.isEmpty()) {
             // 如果没有输入文本，显示当前类型的所有数据
-            updateComboBoxItems(getCurrentItems(), searchText);
+            updateComboBoxItems(generation, getCurrentItems(), searchText);
             return;
         }
-        
-        try {
-            ObservableList<String> baseItems = getCurrentItems();
-            final String lowerSearchText = searchText.toLowerCase();
-            
-            // 根据输入文本过滤数据（支持ID和标题的模糊搜索）
-            ObservableList<String> filteredItems = baseItems.stream()
-                    .filter(item -> {
-                        // 支持对ID和标题的搜索
-                        if (item != null && item.contains(" - ")) {
-                            try {
-                                String id = item.substring(0, item.indexOf(" - "));
-                                String title = item.substring(item.indexOf(" - ") + 3);
-                                return id.toLowerCase().contains(lowerSearchText) || title.toLowerCase().contains(lowerSearchText);
-                            } catch (Exception e) {
-                                // 如果解析出错，就进行简单的包含检查
-                                return item.toLowerCase().contains(lowerSearchText);
-                            }
-                        } else {
-                            return item != null && item.contains(searchText);
-                        }
-                    })
-                    .collect(Collectors.toCollection(FXCollections::observableArrayList));
-            
-            // 更新下拉列表
-            updateComboBoxItems(filteredItems, searchText);
-        } catch (Exception e) {
-            // 出错时回退到显示所有项目
-            ObservableList<String> allItems = typedDataManager.getDataList(dataIdentifier, "all");
-            updateComboBoxItems(allItems, searchText);
+
+        // 支持对ID、标题及其读音的模糊搜索
+        String type = currentType == null || currentType.isEmpty() ? "all" : currentType;
+        pendingFilter = FILTER_EXECUTOR.submit(() -> {
+            List<String> results = typedDataManager.search(dataIdentifier, type, searchText, MAX_RESULTS);
+            // 查询期间已被新的输入取代，不再提交到界面
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            updateComboBoxItems(generation, FXCollections.observableArrayList(results), searchText);
+        });
+    }
+
+    /**
+     * 取消尚未完成的过滤，之前提交的结果都不会再写入ComboBox
+     * @return 新的过滤序号
+     */
+    private long supersedePendingFilter() {
+        if (pendingFilter != null) {
+            pendingFilter.cancel(true);
+            pendingFilter = null;
         }
+        return ++filterGeneration;
     }
 
     /**
      * 更新ComboBox项目，避免并发修改异常
+     * 过滤序号已过期时丢弃结果
      */
-    private void updateComboBoxItems(ObservableList<String> items, String editorText) {
-        javafx.application.Platform.runLater(() -> {
+    private void updateComboBoxItems(long generation, ObservableList<String> items, String editorText) {
+        Platform.runLater(() -> {
+            if (generation != filterGeneration) {
+                return;
+            }
             try {
                 updatingItems = true;
                 comboBox.setItems(items);
@@ -124,7 +136,9 @@ public class TypedComboBoxManager {
     public void updateType(String type) {
         this.currentType = type;
         ObservableList<String> dataList = typedDataManager.getDataList(dataIdentifier, type);
-        javafx.application.Platform.runLater(() -> {
+        Platform.runLater(() -> {
+            // 切换类型后，之前输入的过滤结果不再适用
+            supersedePendingFilter();
             try {
                 updatingItems = true;
                 comboBox.setItems(dataList);
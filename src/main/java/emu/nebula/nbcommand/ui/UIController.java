@@ -4,6 +4,7 @@ import emu.nebula.nbcommand.service.I18nManager;
 import emu.nebula.nbcommand.model.Command;
 import emu.nebula.nbcommand.model.command.Syntax;
 import emu.nebula.nbcommand.service.command.CommandExecutor;
+import emu.nebula.nbcommand.service.command.CommandTemplate;
 import emu.nebula.nbcommand.service.TypedDataManager;
 import javafx.collections.FXCollections;
 import javafx.scene.control.*;
@@ -24,6 +25,7 @@ public class UIController {
     private static final Logger logger = LoggerFactory.getLogger(UIController.class);
     
     private final I18nManager i18n = I18nManager.getInstance();
+    private final UiUpdateScheduler uiUpdateScheduler = UiUpdateScheduler.getInstance();
 
     private final TypedDataManager typedDataManager;
     private final Map<String, Control> parameterControls;
@@ -33,6 +35,9 @@ public class UIController {
     private final VBox paramContainer;
     private final CommandExecutor commandExecutor;
     private Command currentCommand; // 保存当前命令的引用
+    // 当前命令的预览渲染器，输入变化时只重新计算对应的参数片段
+    private CommandTemplate.Renderer previewRenderer;
+    private final CommandTemplate.SlotSource slotSource;
     // 管理带类型的ComboBox控件
     private final Map<ComboBox<String>, TypedComboBoxManager> comboBoxManagers = new HashMap<>();
     // 管理多选容器控件
@@ -57,12 +62,14 @@ public class UIController {
         // 设置多选管理器映射，以便CommandExecutor可以访问
         this.commandExecutor.setMultiSelectManagers(multiSelectManagers);
         this.commandExecutor.setMultiSelectWithCountManagers(multiSelectWithCountManagers);
+        this.slotSource = commandExecutor.slotSource(parameterControls);
     }
 
     public void showCommandDetails(Command command, String commandName, String commandFullDescription) {
         this.commandDetailsConsumer.accept(commandFullDescription);
         this.selectedCommandConsumer.accept(commandName);
         this.currentCommand = command; // 保存当前命令的引用
+        this.previewRenderer = command != null ? CommandTemplate.of(command.syntax()).newRenderer() : null;
 
         // 清空参数容器和参数控件映射
         paramContainer.getChildren().clear();
@@ -233,7 +240,7 @@ public class UIController {
         multiSelectManagers.put(originalParam, multiSelectManager);
         
         // 设置项目变更回调以更新命令预览
-        multiSelectManager.setOnItemsChanged(() -> updateCommandPreview(currentCommand));
+        multiSelectManager.setOnItemsChanged(() -> onParameterChanged(originalParam));
         
         // 设置添加按钮事件
         addButton.setOnAction(event -> multiSelectManager.addItem());
@@ -308,7 +315,7 @@ public class UIController {
         multiSelectWithCountManagers.put(originalParam, multiSelectWithCountManager);
         
         // 设置项目变更回调以更新命令预览
-        multiSelectWithCountManager.setOnItemsChanged(() -> updateCommandPreview(currentCommand));
+        multiSelectWithCountManager.setOnItemsChanged(() -> onParameterChanged(originalParam));
         
         // 设置添加按钮事件
         addButton.setOnAction(event -> multiSelectWithCountManager.addItem());
@@ -464,23 +471,33 @@ public class UIController {
      */
     private void setupParameterListeners(Command command) {
         for (Map.Entry<String, Control> entry : parameterControls.entrySet()) {
+            String key = entry.getKey();
             Control control = entry.getValue();
             if (control instanceof TextField) {
-                ((TextField) control).textProperty().addListener((obs, oldText, newText) -> updateCommandPreview(command));
+                ((TextField) control).textProperty().addListener((obs, oldText, newText) -> onParameterChanged(key));
             } else if (control instanceof ComboBox<?> comboBox) {
-                comboBox.getEditor().textProperty().addListener((obs, oldVal, newVal) -> updateCommandPreview(command));
-                comboBox.getSelectionModel().selectedItemProperty().addListener((obs, oldVal, newVal) -> updateCommandPreview(command));
+                comboBox.getEditor().textProperty().addListener((obs, oldVal, newVal) -> onParameterChanged(key));
+                comboBox.getSelectionModel().selectedItemProperty().addListener((obs, oldVal, newVal) -> onParameterChanged(key));
             }
         }
     }
 
+    /**
+     * 参数变化时只标记对应的片段，预览在下一帧统一刷新，连续输入时每帧最多渲染一次
+     */
+    private void onParameterChanged(String key) {
+        if (previewRenderer != null) {
+            previewRenderer.markDirty(key);
+        }
+        uiUpdateScheduler.schedule(commandPreviewConsumer, () -> updateCommandPreview(currentCommand));
+    }
+
     /**
      * 更新命令预览
      */
     private void updateCommandPreview(Command command) {
-        if (command != null) {
-            String commandText = commandExecutor.buildCommandText(command, parameterControls);
-            commandPreviewConsumer.accept(commandText);
+        if (command != null && previewRenderer != null) {
+            commandPreviewConsumer.accept(previewRenderer.render(slotSource));
         } else {
             commandPreviewConsumer.accept("");
         }
@@ -514,6 +531,12 @@ public class UIController {
             MultiSelectWithCountContainerManager manager = entry.getValue();
             manager.reloadData();
         }
+
+        // 控件内容整体替换时不一定每个控件都会触发变化监听，所有片段在下一帧重新计算一次
+        if (previewRenderer != null) {
+            previewRenderer.markAllDirty();
+        }
+        uiUpdateScheduler.schedule(commandPreviewConsumer, () -> updateCommandPreview(currentCommand));
     }
     
     /**
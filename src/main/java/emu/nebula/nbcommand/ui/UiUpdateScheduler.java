@@ -0,0 +1,87 @@
+package emu.nebula.nbcommand.ui;
+
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 按帧合并的界面更新调度器
+ * 同一个键在一帧内多次提交的更新只执行最后一次，所有待执行的更新在下一帧开始时统一执行，
+ * 连续输入或批量结果涌入时每帧最多渲染一次。没有待执行的更新时计时器自动停止，不占用CPU。
+ */
+public class UiUpdateScheduler {
+    private static final Logger logger = LoggerFactory.getLogger(UiUpdateScheduler.class);
+    private static final UiUpdateScheduler INSTANCE = new UiUpdateScheduler();
+
+    // 键 -> 最近提交的更新，按首次提交的顺序执行
+    private final Map<Object, Runnable> pending = new LinkedHashMap<>();
+    // 计时器是否已经启动或即将启动，受pending的锁保护
+    private boolean scheduled = false;
+
+    private final AnimationTimer timer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            flush();
+        }
+    };
+
+    private UiUpdateScheduler() {
+    }
+
+    public static UiUpdateScheduler getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * 提交一个更新，在下一帧执行
+     * 可在任意线程调用，同一个键尚未执行的更新会被替换
+     * @param key 合并用的键，通常是被更新的对象
+     * @param update 在JavaFX应用线程上执行的更新
+     */
+    public void schedule(Object key, Runnable update) {
+        boolean start;
+        synchronized (pending) {
+            pending.put(key, update);
+            start = !scheduled;
+            scheduled = true;
+        }
+        if (start) {
+            // AnimationTimer只能在JavaFX应用线程上启动
+            if (Platform.isFxApplicationThread()) {
+                timer.start();
+            } else {
+                Platform.runLater(timer::start);
+            }
+        }
+    }
+
+    /**
+     * 执行本帧所有待执行的更新，执行期间新提交的更新留到下一帧
+     */
+    private void flush() {
+        List<Runnable> updates;
+        synchronized (pending) {
+            if (pending.isEmpty()) {
+                timer.stop();
+                scheduled = false;
+                return;
+            }
+            updates = new ArrayList<>(pending.values());
+            pending.clear();
+        }
+
+        for (Runnable update : updates) {
+            try {
+                update.run();
+            } catch (RuntimeException e) {
+                logger.error("界面更新失败", e);
+            }
+        }
+    }
+}
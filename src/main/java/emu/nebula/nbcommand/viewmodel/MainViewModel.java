@@ -1,19 +1,53 @@
 package emu.nebula.nbcommand.viewmodel;
 
+import emu.nebula.nbcommand.service.DatabaseManager;
 import emu.nebula.nbcommand.service.I18nManager;
 import emu.nebula.nbcommand.model.Command;
+import emu.nebula.nbcommand.model.CommandResult;
+import emu.nebula.nbcommand.model.FanOutResult;
+import emu.nebula.nbcommand.model.HistoryEntry;
+import emu.nebula.nbcommand.model.HistoryRecord;
+import emu.nebula.nbcommand.model.ScriptResult;
+import emu.nebula.nbcommand.model.ServerGroup;
 import emu.nebula.nbcommand.repository.ConfigRepository;
 import emu.nebula.nbcommand.service.command.CommandExecutor;
 import emu.nebula.nbcommand.service.command.CommandRegistry;
+import emu.nebula.nbcommand.service.command.CommandSpool;
+import emu.nebula.nbcommand.service.command.ScriptRunner;
+import emu.nebula.nbcommand.service.command.transport.AdaptiveConcurrencyLimiter;
+import emu.nebula.nbcommand.service.command.transport.CommandTransport;
+import emu.nebula.nbcommand.service.command.transport.RateLimiter;
+import emu.nebula.nbcommand.service.command.transport.ResilientSender;
+import emu.nebula.nbcommand.service.history.CommandHistory;
+import emu.nebula.nbcommand.service.history.HistoryArchive;
+import emu.nebula.nbcommand.service.mock.MockNebulaServer;
+import emu.nebula.nbcommand.service.mock.MockServerConfig;
+import emu.nebula.nbcommand.service.stress.CommandMixGenerator;
+import emu.nebula.nbcommand.service.stress.StressConfig;
+import emu.nebula.nbcommand.service.stress.StressTest;
 import emu.nebula.nbcommand.service.TypedDataManager;
+import emu.nebula.nbcommand.ui.UiUpdateScheduler;
+import javafx.application.Platform;
 import javafx.beans.property.*;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import javafx.scene.control.ProgressBar;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Main view model for the application.
@@ -21,6 +55,8 @@ import java.util.Map;
  */
 public class MainViewModel {
     private static final Logger logger = LoggerFactory.getLogger(MainViewModel.class);
+    // Number of failed / slowest UIDs listed in a fan-out summary
+    private static final int FAN_OUT_REPORT_LIMIT = 5;
     
     private final I18nManager i18n = I18nManager.getInstance();
 
@@ -31,14 +67,34 @@ public class MainViewModel {
     private final StringProperty commandPreview = new SimpleStringProperty();
     private final StringProperty selectedCommandName = new SimpleStringProperty();
     private final StringProperty commandDetails = new SimpleStringProperty();
-    private final StringProperty history = new SimpleStringProperty();
+    private final CommandHistory history = new CommandHistory(CommandHistory.DEFAULT_CAPACITY);
+    // Entries waiting for the next frame to be appended to the history
+    private final List<HistoryEntry> pendingHistory = new ArrayList<>();
+    private final UiUpdateScheduler uiUpdateScheduler = UiUpdateScheduler.getInstance();
+    // Full body of the most recent response that was too large for the history
+    private final ObjectProperty<Path> lastResponseFile = new SimpleObjectProperty<>();
     private final StringProperty uid = new SimpleStringProperty();
+    private final IntegerProperty inFlightCount = new SimpleIntegerProperty();
+    private final StringProperty executionStatus = new SimpleStringProperty();
+    // Server group to broadcast to, null targets the configured server
+    private final StringProperty targetGroup = new SimpleStringProperty();
+    private final BooleanProperty scriptRunning = new SimpleBooleanProperty();
+    private final DoubleProperty scriptProgress = new SimpleDoubleProperty();
+
+    // Running scripts in start order, the progress bar follows the newest; only touched on the FX thread
+    private final Deque<ScriptProgress> runningScripts = new ArrayDeque<>();
     private final ObjectProperty<Command> selectedCommand = new SimpleObjectProperty<>();
     private final ObjectProperty<ObservableList<Command>> commands = new SimpleObjectProperty<>();
 
     private final ConfigRepository configRepository;
     private final CommandExecutor commandExecutor;
     private final TypedDataManager typedDataManager;
+    // Durable outbound queue, null when the database is unavailable
+    private final CommandSpool commandSpool;
+    private final HistoryArchive historyArchive;
+    // Embedded stand-in server, commands are routed to it while it runs
+    private MockNebulaServer mockServer;
+    private MockServerConfig mockServerConfig = MockServerConfig.DEFAULT;
 
     public MainViewModel() {
         this.configRepository = new ConfigRepository();
@@ -47,11 +103,19 @@ public class MainViewModel {
                 configRepository.getServerAddress(),
                 configRepository.getAuthToken()
         );
+        this.commandSpool = configRepository.getDatabaseManager()
+                .map(databaseManager -> new CommandSpool(commandExecutor, databaseManager))
+                .orElse(null);
+        this.historyArchive = configRepository.getDatabaseManager()
+                .map(HistoryArchive::new)
+                .orElse(null);
+        commandExecutor.setHistoryArchive(historyArchive);
 
         // Load initial configuration
         loadConfiguration();
+        applyExecutionSettings();
         
-        // Initialize typed data
+        // Select the handbook language; datasets are parsed on first access or by prefetchLocaleData
         typedDataManager.loadItemData();
     }
 
@@ -70,8 +134,8 @@ public class MainViewModel {
     public void saveConfiguration() {
         boolean saved = configRepository.saveConfig(serverAddress.get(), authToken.get());
         if (saved) {
-            // Update the command executor with new configuration
-            commandExecutor.updateConfiguration(serverAddress.get(), authToken.get());
+            // Update the command executor with new configuration, a running mock server keeps receiving the commands
+            commandExecutor.updateConfiguration(mockServer != null ? mockServer.getAddress() : serverAddress.get(), authToken.get());
             addToHistory(i18n.getString("message.config_saved") + ": " + serverAddress.get());
             logger.info("Configuration saved: {}", serverAddress.get());
         } else {
@@ -90,7 +154,7 @@ public class MainViewModel {
             logger.warn("Attempted to execute command but none selected");
             return;
         }
-        commandExecutor.executeCommand(uid.get(), command, this::addToHistory);
+        executeAsync(command);
     }
 
     /**
@@ -102,7 +166,390 @@ public class MainViewModel {
             logger.warn("Attempted to execute custom command but it was empty");
             return;
         }
-        commandExecutor.executeCommand(uid.get(), customCommand, this::addToHistory);
+        // Several lines are treated as a script, one command per line
+        if (customCommand.lines().filter(line -> !line.isBlank()).count() > 1) {
+            executeScript(customCommand);
+            return;
+        }
+        executeAsync(customCommand);
+    }
+
+    /**
+     * Run a command off the FX thread, results are marshalled back to the history on the FX thread.
+     * When the UID field holds several UIDs the command is fanned out to all of them,
+     * when a server group is targeted the command is broadcast to every server of the group.
+     */
+    private void executeAsync(String command) {
+        List<String> uids = parseUids(uid.get());
+        String groupName = targetGroup.get();
+
+        if (groupName != null) {
+            Optional<ServerGroup> group = configRepository.findServerGroup(groupName);
+            if (group.isEmpty() || group.get().servers().isEmpty()) {
+                addToHistory(i18n.getString("message.server_group_not_found", groupName));
+                return;
+            }
+            if (uids.size() > 1) {
+                addToHistory(i18n.getString("message.broadcast_multi_uid"));
+                return;
+            }
+            String header = "> " + command + (uids.isEmpty() ? "" : " @" + uids.getFirst())
+                    + " -> " + groupName + " [" + group.get().servers().size() + "]";
+            publishWhenComplete(commandExecutor.executeBroadcastAsync(group.get(), uids.isEmpty() ? null : uids.getFirst(), command), header);
+        } else if (uids.size() > 1) {
+            String header = "> " + command + " @[" + uids.size() + " UID]";
+            publishWhenComplete(commandExecutor.executeFanOutAsync(uids, command), header);
+        } else {
+            executeSingle(uids.isEmpty() ? null : uids.getFirst(), command);
+        }
+        refreshExecutionStatus();
+    }
+
+    /**
+     * Run a single command against the current server and add the outcome to the history
+     */
+    private void executeSingle(String uid, String command) {
+        commandExecutor.executeCommandAsync(uid, command)
+                .whenComplete((result, throwable) -> {
+                    if (result != null) {
+                        addToHistory(HistoryEntry.of(result, CommandExecutor.describeOutcome(result)));
+                        if (result.responseFile() != null) {
+                            Platform.runLater(() -> lastResponseFile.set(result.responseFile()));
+                        }
+                    }
+                    uiUpdateScheduler.schedule(executionStatus, this::refreshExecutionStatus);
+                });
+    }
+
+    /**
+     * Whether a history record was sent to the current server and can be run again there.
+     * Records from other addresses, broadcast shards or a stopped mock server are not replayed against this one.
+     */
+    public boolean canRerun(HistoryRecord record) {
+        return record.serverAddress().equals(commandExecutor.currentEndpoint().serverAddress());
+    }
+
+    /**
+     * Run a command from the persisted history again on the current server, for the same UID
+     */
+    public void rerunHistory(HistoryRecord record) {
+        if (!canRerun(record)) {
+            addToHistory(i18n.getString("message.rerun_other_server", record.serverAddress()));
+            return;
+        }
+        executeSingle(record.uid(), record.commandText());
+        refreshExecutionStatus();
+    }
+
+    /**
+     * Add the summary of a multi-target run to the history once it completes
+     */
+    private void publishWhenComplete(CompletableFuture<FanOutResult> future, String header) {
+        future.whenComplete((result, throwable) -> Platform.runLater(() -> {
+            if (result != null) {
+                addToHistory(formatFanOutResult(result, header));
+            } else if (throwable != null && !(throwable instanceof CancellationException)) {
+                addToHistory("command sends exceptions: " + throwable.getMessage());
+            }
+            refreshExecutionStatus();
+        }));
+    }
+
+    /**
+     * Execute a multi-line script from the custom command area, one command per line
+     */
+    public void executeScript(String scriptText) {
+        if (scriptText == null || scriptText.isBlank()) {
+            addToHistory(i18n.getString("message.execute_custom_command_failed"));
+            return;
+        }
+        if (!checkScriptTarget()) {
+            return;
+        }
+        String header = "> script [" + scriptText.lines().count() + " lines]";
+        ScriptProgress progress = new ScriptProgress();
+        trackScript(commandExecutor.executeScriptAsync(scriptText, scriptUid(), progress), progress, header);
+    }
+
+    /**
+     * Execute a script file, streamed line by line from disk
+     */
+    public void executeScriptFile(Path scriptFile) {
+        if (!checkScriptTarget()) {
+            return;
+        }
+        String header = "> script " + scriptFile.getFileName();
+        ScriptProgress progress = new ScriptProgress();
+        trackScript(commandExecutor.executeScriptFileAsync(scriptFile, scriptUid(), progress), progress, header);
+    }
+
+    /**
+     * Scripts run against the current server with a single default UID, lines may still target their own with @uid.
+     * A targeted server group or several UIDs are refused with a history message instead of being narrowed silently.
+     */
+    private boolean checkScriptTarget() {
+        if (targetGroup.get() != null) {
+            addToHistory(i18n.getString("message.script_group_unsupported", targetGroup.get()));
+            return false;
+        }
+        if (parseUids(uid.get()).size() > 1) {
+            addToHistory(i18n.getString("message.script_multi_uid"));
+            return false;
+        }
+        return true;
+    }
+
+    private String scriptUid() {
+        List<String> uids = parseUids(uid.get());
+        return uids.isEmpty() ? null : uids.getFirst();
+    }
+
+    /**
+     * Progress of one script run, written from worker threads and published by refreshExecutionStatus
+     */
+    private static final class ScriptProgress implements ScriptRunner.ProgressListener {
+        private volatile long completedLines;
+        private volatile long totalLines;
+
+        @Override
+        public void onProgress(long completedLines, long totalLines) {
+            this.completedLines = completedLines;
+            this.totalLines = totalLines;
+        }
+
+        double fraction() {
+            long total = totalLines;
+            return total > 0 ? (double) completedLines / total : ProgressBar.INDETERMINATE_PROGRESS;
+        }
+    }
+
+    private void trackScript(CompletableFuture<ScriptResult> future, ScriptProgress progress, String header) {
+        runningScripts.addLast(progress);
+        future.whenComplete((result, throwable) -> Platform.runLater(() -> {
+            runningScripts.remove(progress);
+            if (result != null) {
+                addToHistory(formatScriptResult(result, header));
+            } else if (throwable != null && !(throwable instanceof CancellationException)) {
+                addToHistory("command sends exceptions: " + throwable.getMessage());
+            }
+            refreshExecutionStatus();
+        }));
+        refreshExecutionStatus();
+    }
+
+    private String formatScriptResult(ScriptResult result, String header) {
+        StringBuilder summary = new StringBuilder(header).append("\n");
+        summary.append(i18n.getString("message.script_summary",
+                String.valueOf(result.totalLines()), String.valueOf(result.succeeded()),
+                String.valueOf(result.failed()), String.valueOf(result.skipped()),
+                String.valueOf(result.elapsedMillis()), String.valueOf(result.commandsPerSecond())));
+        for (String failure : result.failureSamples()) {
+            summary.append("\n").append(i18n.getString("message.fan_out_failed")).append(failure);
+        }
+        return summary.toString();
+    }
+
+    /**
+     * Split the UID field into distinct UIDs, separated by commas, semicolons or whitespace
+     */
+    static List<String> parseUids(String uidText) {
+        if (uidText == null || uidText.isBlank()) {
+            return List.of();
+        }
+        return Arrays.stream(uidText.trim().split("[\\s,;]+"))
+                .filter(s -> !s.isEmpty())
+                .distinct()
+                .toList();
+    }
+
+    /**
+     * Build a single history entry summarising a fan-out or broadcast run
+     */
+    private String formatFanOutResult(FanOutResult result, String header) {
+        StringBuilder summary = new StringBuilder();
+        summary.append(header).append("\n");
+        summary.append(i18n.getString("message.fan_out_summary",
+                String.valueOf(result.succeeded()), String.valueOf(result.failed()),
+                String.valueOf(result.elapsedMillis()), String.valueOf(result.averageLatencyMillis())));
+
+        List<String> slowest = result.slowest(FAN_OUT_REPORT_LIMIT).stream()
+                .map(e -> e.getKey() + " (" + e.getValue().latencyMillis() + " ms)")
+                .toList();
+        summary.append("\n").append(i18n.getString("message.fan_out_slowest")).append(String.join(", ", slowest));
+
+        List<Map.Entry<String, CommandResult>> failures = result.failures();
+        if (!failures.isEmpty()) {
+            List<String> failed = failures.stream()
+                    .limit(FAN_OUT_REPORT_LIMIT)
+                    .map(e -> e.getKey() + " (" + describeFailure(e.getValue()) + ")")
+                    .toList();
+            summary.append("\n").append(i18n.getString("message.fan_out_failed")).append(String.join(", ", failed));
+            if (failures.size() > FAN_OUT_REPORT_LIMIT) {
+                summary.append(", ... +").append(failures.size() - FAN_OUT_REPORT_LIMIT);
+            }
+        }
+        return summary.toString();
+    }
+
+    private static String describeFailure(CommandResult result) {
+        return result.statusCode() > 0 ? result.statusCode() + " - " + result.message() : result.message();
+    }
+
+    /**
+     * Apply the persisted execution settings to the command executor
+     */
+    public void applyExecutionSettings() {
+        commandExecutor.setFanOutConcurrency(configRepository.getIntSetting(
+                ConfigRepository.SETTING_FAN_OUT_CONCURRENCY, ConfigRepository.DEFAULT_FAN_OUT_CONCURRENCY));
+        commandExecutor.setBroadcastTimeout(Duration.ofSeconds(configRepository.getIntSetting(
+                ConfigRepository.SETTING_BROADCAST_TIMEOUT_SECONDS, ConfigRepository.DEFAULT_BROADCAST_TIMEOUT_SECONDS)));
+        boolean spoolEnabled = configRepository.getBooleanSetting(
+                ConfigRepository.SETTING_SPOOL_ENABLED, ConfigRepository.DEFAULT_SPOOL_ENABLED);
+        commandExecutor.setSpool(spoolEnabled ? commandSpool : null);
+        commandExecutor.setMaxConcurrency(configRepository.getIntSetting(
+                ConfigRepository.SETTING_ADAPTIVE_MAX_CONCURRENCY, ConfigRepository.DEFAULT_ADAPTIVE_MAX_CONCURRENCY));
+        commandExecutor.setRateLimit(
+                configRepository.getIntSetting(ConfigRepository.SETTING_RATE_LIMIT_PER_SECOND, ConfigRepository.DEFAULT_RATE_LIMIT_PER_SECOND),
+                configRepository.getIntSetting(ConfigRepository.SETTING_RATE_LIMIT_BURST, ConfigRepository.DEFAULT_RATE_LIMIT_BURST));
+        commandExecutor.setMaxAttempts(configRepository.getIntSetting(
+                ConfigRepository.SETTING_RETRY_MAX_ATTEMPTS, ConfigRepository.DEFAULT_RETRY_MAX_ATTEMPTS));
+        history.setCapacity(configRepository.getIntSetting(
+                ConfigRepository.SETTING_HISTORY_MAX_ENTRIES, ConfigRepository.DEFAULT_HISTORY_MAX_ENTRIES));
+        commandExecutor.setResponseMemoryLimit(configRepository.getIntSetting(
+                ConfigRepository.SETTING_RESPONSE_MEMORY_KB, ConfigRepository.DEFAULT_RESPONSE_MEMORY_KB) * 1024);
+        commandExecutor.setScriptOptions(
+                configRepository.getIntSetting(ConfigRepository.SETTING_SCRIPT_CONCURRENCY, ConfigRepository.DEFAULT_SCRIPT_CONCURRENCY),
+                configRepository.getBooleanSetting(ConfigRepository.SETTING_SCRIPT_STRICT_ORDER, ConfigRepository.DEFAULT_SCRIPT_STRICT_ORDER)
+                        ? ScriptRunner.Ordering.STRICT : ScriptRunner.Ordering.PER_UID);
+    }
+
+    /**
+     * Names of all saved server groups
+     */
+    public List<String> getServerGroupNames() {
+        return configRepository.getServerGroups().stream()
+                .map(ServerGroup::name)
+                .toList();
+    }
+
+    /**
+     * Cancel all commands that are still waiting for a response
+     */
+    public void cancelRunningCommands() {
+        int cancelled = commandExecutor.cancelAll();
+        if (cancelled > 0) {
+            addToHistory(i18n.getString("message.commands_cancelled", cancelled));
+        }
+        refreshExecutionStatus();
+    }
+
+    /**
+     * Start the embedded mock server and route commands to it instead of the configured server
+     */
+    public void startMockServer(MockServerConfig config) {
+        stopMockServer();
+        mockServerConfig = config;
+        MockNebulaServer server = new MockNebulaServer(config);
+        try {
+            server.start();
+        } catch (IOException e) {
+            addToHistory(i18n.getString("message.mock_start_failed", e.getMessage()));
+            logger.error("Failed to start mock server", e);
+            return;
+        }
+        mockServer = server;
+        commandExecutor.updateConfiguration(server.getAddress(), authToken.get());
+        addToHistory(i18n.getString("message.mock_started", server.getAddress()));
+    }
+
+    /**
+     * Stop the embedded mock server and route commands back to the configured server
+     */
+    public void stopMockServer() {
+        if (mockServer == null) {
+            return;
+        }
+        mockServer.close();
+        mockServer = null;
+        commandExecutor.updateConfiguration(serverAddress.get(), authToken.get());
+        addToHistory(i18n.getString("message.mock_stopped", serverAddress.get()));
+    }
+
+    public boolean isMockServerRunning() {
+        return mockServer != null;
+    }
+
+    public MockNebulaServer getMockServer() {
+        return mockServer;
+    }
+
+    public MockServerConfig getMockServerConfig() {
+        return mockServerConfig;
+    }
+
+    /**
+     * Create a stress test against the current server, targeting the UIDs entered in the UID field
+     * @throws IllegalArgumentException if the command mix is invalid
+     */
+    public StressTest createStressTest(StressConfig.Mode mode, int targetRate, int concurrency,
+                                       Duration duration, String commandMix) {
+        List<Command> commands = CommandRegistry.createAllCommands().values().stream()
+                .flatMap(List::stream)
+                .toList();
+        CommandMixGenerator generator = CommandMixGenerator.create(commandMix, commands, typedDataManager);
+        StressConfig config = new StressConfig(mode, targetRate, concurrency, duration, commandMix, parseUids(uid.get()));
+        return new StressTest(commandExecutor, commandExecutor.currentEndpoint(), generator, config);
+    }
+
+    /**
+     * Discard every spooled command that has not been delivered yet
+     */
+    public void clearSpooledCommands() {
+        if (commandSpool != null) {
+            addToHistory(i18n.getString("message.spool_cleared", commandSpool.clear()));
+        }
+        refreshExecutionStatus();
+    }
+
+    /**
+     * Refresh the execution status shown in the status bar
+     */
+    public void refreshExecutionStatus() {
+        int running = commandExecutor.getInFlightCount();
+        inFlightCount.set(running);
+        List<String> status = new ArrayList<>();
+        if (running > 0) {
+            status.add(i18n.getString("status.in_flight", running));
+        }
+        for (AdaptiveConcurrencyLimiter.Stats limit : commandExecutor.getConcurrencyStats()) {
+            if (limit.inFlight() > 0) {
+                status.add(i18n.getString("status.concurrency_limit", limit.serverAddress(), limit.inFlight(), limit.limit()));
+            }
+        }
+        if (mockServer != null) {
+            status.add(i18n.getString("status.mock_server", mockServer.getAddress()));
+        }
+        if (commandSpool != null && commandSpool.getPendingCount() > 0) {
+            status.add(i18n.getString("status.spooled", commandSpool.getPendingCount()));
+        }
+        RateLimiter.Stats rateLimit = commandExecutor.getRateLimiterStats();
+        if (rateLimit.queueDepth() > 0) {
+            status.add(i18n.getString("status.rate_limited", rateLimit.queueDepth(), rateLimit.lastWaitMillis()));
+        }
+        CommandTransport.Stats transport = commandExecutor.getTransportStats();
+        if (transport.totalRequests() > 0) {
+            status.add(i18n.getString("status.transport", transport.inFlight(), transport.totalRequests(),
+                    transport.http2Responses(), transport.failedRequests(), transport.avgLatencyMillis()));
+        }
+        ResilientSender.Stats resilience = commandExecutor.getResilienceStats();
+        if (resilience.retries() > 0 || resilience.openCircuits() > 0) {
+            status.add(i18n.getString("status.resilience", resilience.retries(), resilience.openCircuits(), resilience.rejected()));
+        }
+        executionStatus.set(String.join(" | ", status));
+
+        ScriptProgress newest = runningScripts.peekLast();
+        scriptRunning.set(newest != null);
+        scriptProgress.set(newest != null ? newest.fraction() : ProgressBar.INDETERMINATE_PROGRESS);
     }
 
     /**
@@ -122,15 +569,36 @@ public class MainViewModel {
     }
 
     /**
-     * Add message to history
+     * Add message to history.
+     * Safe to call from any thread, messages are buffered and appended at most once per frame.
      */
     public void addToHistory(String message) {
-        String currentHistory = history.get();
-        if (currentHistory == null || currentHistory.isEmpty()) {
-            history.set(message);
-        } else {
-            history.set(currentHistory + "\n" + message);
+        addToHistory(HistoryEntry.info(message));
+    }
+
+    /**
+     * Add a structured entry to history, safe to call from any thread
+     */
+    public void addToHistory(HistoryEntry entry) {
+        synchronized (pendingHistory) {
+            pendingHistory.add(entry);
         }
+        uiUpdateScheduler.schedule(history, this::flushHistory);
+    }
+
+    /**
+     * Append all buffered entries to the history in one update
+     */
+    private void flushHistory() {
+        List<HistoryEntry> entries;
+        synchronized (pendingHistory) {
+            if (pendingHistory.isEmpty()) {
+                return;
+            }
+            entries = List.copyOf(pendingHistory);
+            pendingHistory.clear();
+        }
+        history.addAll(entries);
     }
 
     // Property getters for UI binding
@@ -158,14 +626,74 @@ public class MainViewModel {
         return commandDetails;
     }
 
-    public StringProperty historyProperty() {
-        return history;
+    public ObservableList<HistoryEntry> getHistoryEntries() {
+        return history.getEntries();
+    }
+
+    public ReadOnlyLongProperty pagedOutHistoryCountProperty() {
+        return history.pagedOutCountProperty();
+    }
+
+    /**
+     * Open the file holding history entries that no longer fit in memory
+     */
+    public void openPagedOutHistory() {
+        Thread.ofVirtual().start(() -> {
+            Path file = history.getPageFile();
+            if (file != null) {
+                openFile(file);
+            }
+        });
+    }
+
+    public ReadOnlyObjectProperty<Path> lastResponseFileProperty() {
+        return lastResponseFile;
+    }
+
+    /**
+     * Open the most recent truncated response with the system's default application.
+     * Desktop calls may block, so they run off the FX thread.
+     */
+    public void openLastResponseFile() {
+        Path file = lastResponseFile.get();
+        if (file != null) {
+            Thread.ofVirtual().start(() -> openFile(file));
+        }
+    }
+
+    private void openFile(Path file) {
+        try {
+            java.awt.Desktop.getDesktop().open(file.toFile());
+        } catch (Exception e) {
+            logger.warn("Failed to open file {}", file, e);
+            addToHistory(i18n.getString("message.open_response_failed", file));
+        }
     }
 
     public StringProperty uidProperty() {
         return uid;
     }
 
+    public IntegerProperty inFlightCountProperty() {
+        return inFlightCount;
+    }
+
+    public StringProperty executionStatusProperty() {
+        return executionStatus;
+    }
+
+    public StringProperty targetGroupProperty() {
+        return targetGroup;
+    }
+
+    public BooleanProperty scriptRunningProperty() {
+        return scriptRunning;
+    }
+
+    public DoubleProperty scriptProgressProperty() {
+        return scriptProgress;
+    }
+
     public ObjectProperty<Command> selectedCommandProperty() {
         return selectedCommand;
     }
@@ -199,9 +727,6 @@ public class MainViewModel {
         return commands.get();
     }
 
-    public String getHistory() {
-        return history.get();
-    }
 
     // Setters
     public void setServerAddress(String serverAddress) {
@@ -234,6 +759,56 @@ public class MainViewModel {
     }
 
     // Getters for services
+    /**
+     * Persisted command history, empty when the database is unavailable
+     */
+    public Optional<HistoryArchive> getHistoryArchive() {
+        return Optional.ofNullable(historyArchive);
+    }
+
+    public ConfigRepository getConfigRepository() {
+        return configRepository;
+    }
+
+    /**
+     * Build handbook data and commands for every supported language in the background,
+     * current language first, so a later language switch only swaps cached snapshots.
+     * Called once the main window is visible so startup does no handbook parsing.
+     */
+    public void prefetchLocaleData() {
+        List<Locale> locales = new ArrayList<>(I18nManager.SUPPORTED_LOCALES);
+        Locale current = i18n.getCurrentLocale();
+        locales.removeIf(locale -> locale.getLanguage().equals(current.getLanguage()));
+        locales.addFirst(current);
+
+        typedDataManager.prefetchAsync(locales);
+        Thread.ofVirtual().name("command-prefetch").start(() -> locales.forEach(CommandRegistry::getAllCommands));
+    }
+
+    /**
+     * Start flushing and draining the spool in the background, delivered commands are reported in the history.
+     * Called once the main window is visible.
+     */
+    public void startSpool() {
+        if (commandSpool != null) {
+            commandSpool.setDrainListener((delivered, remaining) -> Platform.runLater(() ->
+                    addToHistory(i18n.getString("message.spool_drained", delivered, remaining))));
+            commandSpool.start();
+        }
+    }
+
+    /**
+     * Shut down background work in dependency order when the application exits:
+     * the spool is stopped and flushed first, then the database writes the queued history and closes.
+     * Commands arriving afterwards are neither spooled nor archived.
+     */
+    public void shutdown() {
+        if (commandSpool != null) {
+            commandSpool.close();
+        }
+        configRepository.getDatabaseManager().ifPresent(DatabaseManager::close);
+    }
+
     public TypedDataManager getTypedDataManager() {
         return typedDataManager;
     }
@@ -6,6 +6,7 @@ module emu.nebula.nbcommand {
     requires java.sql;
     requires org.xerial.sqlitejdbc;
     requires java.net.http;
+    requires jdk.httpserver;
     requires com.fasterxml.jackson.databind;
     requires java.desktop;
 
@@ -20,5 +21,10 @@ module emu.nebula.nbcommand {
     exports emu.nebula.nbcommand.model.command;
     exports emu.nebula.nbcommand.service;
     exports emu.nebula.nbcommand.service.command;
+    exports emu.nebula.nbcommand.service.command.transport;
+    exports emu.nebula.nbcommand.service.handbook;
+    exports emu.nebula.nbcommand.service.history;
+    exports emu.nebula.nbcommand.service.mock;
+    exports emu.nebula.nbcommand.service.stress;
     exports emu.nebula.nbcommand.ui;
 }
\ No newline at end of file
@@ -0,0 +1,108 @@
+package emu.nebula.nbcommand.service.handbook;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 手册JSON → 二进制 → 存储的往返测试，防止二进制格式的改动悄悄丢失或改变数据
+ */
+class HandbookCodecTest {
+    static final Path HANDBOOK_ROOT = Paths.get("src/main/resources/handbook");
+
+    @Test
+    void binaryRoundTripKeepsEveryHandbookFile() throws IOException {
+        int checked = 0;
+        try (DirectoryStream<Path> locales = Files.newDirectoryStream(HANDBOOK_ROOT, Files::isDirectory)) {
+            for (Path localeDir : locales) {
+                for (HandbookDataset dataset : HandbookDataset.values()) {
+                    Path json = localeDir.resolve(dataset.getFileName() + ".json");
+                    if (!Files.isRegularFile(json)) {
+                        continue;
+                    }
+                    HandbookStore expected;
+                    try (InputStream stream = Files.newInputStream(json)) {
+                        expected = HandbookCodec.readJson(stream, dataset);
+                    }
+                    assertTrue(expected.size() > 0, json + " 没有条目");
+                    assertSameEntries(expected, roundTrip(expected), json.toString());
+                    checked++;
+                }
+            }
+        }
+        assertEquals(4 * HandbookDataset.values().length, checked);
+    }
+
+    @Test
+    void roundTripKeepsUnusualStrings() throws IOException {
+        HandbookStore expected = new HandbookStore.Builder()
+                .add(0, "", "Item")
+                .add(-1, "多行\n名称", "")
+                .add(Integer.MAX_VALUE, "골든 디스크 🎵", "Item")
+                .add(42, "多行\n名称", "类型")
+                .build();
+        HandbookStore actual = roundTrip(expected);
+        assertSameEntries(expected, actual, "手工构建的存储");
+        // 相同的名称解码后共用同一个实例
+        assertSame(actual.name(1), actual.name(3));
+    }
+
+    @Test
+    void emptyStoreRoundTrips() throws IOException {
+        assertEquals(0, roundTrip(HandbookStore.empty()).size());
+    }
+
+    @Test
+    void rejectsForeignAndTruncatedData() throws IOException {
+        assertThrows(IOException.class, () -> HandbookCodec.read(ByteBuffer.wrap("{\"items\":[]}".getBytes(StandardCharsets.UTF_8))));
+
+        byte[] data = encode(new HandbookStore.Builder().add(602, "Gold Disc", "Item").build());
+        for (int length = 0; length < data.length; length++) {
+            byte[] truncated = Arrays.copyOf(data, length);
+            assertThrows(IOException.class, () -> HandbookCodec.read(ByteBuffer.wrap(truncated)), "截断到 " + length + " 字节");
+        }
+    }
+
+    private static HandbookStore roundTrip(HandbookStore store) throws IOException {
+        byte[] data = encode(store);
+        // 再编码一次，格式必须是确定的
+        byte[] again = encode(HandbookCodec.read(ByteBuffer.wrap(data)));
+        assertArrayEquals(data, again);
+        return HandbookCodec.read(ByteBuffer.wrap(data));
+    }
+
+    private static byte[] encode(HandbookStore store) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        HandbookCodec.write(store, output);
+        return output.toByteArray();
+    }
+
+    private static void assertSameEntries(HandbookStore expected, HandbookStore actual, String source) {
+        assertEquals(expected.size(), actual.size(), source);
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.id(i), actual.id(i), source);
+            assertEquals(expected.name(i), actual.name(i), source);
+            assertEquals(expected.type(i), actual.type(i), source);
+            assertEquals(expected.displayString(i), actual.displayString(i), source);
+        }
+        assertEquals(expected.getTypes(), actual.getTypes(), source);
+        for (String type : expected.getTypes()) {
+            assertEquals(expected.getDisplayList(type), actual.getDisplayList(type), source + " " + type);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package emu.nebula.nbcommand.service.handbook;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 跨语言模糊搜索的排序测试，使用真实的物品手册，防止排序规则的改动悄悄降低查询质量
+ */
+class HandbookIndexTest {
+    private static final String GOLD_DISC_EN = "602 - Gold Disc";
+    private static final String GOLD_DISC_ZH = "602 - 灿金闪碟";
+    private static final String GOLD_DISC_KO = "602 - 골든 디스크";
+
+    private static HandbookStore en;
+    private static HandbookStore zh;
+    private static HandbookStore ja;
+    private static HandbookStore ko;
+    private static HandbookIndex index;
+
+    @BeforeAll
+    static void buildIndex() throws IOException {
+        en = load("en_US");
+        zh = load("zh_CN");
+        ja = load("ja_JP");
+        ko = load("ko_KR");
+        index = HandbookIndex.build(List.of(en, zh, ja, ko));
+    }
+
+    private static HandbookStore load(String locale) throws IOException {
+        try (InputStream stream = Files.newInputStream(HandbookCodecTest.HANDBOOK_ROOT.resolve(locale).resolve("Items.json"))) {
+            return HandbookCodec.readJson(stream, HandbookDataset.ITEMS);
+        }
+    }
+
+    private static List<String> search(HandbookStore store, String query) {
+        return index.search(store, query, HandbookStore.ALL_TYPES, 4);
+    }
+
+    @Test
+    void idPrefixRanksFirst() {
+        assertEquals(GOLD_DISC_EN, search(en, "602").get(0));
+        // 纯数字只按ID查找，不做模糊匹配
+        assertEquals(List.of(), search(en, "9999999"));
+    }
+
+    @Test
+    void latinSubsequenceAndTypos() {
+        assertEquals(GOLD_DISC_EN, search(en, "gld").get(0));
+        assertEquals(GOLD_DISC_EN, search(en, "Gold Disk").get(0));
+        assertEquals(GOLD_DISC_EN, search(en, "Glod Disc").get(0));
+    }
+
+    @Test
+    void pinyinInitials() {
+        assertEquals(GOLD_DISC_ZH, search(zh, "cjsd").get(0));
+    }
+
+    @Test
+    void kanaAndRomaji() {
+        assertEquals(List.of("11 - ステラコイン", "35003 - 騎士道精神コイン"), search(ja, "コイン").subList(0, 2));
+        assertEquals("11 - ステラコイン", search(ja, "koin").get(0));
+        // 平假名与片假名视为相同
+        assertEquals("11 - ステラコイン", search(ja, "すてらこいん").get(0));
+    }
+
+    @Test
+    void hangulSyllablesAndInitials() {
+        assertEquals(GOLD_DISC_KO, search(ko, "골드").get(0));
+        assertEquals(GOLD_DISC_KO, search(ko, "ㄱㄷㄷㅅㅋ").get(0));
+        assertTrue(search(ko, "ㄱㄷ").contains(GOLD_DISC_KO));
+    }
+
+    @Test
+    void otherLanguagesFindEntriesShownInDisplayLanguage() {
+        assertEquals(GOLD_DISC_KO, search(ko, "gold disc").get(0));
+        assertEquals(GOLD_DISC_ZH, search(zh, "gold").get(0));
+        assertEquals(GOLD_DISC_EN, search(en, "煌金").get(0));
+        assertEquals(GOLD_DISC_EN, search(en, "灿金闪碟").get(0));
+    }
+
+    @Test
+    void displayLanguageNamesRankBeforeOtherLanguages() {
+        List<String> results = search(en, "gold disc");
+        assertEquals(GOLD_DISC_EN, results.get(0));
+        for (String result : results) {
+            assertTrue(result.contains("Gold Disc"), result);
+        }
+    }
+
+    @Test
+    void typeFilterAndLimit() {
+        assertEquals(List.of(), index.search(en, "gold", "no such type", 10));
+        String type = en.type(en.indexOf(602));
+        List<String> filtered = index.search(en, "gold", type, 3);
+        assertEquals(3, filtered.size());
+        for (String result : filtered) {
+            int id = Integer.parseInt(result.substring(0, result.indexOf(' ')));
+            assertEquals(type, en.type(en.indexOf(id)));
+        }
+    }
+
+    @Test
+    void emptyQueryListsEntriesInStoreOrder() {
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            expected.add(en.displayString(i));
+        }
+        assertEquals(expected, index.search(en, "  ", null, 5));
+    }
+
+    @Test
+    void rejectsStoreOutsideIndex() {
+        HandbookStore other = new HandbookStore.Builder().add(1, "Dorra", "Item").build();
+        assertThrows(IllegalArgumentException.class, () -> index.search(other, "dorra", null, 5));
+    }
+}